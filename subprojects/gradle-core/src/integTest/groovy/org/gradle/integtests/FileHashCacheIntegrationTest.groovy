@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.integtests
+
+import org.gradle.CacheUsage
+import org.gradle.cache.DefaultCacheFactory
+import org.gradle.cache.DefaultCacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.cache.Serializer
+import org.gradle.util.TestFile
+import org.junit.Test
+import static org.hamcrest.Matchers.*
+import static org.junit.Assert.*
+
+class FileHashCacheIntegrationTest extends AbstractIntegrationTest {
+    @Test
+    public void persistsHashesOfInputFilesWhenBuildFinishes() {
+        testFile('build.gradle') << '''
+task a(type: org.gradle.integtests.TransformerTask) {
+    inputFile = file('src.txt')
+    outputFile = file('src.a.txt')
+}
+'''
+        TestFile inputFile = testFile('src.txt')
+        inputFile.text = 'content'
+        // Hashes of recently modified files are not cached
+        inputFile.setLastModified(inputFile.lastModified() - 10000)
+
+        inTestDirectory().withTasks('a').run().assertTasksExecuted(':a')
+
+        assertHashIsPersisted('fileHashes', inputFile)
+    }
+
+    @Test
+    public void persistsHashesOfClasspathInputFilesWhenBuildFinishes() {
+        testFile('build.gradle') << '''
+task a {
+    inputs.classpath('lib.jar')
+    outputs.file('out.txt')
+    doLast {
+        file('out.txt').text = 'done'
+    }
+}
+'''
+        TestFile classpathFile = testFile('lib.jar')
+        classpathFile.text = 'not really a jar'
+        classpathFile.setLastModified(classpathFile.lastModified() - 10000)
+
+        inTestDirectory().withTasks('a').run().assertTasksExecuted(':a')
+
+        assertHashIsPersisted('classpathHashes', classpathFile)
+    }
+
+    private void assertHashIsPersisted(String cacheName, File file) {
+        DefaultCacheFactory cacheFactory = new DefaultCacheFactory()
+        PersistentCache cache = new DefaultCacheRepository(distribution.userHomeDir, CacheUsage.ON, cacheFactory)
+                .cache(cacheName).withProperties([algorithm: 'MD5']).open()
+        try {
+            assertTrue(cache.isValid())
+            PersistentIndexedCache<File, Boolean> hashes = cache.openIndexedCache(new Serializer<Boolean>() {
+                Boolean read(InputStream instr) {
+                    return true
+                }
+
+                void write(OutputStream outstr, Boolean value) {
+                    throw new UnsupportedOperationException()
+                }
+            })
+            assertThat(hashes.get(file), equalTo(true))
+        } finally {
+            cacheFactory.close(cache)
+        }
+    }
+}
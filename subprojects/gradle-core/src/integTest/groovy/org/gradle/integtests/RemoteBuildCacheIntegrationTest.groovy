@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.integtests
+
+import org.gradle.integtests.fixtures.HttpServer
+import org.gradle.util.TestFile
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import static org.hamcrest.Matchers.*
+import static org.junit.Assert.*
+
+class RemoteBuildCacheIntegrationTest extends AbstractIntegrationTest {
+    private final HttpServer server = new HttpServer()
+    private TestFile cacheDir
+
+    @Before
+    public void setUp() {
+        cacheDir = testFile('remote-cache')
+        server.addStore('/cache', cacheDir)
+        server.start()
+
+        testFile('build.gradle') << '''
+task a(type: org.gradle.integtests.TransformerTask) {
+    inputFile = file('src.txt')
+    outputFile = file('build/src.a.txt')
+}
+'''
+        testFile('src.txt').text = 'content'
+    }
+
+    @After
+    public void tearDown() {
+        server.stop()
+    }
+
+    @Test
+    public void restoresTaskOutputsFromRemoteCacheStoredByAnotherMachine() {
+        TestFile outputFile = testFile('build/src.a.txt')
+
+        inTestDirectory().withArguments('--build-cache', '--build-cache-url', "http://localhost:$server.port/cache/")
+                .withUserHomeDir(testFile('user-home-1')).withTasks('a').run()
+                .assertTasksExecuted(':a').assertTasksSkipped()
+
+        assertThat(outputFile.text, equalTo('[content]'))
+        assertThat(cacheDir.list().length, equalTo(1))
+
+        // A build with an empty user home uses the remote cache
+
+        outputFile.delete()
+
+        inTestDirectory().withArguments('--build-cache', '--build-cache-url', "http://localhost:$server.port/cache/")
+                .withUserHomeDir(testFile('user-home-2')).withTasks('a').run()
+                .assertTasksExecuted(':a').assertTasksSkipped(':a')
+
+        assertThat(outputFile.text, equalTo('[content]'))
+    }
+
+    @Test
+    public void executesTasksWhenRemoteCacheIsNotAvailable() {
+        int port = server.port
+        server.stop()
+
+        inTestDirectory().withArguments('--build-cache', '--build-cache-url', "http://localhost:$port/cache/",
+                '--build-cache-timeout', '1000')
+                .withTasks('a').run()
+                .assertTasksExecuted(':a').assertTasksSkipped()
+
+        assertThat(testFile('build/src.a.txt').text, equalTo('[content]'))
+    }
+}
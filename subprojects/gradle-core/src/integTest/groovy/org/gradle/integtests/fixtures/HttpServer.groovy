@@ -16,6 +16,9 @@
 package org.gradle.integtests.fixtures
 
 import org.apache.commons.lang.StringUtils
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import org.mortbay.jetty.Request
 import org.mortbay.jetty.Server
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
@@ -54,6 +57,38 @@ class HttpServer {
         collection.addHandler(context)
     }
 
+    /**
+     * Serves the files in the given directory at the given URL, using GET to fetch a file and PUT to create or replace
+     * a file.
+     */
+    def addStore(String path, File dir) {
+        assert path.startsWith('/')
+        ContextHandler context = new ContextHandler()
+        context.contextPath = path
+        context.addHandler(new AbstractHandler() {
+            void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch) {
+                File file = new File(dir, StringUtils.removeStart(target, '/'))
+                if (request.method == 'GET') {
+                    if (file.isFile()) {
+                        response.contentType = 'application/octet-stream'
+                        file.withInputStream { response.outputStream << it }
+                    } else {
+                        response.sendError(HttpServletResponse.SC_NOT_FOUND)
+                    }
+                } else if (request.method == 'PUT') {
+                    logger.debug("Storing {}", file)
+                    dir.mkdirs()
+                    file.withOutputStream { it << request.inputStream }
+                    response.status = HttpServletResponse.SC_CREATED
+                } else {
+                    response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED)
+                }
+                ((Request) request).handled = true
+            }
+        })
+        collection.addHandler(context)
+    }
+
     def int getPort() {
         return server.connectors[0].localPort
     }
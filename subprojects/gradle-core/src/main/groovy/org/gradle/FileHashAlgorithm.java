@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle;
+
+import org.gradle.api.InvalidUserDataException;
+
+/**
+ * <p>{@code FileHashAlgorithm} specifies how the content of task input and output files is hashed to detect
+ * changes.</p>
+ *
+ * <ul>
+ * <li>{@link #MD5} uses the MD5 message digest.</li>
+ * <li>{@link #MURMUR3} uses the 128-bit variant of MurmurHash3. This is a non-cryptographic hash which is much
+ * faster than MD5.</li>
+ * </ul>
+ */
+public enum FileHashAlgorithm {
+    MD5, MURMUR3;
+
+    public static FileHashAlgorithm fromString(String algorithm) {
+        try {
+            return valueOf(algorithm.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidUserDataException(String.format("Unknown file hash algorithm '%s' specified.", algorithm));
+        }
+    }
+}
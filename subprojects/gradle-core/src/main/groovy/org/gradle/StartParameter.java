@@ -29,6 +29,7 @@ import org.gradle.util.GFileUtils;
 import org.gradle.util.GUtil;
 
 import java.io.File;
+import java.net.URI;
 import java.util.*;
 
 /**
@@ -79,6 +80,16 @@ public class StartParameter {
     private boolean noOpt;
     private boolean colorOutput = true;
     private boolean profile;
+    private int parallelThreadCount;
+    private boolean parallelProjectEvaluation;
+    private boolean configureOnDemand;
+    private boolean continuous;
+    private boolean prefetchInputSnapshots;
+    private boolean timestampOutputSnapshots;
+    private boolean buildCacheEnabled;
+    private URI buildCacheUrl;
+    private int buildCacheTimeout = 10000;
+    private FileHashAlgorithm fileHashAlgorithm = FileHashAlgorithm.MD5;
 
     /**
      * Creates a {@code StartParameter} with default values. This is roughly equivalent to running Gradle on the
@@ -124,6 +135,16 @@ public class StartParameter {
         startParameter.dryRun = dryRun;
         startParameter.noOpt = noOpt;
         startParameter.profile = profile;
+        startParameter.parallelThreadCount = parallelThreadCount;
+        startParameter.parallelProjectEvaluation = parallelProjectEvaluation;
+        startParameter.configureOnDemand = configureOnDemand;
+        startParameter.continuous = continuous;
+        startParameter.prefetchInputSnapshots = prefetchInputSnapshots;
+        startParameter.timestampOutputSnapshots = timestampOutputSnapshots;
+        startParameter.buildCacheEnabled = buildCacheEnabled;
+        startParameter.buildCacheUrl = buildCacheUrl;
+        startParameter.buildCacheTimeout = buildCacheTimeout;
+        startParameter.fileHashAlgorithm = fileHashAlgorithm;
         return startParameter;
     }
 
@@ -141,6 +162,8 @@ public class StartParameter {
         startParameter.logLevel = logLevel;
         startParameter.colorOutput = colorOutput;
         startParameter.profile = profile;
+        startParameter.fileHashAlgorithm = fileHashAlgorithm;
+        startParameter.timestampOutputSnapshots = timestampOutputSnapshots;
         return startParameter;
     }
 
@@ -247,6 +270,9 @@ public class StartParameter {
         if (dryRun) {
             executer = new DryRunBuildExecuter(executer);
         }
+        if (continuous) {
+            executer = new ContinuousBuildExecuter(executer);
+        }
         return executer;
     }
 
@@ -526,6 +552,223 @@ public class StartParameter {
         return profile;
     }
 
+    /**
+     * Returns the number of threads to use to execute tasks concurrently. A value of 0 or 1 means that tasks are
+     * executed one at a time in the calling thread. The default value is 0.
+     *
+     * @return The number of task execution threads.
+     */
+    public int getParallelThreadCount() {
+        return parallelThreadCount;
+    }
+
+    /**
+     * Specifies the number of threads to use to execute tasks concurrently. When greater than 1, a task is started as
+     * soon as all the tasks it depends on have completed, rather than waiting for all the preceding tasks in the
+     * execution plan.
+     *
+     * @param parallelThreadCount The number of task execution threads. Use 0 to execute tasks one at a time.
+     */
+    public void setParallelThreadCount(int parallelThreadCount) {
+        if (parallelThreadCount < 0) {
+            throw new IllegalArgumentException(String.format("Invalid number of task execution threads %s specified.", parallelThreadCount));
+        }
+        this.parallelThreadCount = parallelThreadCount;
+    }
+
+    /**
+     * Returns true if projects should be evaluated concurrently. The default value is false.
+     *
+     * @return true if projects should be evaluated concurrently.
+     */
+    public boolean isParallelProjectEvaluation() {
+        return parallelProjectEvaluation;
+    }
+
+    /**
+     * Specifies whether projects should be evaluated concurrently. When true, a project is evaluated once its parent
+     * project has been evaluated, and a project which calls {@link org.gradle.api.Project#evaluationDependsOn(String)}
+     * waits until the target project has been evaluated. A project which looks up another project using {@link
+     * org.gradle.api.Project#project(String)} waits until the other project has been evaluated, when the other project
+     * would have been evaluated first had the projects been evaluated one at a time. Project evaluation listeners are
+     * notified one at a time.
+     *
+     * @param parallelProjectEvaluation true if projects should be evaluated concurrently.
+     */
+    public void setParallelProjectEvaluation(boolean parallelProjectEvaluation) {
+        this.parallelProjectEvaluation = parallelProjectEvaluation;
+    }
+
+    /**
+     * Returns true if projects should be configured only when they are required by the build. The default value is
+     * false.
+     *
+     * @return true if projects should be configured on demand.
+     */
+    public boolean isConfigureOnDemand() {
+        return configureOnDemand;
+    }
+
+    /**
+     * Specifies whether projects should be configured only when they are required by the build. When true, the root
+     * project is configured first, followed by the projects which contain the selected tasks and the projects which
+     * they depend on. Other projects are only configured if they are referenced during the build. Cannot be combined
+     * with {@link #setParallelProjectEvaluation(boolean) parallel project evaluation}.
+     *
+     * @param configureOnDemand true if projects should be configured on demand.
+     */
+    public void setConfigureOnDemand(boolean configureOnDemand) {
+        this.configureOnDemand = configureOnDemand;
+    }
+
+    /**
+     * Returns true if the build should keep running and re-execute tasks when their input files change. The default
+     * value is false.
+     *
+     * @return true if the build is continuous.
+     */
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    /**
+     * Specifies whether the build should keep running and re-execute tasks when their input files change. When true,
+     * the build waits for changes to the input files of the selected tasks once they have executed. When a change is
+     * detected, the affected tasks and the tasks which depend on them are executed again, until the build is
+     * interrupted.
+     *
+     * @param continuous true if the build is continuous.
+     */
+    public void setContinuous(boolean continuous) {
+        this.continuous = continuous;
+    }
+
+    /**
+     * Returns true if the input files of upcoming tasks should be snapshotted in the background while earlier tasks
+     * execute. The default value is false.
+     *
+     * @return true if input snapshots should be prefetched.
+     */
+    public boolean isPrefetchInputSnapshots() {
+        return prefetchInputSnapshots;
+    }
+
+    /**
+     * Specifies whether the input files of upcoming tasks should be snapshotted in the background while earlier tasks
+     * execute. Only the inputs of tasks which do not consume the outputs of other tasks are prefetched.
+     *
+     * @param prefetchInputSnapshots true if input snapshots should be prefetched.
+     */
+    public void setPrefetchInputSnapshots(boolean prefetchInputSnapshots) {
+        this.prefetchInputSnapshots = prefetchInputSnapshots;
+    }
+
+    /**
+     * Returns true if the content of task output files should only be hashed when their size or modification time
+     * has changed. The default value is false.
+     *
+     * @return true if output files are only hashed when their size or modification time has changed.
+     */
+    public boolean isTimestampOutputSnapshots() {
+        return timestampOutputSnapshots;
+    }
+
+    /**
+     * Specifies whether the content of task output files should only be hashed when their size or modification time
+     * has changed. The size, modification time and content hash of each output file are recorded in the task history,
+     * and the recorded hash is used while the size and modification time are unchanged and the output has not been
+     * deleted and created again. Changes are still detected by comparing the content hashes, so touching an output
+     * file is not treated as a change.
+     *
+     * @param timestampOutputSnapshots true if output files should only be hashed when their size or modification
+     * time has changed.
+     */
+    public void setTimestampOutputSnapshots(boolean timestampOutputSnapshots) {
+        this.timestampOutputSnapshots = timestampOutputSnapshots;
+    }
+
+    /**
+     * Returns true if task outputs should be restored from and stored in the build cache. The default value is false.
+     *
+     * @return true if the build cache is enabled.
+     */
+    public boolean isBuildCacheEnabled() {
+        return buildCacheEnabled;
+    }
+
+    /**
+     * Specifies whether task outputs should be restored from and stored in the build cache. When true, the outputs of
+     * a task which is not up-to-date are restored from the cache if the task has previously been executed with the
+     * same inputs, instead of executing the task.
+     *
+     * @param buildCacheEnabled true if the build cache is enabled.
+     */
+    public void setBuildCacheEnabled(boolean buildCacheEnabled) {
+        this.buildCacheEnabled = buildCacheEnabled;
+    }
+
+    /**
+     * Returns the URI of the remote build cache, or null if no remote build cache is used. The default value is null.
+     *
+     * @return The remote build cache URI. May be null.
+     */
+    public URI getBuildCacheUrl() {
+        return buildCacheUrl;
+    }
+
+    /**
+     * Specifies the URI of a remote build cache to use in addition to the local build cache. Entries are fetched from
+     * the remote cache using HTTP GET requests, and stored using HTTP PUT requests. If the remote cache cannot be
+     * reached, tasks are executed locally. This has no effect unless the build cache is enabled.
+     *
+     * @param buildCacheUrl The remote build cache URI. May be null.
+     */
+    public void setBuildCacheUrl(URI buildCacheUrl) {
+        this.buildCacheUrl = buildCacheUrl;
+    }
+
+    /**
+     * Returns the timeout, in milliseconds, for connecting to and reading from the remote build cache. The default
+     * value is 10000.
+     *
+     * @return The remote build cache timeout.
+     */
+    public int getBuildCacheTimeout() {
+        return buildCacheTimeout;
+    }
+
+    /**
+     * Specifies the timeout, in milliseconds, for connecting to and reading from the remote build cache.
+     *
+     * @param buildCacheTimeout The timeout. Use 0 to wait indefinitely.
+     */
+    public void setBuildCacheTimeout(int buildCacheTimeout) {
+        if (buildCacheTimeout < 0) {
+            throw new IllegalArgumentException(String.format("Invalid build cache timeout %s specified.", buildCacheTimeout));
+        }
+        this.buildCacheTimeout = buildCacheTimeout;
+    }
+
+    /**
+     * Returns the algorithm used to hash the content of task input and output files. The default value is {@link
+     * FileHashAlgorithm#MD5}.
+     *
+     * @return The file hash algorithm.
+     */
+    public FileHashAlgorithm getFileHashAlgorithm() {
+        return fileHashAlgorithm;
+    }
+
+    /**
+     * Specifies the algorithm used to hash the content of task input and output files. Changing the algorithm
+     * discards the cached file hashes, so all tasks are treated as out-of-date the next time they execute.
+     *
+     * @param fileHashAlgorithm The file hash algorithm.
+     */
+    public void setFileHashAlgorithm(FileHashAlgorithm fileHashAlgorithm) {
+        this.fileHashAlgorithm = fileHashAlgorithm;
+    }
+
     @Override
     public String toString() {
         return "StartParameter{" +
@@ -548,6 +791,16 @@ public class StartParameter {
                 ", dryRun=" + dryRun +
                 ", noOpt=" + noOpt +
                 ", profile=" + profile +
+                ", parallelThreadCount=" + parallelThreadCount +
+                ", parallelProjectEvaluation=" + parallelProjectEvaluation +
+                ", configureOnDemand=" + configureOnDemand +
+                ", continuous=" + continuous +
+                ", prefetchInputSnapshots=" + prefetchInputSnapshots +
+                ", fileHashAlgorithm=" + fileHashAlgorithm +
+                ", timestampOutputSnapshots=" + timestampOutputSnapshots +
+                ", buildCacheEnabled=" + buildCacheEnabled +
+                ", buildCacheUrl=" + buildCacheUrl +
+                ", buildCacheTimeout=" + buildCacheTimeout +
                 '}';
     }
 }
\ No newline at end of file
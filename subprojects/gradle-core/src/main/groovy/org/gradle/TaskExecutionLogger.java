@@ -24,11 +24,15 @@ import org.gradle.logging.ProgressLogger;
 import org.gradle.api.tasks.TaskState;
 import org.gradle.logging.ProgressLoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
- * A listener which logs the execution of tasks.
+ * A listener which logs the execution of tasks. Several tasks may be executing at the same time when tasks are executed
+ * in parallel.
  */
 public class TaskExecutionLogger implements TaskExecutionListener {
-    private ProgressLogger currentTask;
+    private final Map<Task, ProgressLogger> currentTasks = new HashMap<Task, ProgressLogger>();
     private final ProgressLoggerFactory progressLoggerFactory;
 
     public TaskExecutionLogger(ProgressLoggerFactory progressLoggerFactory) {
@@ -36,18 +40,19 @@ public class TaskExecutionLogger implements TaskExecutionListener {
     }
 
     public void beforeExecute(Task task) {
-        assert currentTask == null;
-        currentTask = progressLoggerFactory.start(TaskExecutionLogger.class.getName(), getDisplayName(task));
+        assert !currentTasks.containsKey(task);
+        ProgressLogger currentTask = progressLoggerFactory.start(TaskExecutionLogger.class.getName(), getDisplayName(task));
         currentTask.progress(getDisplayName(task));
+        currentTasks.put(task, currentTask);
     }
 
     public void afterExecute(Task task, TaskState state) {
+        ProgressLogger currentTask = currentTasks.remove(task);
         if (state.getSkipMessage() != null) {
             currentTask.completed(state.getSkipMessage());
         } else {
             currentTask.completed();
         }
-        currentTask = null;
     }
 
     private String getDisplayName(Task task) {
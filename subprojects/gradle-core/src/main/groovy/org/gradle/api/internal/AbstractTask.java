@@ -24,6 +24,7 @@ import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.api.internal.plugins.DefaultConvention;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ServiceRegistry;
+import org.gradle.api.internal.tasks.ClassLoaderAwareTaskAction;
 import org.gradle.api.internal.tasks.DefaultTaskDependency;
 import org.gradle.api.internal.tasks.TaskDependencyInternal;
 import org.gradle.api.internal.tasks.TaskExecuter;
@@ -429,13 +430,21 @@ public abstract class AbstractTask implements TaskInternal, DynamicObjectAware {
         }
     }
 
-    private static class ClosureTaskAction implements Action<Task> {
+    private static class ClosureTaskAction implements ClassLoaderAwareTaskAction {
         private final Closure closure;
 
         private ClosureTaskAction(Closure closure) {
             this.closure = closure;
         }
 
+        public ClassLoader getClassLoader() {
+            return closure.getClass().getClassLoader();
+        }
+
+        public String getImplementationClassName() {
+            return closure.getClass().getName();
+        }
+
         public void execute(Task task) {
             try {
                 if (closure.getMaximumNumberOfParameters() == 0) {
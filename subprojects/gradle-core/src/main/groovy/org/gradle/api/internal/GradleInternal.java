@@ -18,6 +18,7 @@ package org.gradle.api.internal;
 import org.gradle.api.ProjectEvaluationListener;
 import org.gradle.api.internal.project.*;
 import org.gradle.api.invocation.Gradle;
+import org.gradle.execution.ContinuousBuildListener;
 import org.gradle.execution.TaskGraphExecuter;
 import org.gradle.BuildListener;
 import org.gradle.util.MultiParentClassLoader;
@@ -54,6 +55,16 @@ public interface GradleInternal extends Gradle {
      */
     ProjectEvaluationListener getProjectEvaluationBroadcaster();
 
+    /**
+     * Returns the broadcaster for {@link ProjectAccessListener} events for this build
+     */
+    ProjectAccessListener getProjectAccessBroadcaster();
+
+    /**
+     * Returns the broadcaster for {@link ContinuousBuildListener} events for this build
+     */
+    ContinuousBuildListener getContinuousBuildBroadcaster();
+
     /**
      * Called by the BuildLoader after the default project is determined.  Until the BuildLoader
      * is executed, {@link #getDefaultProject()} will return null.
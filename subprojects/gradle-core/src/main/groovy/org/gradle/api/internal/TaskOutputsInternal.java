@@ -25,5 +25,10 @@ public interface TaskOutputsInternal extends TaskOutputs {
 
     FileCollection getPreviousFiles();
 
+    /**
+     * Returns the execution history of the task, or null when the history is not currently available.
+     */
+    TaskExecutionHistory getHistory();
+
     void setHistory(TaskExecutionHistory history);
 }
@@ -15,36 +15,194 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.Serializer;
+import org.gradle.execution.ContinuousBuildListener;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class CachingHasher implements Hasher {
+/**
+ * A {@link Hasher} which caches the hashes calculated by another hasher in a persistent cache. A cached hash is used
+ * when the file has the same size and modification time as when the hash was calculated.
+ *
+ * <p>The hash of a file which was modified less than {@link #TIMESTAMP_GRANULARITY} milliseconds before it was hashed is
+ * not written to the persistent cache, as the file may be changed again without changing its size or modification
+ * time. It is only held in memory until the end of the build.</p>
+ *
+ * <p>The most recently used hashes are also held in memory, so that a file which is hashed several times during a build
+ * only needs to be looked up in the persistent cache once. New hashes are written to the persistent cache in batches,
+ * and any remaining hashes are written when the hasher is closed. The hasher must be closed before the persistent cache
+ * is.</p>
+ *
+ * <p>Hashes which are calculated during a build are held in memory until the build finishes, regardless of the size of
+ * the in-memory cache. This means that a file which is written and hashed by the task which produces it is not read
+ * again when it is hashed as an input of the tasks which consume it. A continuous build releases them after each
+ * execution of its tasks instead.</p>
+ */
+public class CachingHasher extends BuildAdapter implements Hasher, Closeable, ContinuousBuildListener {
+    private static final Logger LOGGER = Logging.getLogger(CachingHasher.class);
+    private static final int DEFAULT_MAX_CACHED_ENTRIES = 100000;
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 1000;
+    static final long BLOCK_CACHE_SIZE = 16 * 1024 * 1024;
+    /**
+     * The coarsest granularity of file modification times on the file systems we support, in milliseconds.
+     */
+    public static final long TIMESTAMP_GRANULARITY = 2000;
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
-    private long timestamp;
+    private final Map<File, FileInfo> cachedEntries;
+    private final Map<File, FileInfo> pendingWrites = new LinkedHashMap<File, FileInfo>();
+    private final Map<File, FileInfo> buildEntries = new HashMap<File, FileInfo>();
+    private final Set<File> recentlyModified = new HashSet<File>();
+    private final int writeBatchSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a hasher which caches the hashes calculated by the given hasher. The name of the hash algorithm is
+     * recorded in the cache properties, so that the cached hashes are discarded when the algorithm changes.
+     */
+    public CachingHasher(Hasher hasher, String algorithm, CacheRepository cacheRepository) {
+        this(hasher, "fileHashes", algorithm, cacheRepository);
+    }
+
+    /**
+     * Creates a hasher which caches hashes in the persistent cache with the given name.
+     */
+    public CachingHasher(Hasher hasher, String cacheName, String algorithm, CacheRepository cacheRepository) {
+        this(hasher, cacheName, algorithm, cacheRepository, DEFAULT_MAX_CACHED_ENTRIES, DEFAULT_WRITE_BATCH_SIZE);
+    }
+
+    CachingHasher(Hasher hasher, String algorithm, CacheRepository cacheRepository, int maxCachedEntries,
+                  int writeBatchSize) {
+        this(hasher, "fileHashes", algorithm, cacheRepository, maxCachedEntries, writeBatchSize);
+    }
 
-    public CachingHasher(Hasher hasher, CacheRepository cacheRepository) {
+    CachingHasher(Hasher hasher, String cacheName, String algorithm, CacheRepository cacheRepository,
+                  final int maxCachedEntries, int writeBatchSize) {
         this.hasher = hasher;
-        cache = cacheRepository.cache("fileHashes").open().openIndexedCache(new FileInfoSerializer());
+        this.writeBatchSize = writeBatchSize;
+        cache = cacheRepository.cache(cacheName).withProperties(Collections.singletonMap("algorithm", algorithm))
+                .open().openIndexedCache(new FileInfoSerializer(), BLOCK_CACHE_SIZE);
+        cachedEntries = new LinkedHashMap<File, FileInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, FileInfo> eldest) {
+                return size() > maxCachedEntries;
+            }
+        };
     }
 
     public byte[] hash(File file) {
-        FileInfo info = cache.get(file);
-
         long length = file.length();
-        timestamp = file.lastModified();
+        long timestamp = file.lastModified();
+
+        FileInfo info = getCachedInfo(file);
         if (info != null && length == info.length && timestamp == info.timestamp) {
             return info.hash;
         }
 
         byte[] hash = hasher.hash(file);
-        cache.put(file, new FileInfo(hash, length, timestamp));
+        addCachedInfo(file, new FileInfo(hash, length, timestamp),
+                System.currentTimeMillis() - timestamp < TIMESTAMP_GRANULARITY);
         return hash;
     }
 
+    private synchronized FileInfo getCachedInfo(File file) {
+        FileInfo info = buildEntries.get(file);
+        if (info == null) {
+            info = cachedEntries.get(file);
+        }
+        if (info != null) {
+            hits.incrementAndGet();
+            return info;
+        }
+        misses.incrementAndGet();
+        info = pendingWrites.get(file);
+        if (info == null) {
+            info = cache.get(file);
+        }
+        if (info != null) {
+            cachedEntries.put(file, info);
+        }
+        return info;
+    }
+
+    private synchronized void addCachedInfo(File file, FileInfo info, boolean modifiedRecently) {
+        buildEntries.put(file, info);
+        if (modifiedRecently) {
+            recentlyModified.add(file);
+            return;
+        }
+        recentlyModified.remove(file);
+        pendingWrites.put(file, info);
+        if (pendingWrites.size() >= writeBatchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes any hashes which have not yet been written to the persistent cache.
+     */
+    public synchronized void flush() {
+        for (Map.Entry<File, FileInfo> entry : pendingWrites.entrySet()) {
+            cache.put(entry.getKey(), entry.getValue());
+        }
+        pendingWrites.clear();
+    }
+
+    /**
+     * Returns the number of lookups which were served from the in-memory cache.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups which were not served from the in-memory cache.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Writes any hashes which have not yet been written to the persistent cache. Does not close the persistent cache,
+     * which is closed by the cache factory which opened it.
+     */
+    public void close() {
+        flush();
+        LOGGER.debug("File hash cache: {} hits, {} misses.", getHitCount(), getMissCount());
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        releaseBuildEntries();
+    }
+
+    public void iterationFinished() {
+        releaseBuildEntries();
+    }
+
+    /**
+     * Moves the hashes calculated during the build into the bounded in-memory cache, and discards the hashes of files
+     * which had been modified recently when they were hashed.
+     */
+    private synchronized void releaseBuildEntries() {
+        for (Map.Entry<File, FileInfo> entry : buildEntries.entrySet()) {
+            if (!recentlyModified.contains(entry.getKey())) {
+                cachedEntries.put(entry.getKey(), entry.getValue());
+            }
+        }
+        buildEntries.clear();
+        recentlyModified.clear();
+    }
+
     public static class FileInfo implements Serializable {
         private final byte[] hash;
         private final long timestamp;
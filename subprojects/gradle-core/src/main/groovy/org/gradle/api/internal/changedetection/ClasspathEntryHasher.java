@@ -0,0 +1,136 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.util.UncheckedException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * A {@link Hasher} for the files of a classpath. A jar or zip file is hashed using the names and content of its
+ * entries, in order of entry name. The timestamps and order of the entries, and the entries which are not used to
+ * load classes (the manifest, the jar index and any Maven metadata), do not affect the hash. This means that a jar
+ * which has been rebuilt from the same classes has the same hash as the original jar.
+ *
+ * <p>Any other file, and any jar which cannot be read as a zip file, is hashed using the given hasher.</p>
+ */
+public class ClasspathEntryHasher implements Hasher {
+    private static final Set<String> IGNORED_ENTRIES = new HashSet<String>(Arrays.asList("META-INF/MANIFEST.MF",
+            "META-INF/INDEX.LIST"));
+    private static final String IGNORED_DIR = "META-INF/maven/";
+    private final Hasher hasher;
+
+    public ClasspathEntryHasher(Hasher hasher) {
+        this.hasher = hasher;
+    }
+
+    public byte[] hash(File file) {
+        if (!isArchive(file)) {
+            return hasher.hash(file);
+        }
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(file);
+        } catch (ZipException e) {
+            return hasher.hash(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            try {
+                return hash(zipFile);
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] hash(ZipFile zipFile) throws IOException {
+        List<ZipEntry> entries = new ArrayList<ZipEntry>();
+        for (Enumeration<? extends ZipEntry> enumeration = zipFile.entries(); enumeration.hasMoreElements();) {
+            ZipEntry entry = enumeration.nextElement();
+            if (!entry.isDirectory() && !isIgnored(entry.getName())) {
+                entries.add(entry);
+            }
+        }
+        Collections.sort(entries, new Comparator<ZipEntry>() {
+            public int compare(ZipEntry entry1, ZipEntry entry2) {
+                return entry1.getName().compareTo(entry2.getName());
+            }
+        });
+
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[8192];
+        for (ZipEntry entry : entries) {
+            updateDigest(digest, entry.getName());
+            InputStream instr = zipFile.getInputStream(entry);
+            try {
+                long length = 0;
+                while (true) {
+                    int nread = instr.read(buffer);
+                    if (nread < 0) {
+                        break;
+                    }
+                    digest.update(buffer, 0, nread);
+                    length += nread;
+                }
+                // Separate the content of this entry from the name of the next entry
+                updateDigest(digest, String.valueOf(length));
+            } finally {
+                instr.close();
+            }
+        }
+        return digest.digest();
+    }
+
+    private static boolean isArchive(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".jar") || name.endsWith(".zip");
+    }
+
+    private static boolean isIgnored(String name) {
+        return IGNORED_ENTRIES.contains(name) || name.startsWith(IGNORED_DIR);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, String value) {
+        try {
+            digest.update(value.getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+        digest.update((byte) 0);
+    }
+}
@@ -20,17 +20,83 @@ import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.SimpleFileCollection;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
+import org.gradle.util.UncheckedException;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * A {@link FileSnapshotter} which snapshots the content of each file using a {@link Hasher}.
+ *
+ * <p>When created with an {@link Executor}, the files of a large collection are hashed by the calling thread along with
+ * up to {@code threadCount - 1} jobs run by the executor. The executor is shared by all snapshots and is owned by the
+ * caller, which should bound its number of threads. The file tree is still traversed on the calling thread, and the
+ * resulting snapshot is the same as the snapshot produced when hashing on a single thread.</p>
+ *
+ * <p>When created with a classpath {@link Hasher}, the files which are elements of a classpath are hashed using that
+ * hasher instead. Files inside a classpath directory are hashed using the default hasher.</p>
+ *
+ * <p>When created to record file metadata, the size and modification time of each file are recorded along with its
+ * hash. {@link #snapshot(FileCollection, FileCollectionSnapshot)} then only hashes the files whose size or modification
+ * time differ from the previous snapshot, and uses the recorded hash for the other files.</p>
+ */
 public class DefaultFileSnapshotter implements FileSnapshotter {
+    static final int MIN_FILES_PER_THREAD = 16;
+    private static final int FILE = 0;
+    private static final int DIR = 1;
+    private static final int MISSING = 2;
+    private static final int FILE_METADATA = 3;
     private final Hasher hasher;
+    private final Hasher classpathHasher;
+    private final Executor executor;
+    private final int threadCount;
+    private final boolean recordMetadata;
 
     public DefaultFileSnapshotter(Hasher hasher) {
+        this(hasher, null, 1);
+    }
+
+    /**
+     * Creates a snapshotter which hashes files using up to the given number of threads, including the calling thread.
+     * The hasher must be thread-safe.
+     */
+    public DefaultFileSnapshotter(Hasher hasher, Executor executor, int threadCount) {
+        this(hasher, hasher, executor, threadCount);
+    }
+
+    /**
+     * Creates a snapshotter which hashes classpath elements using the given classpath hasher. The hashers must be
+     * thread-safe.
+     */
+    public DefaultFileSnapshotter(Hasher hasher, Hasher classpathHasher, Executor executor, int threadCount) {
+        this(hasher, classpathHasher, executor, threadCount, false);
+    }
+
+    /**
+     * Creates a snapshotter which records the size and modification time of each file, if requested. The hasher must
+     * be thread-safe.
+     */
+    public DefaultFileSnapshotter(Hasher hasher, Executor executor, int threadCount, boolean recordMetadata) {
+        this(hasher, hasher, executor, threadCount, recordMetadata);
+    }
+
+    private DefaultFileSnapshotter(Hasher hasher, Hasher classpathHasher, Executor executor, int threadCount,
+                                   boolean recordMetadata) {
         this.hasher = hasher;
+        this.classpathHasher = classpathHasher;
+        this.executor = executor;
+        this.threadCount = threadCount;
+        this.recordMetadata = recordMetadata;
     }
 
     public FileCollectionSnapshot snapshot() {
@@ -38,25 +104,217 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
     }
 
     public FileCollectionSnapshot snapshot(FileCollection sourceFiles) {
-        Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
+        return snapshot(sourceFiles, Collections.<File>emptySet(), Collections.<String, FileSnapshot>emptyMap());
+    }
+
+    public FileCollectionSnapshot snapshot(FileCollection sourceFiles, FileCollectionSnapshot previous) {
+        if (!recordMetadata) {
+            return snapshot(sourceFiles);
+        }
+        return snapshot(sourceFiles, Collections.<File>emptySet(), ((FileCollectionSnapshotImpl) previous).snapshots);
+    }
+
+    public FileCollectionSnapshot snapshot(FileCollection sourceFiles, FileCollection classpath) {
+        if (classpathHasher == hasher) {
+            return snapshot(sourceFiles);
+        }
+        Set<File> classpathElements = new HashSet<File>();
+        for (File file : classpath) {
+            classpathElements.add(file.getAbsoluteFile());
+        }
+        return snapshot(sourceFiles, classpathElements, Collections.<String, FileSnapshot>emptyMap());
+    }
+
+    private FileCollectionSnapshot snapshot(FileCollection sourceFiles, Set<File> classpathElements,
+                                            Map<String, FileSnapshot> previous) {
+        SnapshotBuilder snapshots = new SnapshotBuilder();
+        List<File> regularFiles = new ArrayList<File>();
+        List<FileMetadataSnapshot> regularFileMetadata = new ArrayList<FileMetadataSnapshot>();
+        List<File> classpathFiles = new ArrayList<File>();
         for (File file : sourceFiles.getAsFileTree()) {
             if (file.isFile()) {
-                snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(file)));
+                if (classpathElements.contains(file.getAbsoluteFile())) {
+                    classpathFiles.add(file);
+                } else if (recordMetadata) {
+                    // Read the metadata before hashing, so that a change made while the file is hashed is noticed
+                    FileMetadataSnapshot metadata = new FileMetadataSnapshot(null, file.length(), file.lastModified());
+                    FileSnapshot previousSnapshot = previous.get(file.getAbsolutePath());
+                    if (metadata.hasSameMetadata(previousSnapshot)) {
+                        snapshots.add(file, previousSnapshot);
+                    } else {
+                        regularFiles.add(file);
+                        regularFileMetadata.add(metadata);
+                    }
+                } else {
+                    regularFiles.add(file);
+                }
             } else if (file.isDirectory()) {
-                snapshots.put(file.getAbsolutePath(), new DirSnapshot());
+                snapshots.add(file, new DirSnapshot());
+            } else {
+                snapshots.add(file, new MissingFileSnapshot());
+            }
+        }
+
+        if (recordMetadata) {
+            byte[][] hashes = hash(regularFiles, hasher);
+            for (int i = 0; i < hashes.length; i++) {
+                snapshots.add(regularFiles.get(i), regularFileMetadata.get(i).withHash(hashes[i]));
+            }
+        } else {
+            addHashes(regularFiles, hasher, snapshots);
+        }
+        addHashes(classpathFiles, classpathHasher, snapshots);
+        return snapshots.build();
+    }
+
+    private void addHashes(List<File> files, Hasher hasher, SnapshotBuilder snapshots) {
+        byte[][] hashes = hash(files, hasher);
+        for (int i = 0; i < hashes.length; i++) {
+            snapshots.add(files.get(i), new FileHashSnapshot(hashes[i]));
+        }
+    }
+
+    public void write(FileCollectionSnapshot snapshot, SnapshotEncoder encoder) throws IOException {
+        Map<String, FileSnapshot> snapshots = ((FileCollectionSnapshotImpl) snapshot).snapshots;
+        encoder.writeSmallInt(snapshots.size());
+        for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
+            encoder.writePath(entry.getKey());
+            FileSnapshot fileSnapshot = entry.getValue();
+            if (fileSnapshot instanceof FileMetadataSnapshot) {
+                FileMetadataSnapshot metadataSnapshot = (FileMetadataSnapshot) fileSnapshot;
+                encoder.writeByte(FILE_METADATA);
+                encoder.writeBytes(metadataSnapshot.hash);
+                encoder.writeLong(metadataSnapshot.length);
+                encoder.writeLong(metadataSnapshot.lastModified);
+            } else if (fileSnapshot instanceof FileHashSnapshot) {
+                encoder.writeByte(FILE);
+                encoder.writeBytes(((FileHashSnapshot) fileSnapshot).hash);
+            } else if (fileSnapshot instanceof DirSnapshot) {
+                encoder.writeByte(DIR);
             } else {
-                snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
+                encoder.writeByte(MISSING);
+            }
+        }
+        FileCollectionSnapshotImpl snapshotImpl = (FileCollectionSnapshotImpl) snapshot;
+        encoder.writePath(snapshotImpl.getTopPath());
+        encoder.writeBytes(snapshotImpl.getTopHash());
+    }
+
+    public FileCollectionSnapshot read(SnapshotDecoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            String path = decoder.readPath();
+            int type = decoder.readByte();
+            switch (type) {
+                case FILE:
+                    snapshots.put(path, new FileHashSnapshot(decoder.readBytes()));
+                    break;
+                case DIR:
+                    snapshots.put(path, new DirSnapshot());
+                    break;
+                case MISSING:
+                    snapshots.put(path, new MissingFileSnapshot());
+                    break;
+                case FILE_METADATA:
+                    byte[] hash = decoder.readBytes();
+                    long length = decoder.readLong();
+                    snapshots.put(path, new FileMetadataSnapshot(hash, length, decoder.readLong()));
+                    break;
+                default:
+                    throw new IOException(String.format("Unexpected file snapshot type %d.", type));
             }
         }
-        return new FileCollectionSnapshotImpl(snapshots);
+        String topPath = decoder.readPath();
+        return new FileCollectionSnapshotImpl(snapshots, topPath, decoder.readBytes());
+    }
+
+    private byte[][] hash(List<File> files, Hasher hasher) {
+        int workers = executor == null ? 1 : Math.min(threadCount, files.size() / MIN_FILES_PER_THREAD);
+        FileHashing hashing = new FileHashing(files, hasher);
+        // The calling thread is one of the workers
+        for (int i = 1; i < workers; i++) {
+            executor.execute(hashing);
+        }
+        hashing.run();
+        hashing.awaitCompletion();
+        hashing.rethrowFailure();
+        return hashing.hashes;
+    }
+
+    /**
+     * Hashes a list of files. May be run by several threads at once, each thread taking the next unhashed file from
+     * the list until all files have been taken. Once one of the threads fails, the remaining files are taken without
+     * being hashed.
+     */
+    private static class FileHashing implements Runnable {
+        private final List<File> files;
+        private final Hasher hasher;
+        private final byte[][] hashes;
+        private final AtomicInteger nextFile = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private final CountDownLatch completed;
+
+        private FileHashing(List<File> files, Hasher hasher) {
+            this.files = files;
+            this.hasher = hasher;
+            this.hashes = new byte[files.size()][];
+            this.completed = new CountDownLatch(files.size());
+        }
+
+        public void run() {
+            while (true) {
+                int index = nextFile.getAndIncrement();
+                if (index >= hashes.length) {
+                    return;
+                }
+                try {
+                    if (failure.get() == null) {
+                        hashes[index] = hasher.hash(files.get(index));
+                    }
+                } catch (Throwable throwable) {
+                    failure.compareAndSet(null, throwable);
+                } finally {
+                    completed.countDown();
+                }
+            }
+        }
+
+        /**
+         * Blocks until every file has been taken by a thread and the threads have finished with them.
+         */
+        public void awaitCompletion() {
+            try {
+                completed.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+        }
+
+        public void rethrowFailure() {
+            Throwable throwable = failure.get();
+            if (throwable == null) {
+                return;
+            }
+            if (throwable instanceof Error) {
+                throw (Error) throwable;
+            }
+            throw UncheckedException.asUncheckedException(throwable);
+        }
     }
 
     private interface FileSnapshot extends Serializable {
         boolean isUpToDate(FileSnapshot snapshot);
+
+        /**
+         * Adds the state of this file to the given digest. Two snapshots which are up-to-date with each other add the
+         * same bytes.
+         */
+        void updateDigest(MessageDigest digest);
     }
 
     private static class FileHashSnapshot implements FileSnapshot {
-        private final byte[] hash;
+        final byte[] hash;
 
         public FileHashSnapshot(byte[] hash) {
             this.hash = hash;
@@ -71,31 +329,305 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
             return Arrays.equals(hash, other.hash);
         }
 
+        public void updateDigest(MessageDigest digest) {
+            digest.update((byte) FILE);
+            digest.update((byte) hash.length);
+            digest.update(hash);
+        }
+
         @Override
         public String toString() {
             return new BigInteger(1, hash).toString(16);
         }
     }
 
+    /**
+     * The hash of a file along with its size and modification time when it was hashed. Compares with other file
+     * snapshots by hash only, so touching a file does not make it out of date.
+     */
+    private static class FileMetadataSnapshot extends FileHashSnapshot {
+        private final long length;
+        private final long lastModified;
+
+        public FileMetadataSnapshot(byte[] hash, long length, long lastModified) {
+            super(hash);
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        public FileMetadataSnapshot withHash(byte[] hash) {
+            return new FileMetadataSnapshot(hash, length, lastModified);
+        }
+
+        public boolean hasSameMetadata(FileSnapshot snapshot) {
+            if (!(snapshot instanceof FileMetadataSnapshot)) {
+                return false;
+            }
+            FileMetadataSnapshot other = (FileMetadataSnapshot) snapshot;
+            return length == other.length && lastModified == other.lastModified;
+        }
+    }
+
     private static class DirSnapshot implements FileSnapshot {
         public boolean isUpToDate(FileSnapshot snapshot) {
             return snapshot instanceof DirSnapshot;
         }
+
+        public void updateDigest(MessageDigest digest) {
+            digest.update((byte) DIR);
+        }
     }
 
     private static class MissingFileSnapshot implements FileSnapshot {
         public boolean isUpToDate(FileSnapshot snapshot) {
             return snapshot instanceof MissingFileSnapshot;
         }
+
+        public void updateDigest(MessageDigest digest) {
+            digest.update((byte) MISSING);
+        }
+    }
+
+    /**
+     * The files of a snapshot, arranged by parent directory. Each directory has a hash of the state of its files and of
+     * its child directories, so that two snapshots can be compared by comparing the hashes of their top directories,
+     * and unchanged directories can be skipped when looking for changes.
+     *
+     * <p>The hash of a directory includes the paths of its files and child directories relative to the directory, so it
+     * does not change when the directory is moved. The top directory of a snapshot is the deepest directory which
+     * contains all of its files.</p>
+     */
+    private static class DirectoryNode {
+        private final String path;
+        private final Map<String, FileSnapshot> entries = new TreeMap<String, FileSnapshot>();
+        private final Map<String, DirectoryNode> children = new TreeMap<String, DirectoryNode>();
+        private byte[] hash;
+
+        private DirectoryNode(String path) {
+            this.path = path;
+        }
+
+        public static DirectoryNode build(Map<String, FileSnapshot> snapshots) {
+            Builder builder = new Builder();
+            for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
+                builder.add(entry.getKey(), entry.getValue());
+            }
+            return builder.build();
+        }
+
+        /**
+         * Returns the parent of the given path, including the trailing separator. The parent of a root directory is
+         * the empty string.
+         */
+        private static String parentOf(String path) {
+            int end = path.length();
+            if (end > 0 && isSeparator(path.charAt(end - 1))) {
+                end--;
+            }
+            while (end > 0 && !isSeparator(path.charAt(end - 1))) {
+                end--;
+            }
+            return path.substring(0, end);
+        }
+
+        private static boolean isSeparator(char ch) {
+            return ch == '/' || ch == '\\';
+        }
+
+        /**
+         * Returns the deepest directory which contains all the files of this directory.
+         */
+        public DirectoryNode getTop() {
+            DirectoryNode node = this;
+            while (node.entries.isEmpty() && node.children.size() == 1) {
+                node = node.children.values().iterator().next();
+            }
+            return node;
+        }
+
+        private void calculateHash(MessageDigest digest) {
+            for (DirectoryNode child : children.values()) {
+                child.calculateHash(digest);
+            }
+            for (Map.Entry<String, FileSnapshot> entry : entries.entrySet()) {
+                updateDigest(digest, entry.getKey());
+                entry.getValue().updateDigest(digest);
+            }
+            for (Map.Entry<String, DirectoryNode> child : children.entrySet()) {
+                updateDigest(digest, child.getKey());
+                digest.update(child.getValue().hash);
+            }
+            hash = digest.digest();
+        }
+
+        private void updateDigest(MessageDigest digest, String childPath) {
+            try {
+                digest.update(childPath.substring(path.length()).getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+            digest.update((byte) 0);
+        }
+
+        /**
+         * Notifies the listener of the differences between this directory and the given old directory, skipping any
+         * directories which have not changed.
+         */
+        public void diff(DirectoryNode old, ChangeListener<Map.Entry<String, FileSnapshot>> listener) {
+            if (old == null) {
+                added(listener);
+                return;
+            }
+            if (Arrays.equals(hash, old.hash)) {
+                return;
+            }
+            for (Map.Entry<String, FileSnapshot> entry : entries.entrySet()) {
+                FileSnapshot oldSnapshot = old.entries.get(entry.getKey());
+                if (oldSnapshot == null) {
+                    listener.added(entry);
+                } else if (!entry.getValue().isUpToDate(oldSnapshot)) {
+                    listener.changed(entry);
+                }
+            }
+            for (Map.Entry<String, FileSnapshot> oldEntry : old.entries.entrySet()) {
+                if (!entries.containsKey(oldEntry.getKey())) {
+                    listener.removed(oldEntry);
+                }
+            }
+            for (Map.Entry<String, DirectoryNode> child : children.entrySet()) {
+                child.getValue().diff(old.children.get(child.getKey()), listener);
+            }
+            for (Map.Entry<String, DirectoryNode> oldChild : old.children.entrySet()) {
+                if (!children.containsKey(oldChild.getKey())) {
+                    oldChild.getValue().removed(listener);
+                }
+            }
+        }
+
+        private void added(ChangeListener<Map.Entry<String, FileSnapshot>> listener) {
+            for (Map.Entry<String, FileSnapshot> entry : entries.entrySet()) {
+                listener.added(entry);
+            }
+            for (DirectoryNode child : children.values()) {
+                child.added(listener);
+            }
+        }
+
+        private void removed(ChangeListener<Map.Entry<String, FileSnapshot>> listener) {
+            for (Map.Entry<String, FileSnapshot> entry : entries.entrySet()) {
+                listener.removed(entry);
+            }
+            for (DirectoryNode child : children.values()) {
+                child.removed(listener);
+            }
+        }
+
+        /**
+         * Arranges the files of a snapshot by parent directory as they are added, then calculates the hashes of the
+         * directories.
+         */
+        private static class Builder {
+            private final Map<String, DirectoryNode> nodes = new HashMap<String, DirectoryNode>();
+            private final DirectoryNode root = new DirectoryNode("");
+
+            private Builder() {
+                nodes.put("", root);
+            }
+
+            public void add(String path, FileSnapshot snapshot) {
+                getNode(parentOf(path)).entries.put(path, snapshot);
+            }
+
+            private DirectoryNode getNode(String path) {
+                DirectoryNode node = nodes.get(path);
+                if (node == null) {
+                    node = new DirectoryNode(path);
+                    nodes.put(path, node);
+                    getNode(parentOf(path)).children.put(path, node);
+                }
+                return node;
+            }
+
+            public DirectoryNode build() {
+                MessageDigest digest;
+                try {
+                    digest = MessageDigest.getInstance("MD5");
+                } catch (NoSuchAlgorithmException e) {
+                    throw UncheckedException.asUncheckedException(e);
+                }
+                root.calculateHash(digest);
+                return root;
+            }
+        }
+    }
+
+    /**
+     * Collects the files of a snapshot while the file collection is traversed and hashed.
+     */
+    private static class SnapshotBuilder {
+        private final Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
+        private final DirectoryNode.Builder tree = new DirectoryNode.Builder();
+
+        public void add(File file, FileSnapshot snapshot) {
+            String path = file.getAbsolutePath();
+            snapshots.put(path, snapshot);
+            tree.add(path, snapshot);
+        }
+
+        public FileCollectionSnapshotImpl build() {
+            return new FileCollectionSnapshotImpl(snapshots, tree.build());
+        }
     }
 
     private static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
         private final Map<String, FileSnapshot> snapshots;
+        private String topPath;
+        private byte[] topHash;
+        private transient DirectoryNode root;
 
         public FileCollectionSnapshotImpl(Map<String, FileSnapshot> snapshots) {
             this.snapshots = snapshots;
         }
 
+        public FileCollectionSnapshotImpl(Map<String, FileSnapshot> snapshots, DirectoryNode root) {
+            this.snapshots = snapshots;
+            setRoot(root);
+        }
+
+        public FileCollectionSnapshotImpl(Map<String, FileSnapshot> snapshots, String topPath, byte[] topHash) {
+            this.snapshots = snapshots;
+            this.topPath = topPath;
+            this.topHash = topHash;
+        }
+
+        private void setRoot(DirectoryNode root) {
+            this.root = root;
+            DirectoryNode top = root.getTop();
+            topPath = top.path;
+            topHash = top.hash;
+        }
+
+        private synchronized DirectoryNode getRoot() {
+            if (root == null) {
+                setRoot(DirectoryNode.build(snapshots));
+            }
+            return root;
+        }
+
+        public synchronized String getTopPath() {
+            if (topPath == null) {
+                getRoot();
+            }
+            return topPath;
+        }
+
+        public synchronized byte[] getTopHash() {
+            if (topHash == null) {
+                getRoot();
+            }
+            return topHash;
+        }
+
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
             for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
@@ -108,7 +640,7 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
 
         public void changesSince(FileCollectionSnapshot oldSnapshot, final ChangeListener<File> listener) {
             FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            diff(snapshots, other.snapshots, new ChangeListener<Map.Entry<String, FileSnapshot>>() {
+            diff(other, new ChangeListener<Map.Entry<String, FileSnapshot>>() {
                 public void added(Map.Entry<String, FileSnapshot> element) {
                     listener.added(new File(element.getKey()));
                 }
@@ -123,20 +655,13 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
             });
         }
 
-        private void diff(Map<String, FileSnapshot> snapshots, Map<String, FileSnapshot> oldSnapshots,
-                          ChangeListener<Map.Entry<String, FileSnapshot>> listener) {
-            Map<String, FileSnapshot> otherSnapshots = new HashMap<String, FileSnapshot>(oldSnapshots);
-            for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
-                FileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
-                if (otherFile == null) {
-                    listener.added(entry);
-                } else if (!entry.getValue().isUpToDate(otherFile)) {
-                    listener.changed(entry);
-                }
-            }
-            for (Map.Entry<String, FileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
+        private void diff(FileCollectionSnapshotImpl oldSnapshot, ChangeListener<Map.Entry<String, FileSnapshot>> listener) {
+            // When nothing has changed, only the top directories need to be compared
+            if (getTopPath().equals(oldSnapshot.getTopPath())
+                    && Arrays.equals(getTopHash(), oldSnapshot.getTopHash())) {
+                return;
             }
+            getRoot().diff(oldSnapshot.getRoot(), listener);
         }
 
         public Diff changesSince(final FileCollectionSnapshot oldSnapshot) {
@@ -149,7 +674,14 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
                 public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
                     FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
                     final Map<String, FileSnapshot> newSnapshots = new HashMap<String, FileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, FileSnapshot>(listener, newSnapshots));
+                    diff(other, new MapMergeChangeListener<String, FileSnapshot>(listener, newSnapshots));
+                    // Keep the latest metadata of files whose content has not changed, so they are not hashed again
+                    for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
+                        if (entry.getValue() instanceof FileMetadataSnapshot
+                                && newSnapshots.containsKey(entry.getKey())) {
+                            newSnapshots.put(entry.getKey(), entry.getValue());
+                        }
+                    }
                     return new FileCollectionSnapshotImpl(newSnapshots);
                 }
             };
@@ -22,13 +22,14 @@ import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.file.SimpleFileCollection;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.TaskInputChanges;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.DiffUtil;
 
-import java.io.File;
-import java.io.Serializable;
+import java.io.*;
 import java.util.*;
 
 import static java.util.Collections.*;
@@ -38,13 +39,20 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
     private static final Logger LOGGER = Logging.getLogger(DefaultTaskArtifactStateRepository.class);
     private final CacheRepository repository;
     private final FileSnapshotter inputFilesSnapshotter;
-    private final FileSnapshotter outputFilesSnapshotter;
-    private PersistentIndexedCache<String, TaskHistory> taskHistoryCache;
+    private final OutputFilesSnapshotter outputFilesSnapshotter;
+    private final InputFilesSnapshotPrefetcher prefetcher;
+    private volatile PersistentIndexedCache<String, TaskHistory> taskHistoryCache;
 
-    public DefaultTaskArtifactStateRepository(CacheRepository repository, FileSnapshotter inputFilesSnapshotter, FileSnapshotter outputFilesSnapshotter) {
+    public DefaultTaskArtifactStateRepository(CacheRepository repository, FileSnapshotter inputFilesSnapshotter, OutputFilesSnapshotter outputFilesSnapshotter) {
+        this(repository, inputFilesSnapshotter, outputFilesSnapshotter, null);
+    }
+
+    public DefaultTaskArtifactStateRepository(CacheRepository repository, FileSnapshotter inputFilesSnapshotter,
+                                              OutputFilesSnapshotter outputFilesSnapshotter, InputFilesSnapshotPrefetcher prefetcher) {
         this.repository = repository;
         this.inputFilesSnapshotter = inputFilesSnapshotter;
         this.outputFilesSnapshotter = outputFilesSnapshotter;
+        this.prefetcher = prefetcher;
     }
 
     public TaskArtifactState getStateFor(final TaskInternal task) {
@@ -55,8 +63,13 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         return new TaskArtifactStateImpl(task);
     }
 
-    private void loadTasks(TaskInternal task) {
-        taskHistoryCache = repository.cache("taskArtifacts").forObject(task.getProject().getGradle()).open().openIndexedCache();
+    private synchronized void loadTasks(TaskInternal task) {
+        if (taskHistoryCache != null) {
+            return;
+        }
+        taskHistoryCache = repository.cache("taskArtifacts").forObject(task.getProject().getGradle()).withProperties(
+                singletonMap("format", TaskHistorySerializer.FORMAT)).open().openIndexedCache(
+                new TaskHistorySerializer(task.getProject().getRootDir(), inputFilesSnapshotter, outputFilesSnapshotter));
     }
 
     private static Set<String> outputFiles(TaskInternal task) {
@@ -73,6 +86,8 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         boolean snapshot();
 
         FileCollection getPreviousOutputFiles();
+
+        TaskInputChanges getInputChanges();
     }
 
     private static class TaskHistory implements Serializable {
@@ -88,6 +103,87 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         }
     }
 
+    /**
+     * Writes task history in a compact binary format. The input and output file snapshots are written by the
+     * snapshotters which created them. The input properties can contain arbitrary values, so are written using Java
+     * serialization.
+     *
+     * <p>Files inside the root project directory are written relative to it, so the history remains valid when the
+     * build is moved, or when the history is copied to another checkout of the build.</p>
+     */
+    private static class TaskHistorySerializer implements Serializer<TaskHistory> {
+        private static final String FORMAT = "5";
+        private final File rootDir;
+        private final FileSnapshotter inputFilesSnapshotter;
+        private final FileSnapshotter outputFilesSnapshotter;
+
+        private TaskHistorySerializer(File rootDir, FileSnapshotter inputFilesSnapshotter,
+                                      FileSnapshotter outputFilesSnapshotter) {
+            this.rootDir = rootDir;
+            this.inputFilesSnapshotter = inputFilesSnapshotter;
+            this.outputFilesSnapshotter = outputFilesSnapshotter;
+        }
+
+        public TaskHistory read(InputStream instr) throws Exception {
+            SnapshotDecoder decoder = new SnapshotDecoder(instr, rootDir);
+            decoder.readRootDir();
+            TaskHistory history = new TaskHistory();
+            int count = decoder.readSmallInt();
+            for (int i = 0; i < count; i++) {
+                String taskClass = decoder.readString();
+                int outputFileCount = decoder.readSmallInt();
+                Set<String> outputFiles = new HashSet<String>();
+                for (int j = 0; j < outputFileCount; j++) {
+                    outputFiles.add(decoder.readPath());
+                }
+                Map<String, Object> inputProperties = readProperties(decoder);
+                FileCollectionSnapshot inputFilesSnapshot = inputFilesSnapshotter.read(decoder);
+                FileCollectionSnapshot outputFilesSnapshot = outputFilesSnapshotter.read(decoder);
+                history.configurations.add(new TaskConfiguration(taskClass, outputFiles, inputProperties,
+                        inputFilesSnapshot, outputFilesSnapshot));
+            }
+            return history;
+        }
+
+        public void write(OutputStream outstr, TaskHistory value) throws Exception {
+            SnapshotEncoder encoder = new SnapshotEncoder(outstr, rootDir);
+            encoder.writeRootDir();
+            encoder.writeSmallInt(value.configurations.size());
+            for (TaskConfiguration configuration : value.configurations) {
+                encoder.writeString(configuration.taskClass);
+                encoder.writeSmallInt(configuration.outputFiles.size());
+                for (String outputFile : configuration.outputFiles) {
+                    encoder.writePath(outputFile);
+                }
+                writeProperties(configuration.inputProperties, encoder);
+                inputFilesSnapshotter.write(configuration.inputFilesSnapshot, encoder);
+                outputFilesSnapshotter.write(configuration.outputFilesSnapshot, encoder);
+            }
+            encoder.flush();
+        }
+
+        private Map<String, Object> readProperties(SnapshotDecoder decoder) throws Exception {
+            byte[] serialized = decoder.readBytes();
+            if (serialized.length == 0) {
+                return new HashMap<String, Object>();
+            }
+            ObjectInputStream instr = new ObjectInputStream(new ByteArrayInputStream(serialized));
+            return (Map<String, Object>) instr.readObject();
+        }
+
+        private void writeProperties(Map<String, Object> properties, SnapshotEncoder encoder) throws IOException {
+            if (properties.isEmpty()) {
+                encoder.writeBytes(new byte[0]);
+                return;
+            }
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            ObjectOutputStream outstr = new ObjectOutputStream(serialized);
+            outstr.writeObject(properties);
+            outstr.close();
+            encoder.writeBytes(serialized.toByteArray());
+        }
+    }
+
     private static class NoDeclaredArtifactsExecution implements TaskExecution {
         private final TaskInternal task;
 
@@ -110,6 +206,10 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         public FileCollection getPreviousOutputFiles() {
             return new SimpleFileCollection();
         }
+
+        public TaskInputChanges getInputChanges() {
+            return DefaultTaskInputChanges.allOutOfDate(task);
+        }
     }
 
     private static class HistoricExecution implements TaskExecution {
@@ -117,18 +217,21 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         private final TaskInternal task;
         private final TaskConfiguration lastExecution;
         private final FileSnapshotter inputFilesSnapshotter;
-        private final FileSnapshotter outputFilesSnapshotter;
+        private final OutputFilesSnapshotter outputFilesSnapshotter;
+        private final InputFilesSnapshotPrefetcher prefetcher;
         private boolean upToDate;
         private TaskConfiguration thisExecution;
         private FileCollectionSnapshot outputFilesBefore;
 
         public HistoricExecution(TaskHistory history, TaskInternal task, TaskConfiguration lastExecution,
-                                 FileSnapshotter inputFilesSnapshotter, FileSnapshotter outputFilesSnapshotter) {
+                                 FileSnapshotter inputFilesSnapshotter, OutputFilesSnapshotter outputFilesSnapshotter,
+                                 InputFilesSnapshotPrefetcher prefetcher) {
             this.history = history;
             this.task = task;
             this.lastExecution = lastExecution;
             this.inputFilesSnapshotter = inputFilesSnapshotter;
             this.outputFilesSnapshotter = outputFilesSnapshotter;
+            this.prefetcher = prefetcher;
         }
 
         private void calcCurrentState() {
@@ -136,10 +239,19 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
                 return;
             }
 
-            // Calculate current state - note this is potentially expensive
-            FileCollectionSnapshot inputFilesSnapshot = inputFilesSnapshotter.snapshot(task.getInputs().getFiles());
+            // Calculate current state - note this is potentially expensive, unless the inputs have been prefetched
+            FileCollectionSnapshot inputFilesSnapshot = prefetcher == null ? null : prefetcher.takeSnapshot(task);
+            if (inputFilesSnapshot == null) {
+                inputFilesSnapshot = inputFilesSnapshotter.snapshot(task.getInputs().getFiles(),
+                        task.getInputs().getClasspathFiles());
+            }
             thisExecution = new TaskConfiguration(task, inputFilesSnapshot);
-            outputFilesBefore = outputFilesSnapshotter.snapshot(task.getOutputs().getFiles());
+            if (lastExecution != null) {
+                outputFilesSnapshotter.adoptIds(lastExecution.outputFilesSnapshot);
+            }
+            FileCollectionSnapshot lastExecutionOutputFiles = lastExecution == null ? outputFilesSnapshotter.snapshot()
+                    : lastExecution.outputFilesSnapshot;
+            outputFilesBefore = outputFilesSnapshotter.snapshot(task.getOutputs().getFiles(), lastExecutionOutputFiles);
         }
 
         public FileCollection getPreviousOutputFiles() {
@@ -179,6 +291,44 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             return emptyList();
         }
 
+        public TaskInputChanges getInputChanges() {
+            calcCurrentState();
+
+            if (lastExecution == null || !task.getClass().getName().equals(lastExecution.taskClass)) {
+                return DefaultTaskInputChanges.allOutOfDate(task);
+            }
+
+            // Only the input files may have changed for the changes to be incremental
+            List<String> messages = new ArrayList<String>();
+            checkInputProperties(messages);
+            checkOutputs(messages);
+            if (!messages.isEmpty()) {
+                return DefaultTaskInputChanges.allOutOfDate(task);
+            }
+
+            final List<File> outOfDateFiles = new ArrayList<File>();
+            final List<File> removedFiles = new ArrayList<File>();
+            thisExecution.inputFilesSnapshot.changesSince(lastExecution.inputFilesSnapshot, new ChangeListener<File>() {
+                public void added(File file) {
+                    changed(file);
+                }
+
+                public void removed(File file) {
+                    removedFiles.add(file);
+                }
+
+                public void changed(File file) {
+                    if (file.isFile()) {
+                        outOfDateFiles.add(file);
+                    } else if (!file.exists()) {
+                        removedFiles.add(file);
+                    }
+                }
+            });
+            return new DefaultTaskInputChanges(true, new SimpleFileCollection(outOfDateFiles), new SimpleFileCollection(
+                    removedFiles));
+        }
+
         private void checkOutputs(final Collection<String> messages) {
             outputFilesBefore.changesSince(lastExecution.outputFilesSnapshot, new ChangeListener<File>() {
                 public void added(File element) {
@@ -251,7 +401,8 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
                             // Update any files which were change since the task was last executed
                         }
                     });
-            FileCollectionSnapshot outputFilesAfter = outputFilesSnapshotter.snapshot(task.getOutputs().getFiles());
+            FileCollectionSnapshot outputFilesAfter = outputFilesSnapshotter.snapshot(task.getOutputs().getFiles(),
+                    outputFilesBefore);
             thisExecution.outputFilesSnapshot = outputFilesAfter.changesSince(outputFilesBefore).applyTo(
                     newOutputFiles);
             history.addConfiguration(thisExecution);
@@ -272,6 +423,16 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             this.inputProperties = new HashMap<String, Object>(task.getInputs().getProperties());
             this.inputFilesSnapshot = inputFilesSnapshot;
         }
+
+        private TaskConfiguration(String taskClass, Set<String> outputFiles, Map<String, Object> inputProperties,
+                                  FileCollectionSnapshot inputFilesSnapshot,
+                                  FileCollectionSnapshot outputFilesSnapshot) {
+            this.taskClass = taskClass;
+            this.outputFiles = outputFiles;
+            this.inputProperties = inputProperties;
+            this.inputFilesSnapshot = inputFilesSnapshot;
+            this.outputFilesSnapshot = outputFilesSnapshot;
+        }
     }
 
     private class TaskArtifactStateImpl implements TaskArtifactState {
@@ -310,6 +471,10 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
             return execution.getPreviousOutputFiles();
         }
 
+        public TaskInputChanges getInputChanges() {
+            return execution.getInputChanges();
+        }
+
         private TaskHistory getHistory() {
             TaskHistory history = taskHistoryCache.get(task.getPath());
             return history == null ? new TaskHistory() : history;
@@ -341,9 +506,9 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
                 }
             }
             if (bestMatch == null) {
-                return new HistoricExecution(history, task, null, inputFilesSnapshotter, outputFilesSnapshotter);
+                return new HistoricExecution(history, task, null, inputFilesSnapshotter, outputFilesSnapshotter, prefetcher);
             }
-            return new HistoricExecution(history, task, bestMatch, inputFilesSnapshotter, outputFilesSnapshotter);
+            return new HistoricExecution(history, task, bestMatch, inputFilesSnapshotter, outputFilesSnapshotter, prefetcher);
         }
 
         public void update() {
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.file.SimpleFileCollection;
+import org.gradle.api.tasks.TaskInputChanges;
+
+public class DefaultTaskInputChanges implements TaskInputChanges {
+    private final boolean incremental;
+    private final FileCollection outOfDateFiles;
+    private final FileCollection removedFiles;
+
+    public DefaultTaskInputChanges(boolean incremental, FileCollection outOfDateFiles, FileCollection removedFiles) {
+        this.incremental = incremental;
+        this.outOfDateFiles = outOfDateFiles;
+        this.removedFiles = removedFiles;
+    }
+
+    /**
+     * Returns the non-incremental changes for the given task, where all input files are out-of-date.
+     */
+    public static TaskInputChanges allOutOfDate(TaskInternal task) {
+        return new DefaultTaskInputChanges(false, task.getInputs().getFiles(), new SimpleFileCollection());
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public FileCollection getOutOfDateFiles() {
+        return outOfDateFiles;
+    }
+
+    public FileCollection getRemovedFiles() {
+        return removedFiles;
+    }
+}
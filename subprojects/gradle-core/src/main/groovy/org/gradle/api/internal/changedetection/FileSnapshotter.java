@@ -17,6 +17,8 @@ package org.gradle.api.internal.changedetection;
 
 import org.gradle.api.file.FileCollection;
 
+import java.io.IOException;
+
 public interface FileSnapshotter {
     /**
      * Creates an empty snapshot, which changes can be later merged into.
@@ -32,4 +34,41 @@ public interface FileSnapshotter {
      * @return The snapshot.
      */
     FileCollectionSnapshot snapshot(FileCollection files);
+
+    /**
+     * Creates a snapshot of the contents of the given collection, where some of the files are the elements of a
+     * classpath. The snapshotter may ignore differences in the classpath elements which do not affect the classes
+     * loaded from them.
+     *
+     * @param files The files to snapshot
+     * @param classpath The classpath elements. Only files which are also in {@code files} are snapshotted.
+     * @return The snapshot.
+     */
+    FileCollectionSnapshot snapshot(FileCollection files, FileCollection classpath);
+
+    /**
+     * Creates a snapshot of the contents of the given collection, given a previous snapshot of the same files. The
+     * snapshotter may use the state recorded in the previous snapshot for files which have not changed since.
+     *
+     * @param files The files to snapshot
+     * @param previous A snapshot previously created by this snapshotter.
+     * @return The snapshot.
+     */
+    FileCollectionSnapshot snapshot(FileCollection files, FileCollectionSnapshot previous);
+
+    /**
+     * Writes a snapshot created by this snapshotter.
+     *
+     * @param snapshot The snapshot to write.
+     * @param encoder The encoder to write the snapshot to.
+     */
+    void write(FileCollectionSnapshot snapshot, SnapshotEncoder encoder) throws IOException;
+
+    /**
+     * Reads a snapshot previously written by {@link #write(FileCollectionSnapshot, SnapshotEncoder)}.
+     *
+     * @param decoder The decoder to read the snapshot from.
+     * @return The snapshot.
+     */
+    FileCollectionSnapshot read(SnapshotDecoder decoder) throws IOException;
 }
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.execution.TaskExecutionGraphListener;
+import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.file.SimpleFileCollection;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.tasks.TaskState;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.Stoppable;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Snapshots the input files of the tasks in the task graph in a background thread, ahead of the tasks being executed,
+ * so that hashing the input files overlaps with the execution of earlier tasks.
+ *
+ * <p>Only tasks whose input files are not produced by a task in the graph are snapshotted, and at most a fixed number of
+ * snapshots are held at once. The size and modification time of each input file is recorded before it is hashed. A
+ * prefetched snapshot is only used when the task's input files still have the same sizes and modification times when
+ * the task is executed. Otherwise, it is discarded. A file modified less than {@link
+ * CachingHasher#TIMESTAMP_GRANULARITY} milliseconds before it is snapshotted can change again without a change to its
+ * modification time, so the input files of a task are not prefetched when any of them has been modified recently.</p>
+ *
+ * <p>Resolving the input files of a task can resolve configurations and call build script closures, which are not
+ * thread-safe. So the input files of a task are resolved by the thread which notifies this prefetcher, once the task
+ * is among the next few tasks to prefetch. The background thread is only given the resolved files and directories.</p>
+ */
+public class InputFilesSnapshotPrefetcher extends BuildAdapter implements TaskExecutionGraphListener, TaskExecutionListener, Stoppable {
+    private static final Logger LOGGER = Logging.getLogger(InputFilesSnapshotPrefetcher.class);
+    private static final int DEFAULT_MAX_PREFETCHED_TASKS = 8;
+    private final FileSnapshotter snapshotter;
+    private final ExecutorFactory executorFactory;
+    private final int maxPrefetchedTasks;
+    private final Lock lock = new ReentrantLock();
+    private final Map<Task, PrefetchedSnapshot> snapshots = new HashMap<Task, PrefetchedSnapshot>();
+    private final Set<Task> pendingTasks = new LinkedHashSet<Task>();
+    private final Map<Task, ResolvedInputs> resolvedTasks = new LinkedHashMap<Task, ResolvedInputs>();
+    private volatile Set<String> outputFiles = Collections.emptySet();
+    private StoppableExecutor executor;
+    private boolean running;
+    private int generation;
+    private Task prefetchingTask;
+    private boolean prefetchingTaskStarted;
+
+    public InputFilesSnapshotPrefetcher(FileSnapshotter snapshotter, ExecutorFactory executorFactory) {
+        this(snapshotter, executorFactory, DEFAULT_MAX_PREFETCHED_TASKS);
+    }
+
+    public InputFilesSnapshotPrefetcher(FileSnapshotter snapshotter, ExecutorFactory executorFactory, int maxPrefetchedTasks) {
+        this.snapshotter = snapshotter;
+        this.executorFactory = executorFactory;
+        this.maxPrefetchedTasks = maxPrefetchedTasks;
+    }
+
+    /**
+     * Returns the prefetched snapshot of the input files of the given task, or null if no valid snapshot is available.
+     */
+    public FileCollectionSnapshot takeSnapshot(Task task) {
+        PrefetchedSnapshot snapshot;
+        lock.lock();
+        try {
+            taskStarted(task);
+            snapshot = snapshots.remove(task);
+        } finally {
+            lock.unlock();
+        }
+        resolveAhead();
+
+        if (snapshot == null || !snapshot.isUpToDate(task)) {
+            return null;
+        }
+        return snapshot.snapshot;
+    }
+
+    public void graphPopulated(TaskExecutionGraph graph) {
+        List<Task> tasks = graph.getAllTasks();
+        Set<String> taskOutputFiles = new HashSet<String>();
+        for (Task task : tasks) {
+            for (File file : task.getOutputs().getFiles()) {
+                taskOutputFiles.add(file.getAbsolutePath());
+            }
+        }
+
+        lock.lock();
+        try {
+            generation++;
+            pendingTasks.clear();
+            pendingTasks.addAll(tasks);
+            resolvedTasks.clear();
+            snapshots.clear();
+            outputFiles = taskOutputFiles;
+        } finally {
+            lock.unlock();
+        }
+        resolveAhead();
+    }
+
+    /**
+     * Resolves the input files of the next pending tasks, until there are enough tasks which have been resolved but not
+     * yet taken, and hands them to the background thread. Called by the thread which notifies this prefetcher.
+     */
+    private void resolveAhead() {
+        while (true) {
+            Task task;
+            int taskGeneration;
+            lock.lock();
+            try {
+                int inFlight = resolvedTasks.size() + snapshots.size() + (prefetchingTask == null ? 0 : 1);
+                if (pendingTasks.isEmpty() || inFlight >= maxPrefetchedTasks) {
+                    return;
+                }
+                Iterator<Task> iterator = pendingTasks.iterator();
+                task = iterator.next();
+                iterator.remove();
+                taskGeneration = generation;
+            } finally {
+                lock.unlock();
+            }
+
+            ResolvedInputs inputs = null;
+            try {
+                inputs = resolve(task);
+            } catch (Throwable e) {
+                // Let the task report the failure when it resolves its inputs
+                LOGGER.debug(String.format("Could not resolve the input files of %s.", task), e);
+            }
+            if (inputs == null) {
+                continue;
+            }
+
+            lock.lock();
+            try {
+                if (taskGeneration != generation) {
+                    return;
+                }
+                resolvedTasks.put(task, inputs);
+                if (!running) {
+                    if (executor == null) {
+                        executor = executorFactory.create("Input snapshot prefetcher");
+                    }
+                    running = true;
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            prefetch();
+                        }
+                    });
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public void beforeExecute(Task task) {
+        lock.lock();
+        try {
+            taskStarted(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void taskStarted(Task task) {
+        pendingTasks.remove(task);
+        resolvedTasks.remove(task);
+        if (task == prefetchingTask) {
+            prefetchingTaskStarted = true;
+        }
+    }
+
+    public void afterExecute(Task task, TaskState state) {
+        lock.lock();
+        try {
+            snapshots.remove(task);
+        } finally {
+            lock.unlock();
+        }
+        resolveAhead();
+    }
+
+    @Override
+    public void buildFinished(BuildResult result) {
+        stop();
+    }
+
+    /**
+     * Discards any prefetched snapshots, and waits for the background thread to stop.
+     */
+    public void stop() {
+        StoppableExecutor executor;
+        lock.lock();
+        try {
+            generation++;
+            pendingTasks.clear();
+            resolvedTasks.clear();
+            snapshots.clear();
+            executor = this.executor;
+            this.executor = null;
+        } finally {
+            lock.unlock();
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    private void prefetch() {
+        while (true) {
+            Task task;
+            ResolvedInputs inputs;
+            int taskGeneration;
+            lock.lock();
+            try {
+                if (resolvedTasks.isEmpty()) {
+                    running = false;
+                    return;
+                }
+                Iterator<Map.Entry<Task, ResolvedInputs>> iterator = resolvedTasks.entrySet().iterator();
+                Map.Entry<Task, ResolvedInputs> entry = iterator.next();
+                iterator.remove();
+                task = entry.getKey();
+                inputs = entry.getValue();
+                taskGeneration = generation;
+                prefetchingTask = task;
+                prefetchingTaskStarted = false;
+            } finally {
+                lock.unlock();
+            }
+
+            PrefetchedSnapshot snapshot = null;
+            try {
+                snapshot = snapshot(inputs);
+            } catch (Throwable e) {
+                // The inputs of the task may be changing, so ignore the failure and let the task snapshot its inputs
+                LOGGER.debug(String.format("Could not prefetch the input files of %s.", task), e);
+            }
+
+            lock.lock();
+            try {
+                // Discard the snapshot if the task has started or the graph has been replaced in the meantime
+                if (snapshot != null && !prefetchingTaskStarted && taskGeneration == generation) {
+                    snapshots.put(task, snapshot);
+                }
+                prefetchingTask = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Resolves the input files of the given task to files and directories. Returns null if the task has no inputs, or
+     * one of its input files is produced by a task in the graph.
+     */
+    private ResolvedInputs resolve(Task task) {
+        if (!task.getInputs().getHasInputs()) {
+            return null;
+        }
+        Set<File> files = task.getInputs().getFiles().getFiles();
+        for (File file : files) {
+            if (isOutputFile(file)) {
+                return null;
+            }
+        }
+        return new ResolvedInputs(files, task.getInputs().getClasspathFiles().getFiles());
+    }
+
+    /**
+     * Snapshots the given resolved input files. Called by the background thread, so only visits the file system. Returns
+     * null if one of the input files is produced by a task in the graph or has been modified recently.
+     */
+    private PrefetchedSnapshot snapshot(ResolvedInputs inputs) {
+        Map<String, FileState> states = new HashMap<String, FileState>();
+        FileCollection files = new SimpleFileCollection(inputs.files);
+        long now = System.currentTimeMillis();
+        for (File file : files.getAsFileTree()) {
+            if (isOutputFile(file)) {
+                return null;
+            }
+            FileState state = new FileState(file);
+            if (now - state.lastModified < CachingHasher.TIMESTAMP_GRANULARITY) {
+                return null;
+            }
+            states.put(file.getAbsolutePath(), state);
+        }
+        // Snapshot the resolved files and directories rather than the files visited above, so that the snapshot is the
+        // same as the one the task would take of its input files
+        return new PrefetchedSnapshot(states, snapshotter.snapshot(files, new SimpleFileCollection(
+                inputs.classpathFiles)));
+    }
+
+    private static class ResolvedInputs {
+        private final Set<File> files;
+        private final Set<File> classpathFiles;
+
+        private ResolvedInputs(Set<File> files, Set<File> classpathFiles) {
+            this.files = files;
+            this.classpathFiles = classpathFiles;
+        }
+    }
+
+    private boolean isOutputFile(File file) {
+        Set<String> outputFiles = this.outputFiles;
+        for (File current = file.getAbsoluteFile(); current != null; current = current.getParentFile()) {
+            if (outputFiles.contains(current.getPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class PrefetchedSnapshot {
+        private final Map<String, FileState> states;
+        private final FileCollectionSnapshot snapshot;
+
+        private PrefetchedSnapshot(Map<String, FileState> states, FileCollectionSnapshot snapshot) {
+            this.states = states;
+            this.snapshot = snapshot;
+        }
+
+        public boolean isUpToDate(Task task) {
+            int count = 0;
+            for (File file : task.getInputs().getFiles().getAsFileTree()) {
+                FileState state = states.get(file.getAbsolutePath());
+                if (state == null || !state.equals(new FileState(file))) {
+                    return false;
+                }
+                count++;
+            }
+            return count == states.size();
+        }
+    }
+
+    private static class FileState {
+        private final long length;
+        private final long lastModified;
+
+        private FileState(File file) {
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            FileState other = (FileState) obj;
+            return length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (length ^ lastModified);
+        }
+    }
+}
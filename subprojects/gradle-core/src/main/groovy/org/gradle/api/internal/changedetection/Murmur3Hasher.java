@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A {@link Hasher} which uses the x64 128-bit variant of MurmurHash3, with a seed of 0. The hash is returned as the
+ * two 64-bit halves of the hash, each in little-endian byte order. This is the same byte order as other common
+ * implementations.
+ *
+ * <p>Each thread reuses a single read buffer, so hashing a file does not allocate anything apart from the input stream
+ * and the result.</p>
+ */
+public class Murmur3Hasher implements Hasher {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private final ThreadLocal<byte[]> buffers;
+
+    public Murmur3Hasher() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    Murmur3Hasher(final int bufferSize) {
+        if (bufferSize < 16) {
+            throw new IllegalArgumentException("Buffer size must be at least 16 bytes.");
+        }
+        buffers = new ThreadLocal<byte[]>() {
+            @Override
+            protected byte[] initialValue() {
+                return new byte[bufferSize];
+            }
+        };
+    }
+
+    public byte[] hash(File file) {
+        try {
+            InputStream instr = new FileInputStream(file);
+            try {
+                return hash(instr);
+            } finally {
+                instr.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    byte[] hash(InputStream instr) throws IOException {
+        byte[] buffer = buffers.get();
+        long h1 = 0;
+        long h2 = 0;
+        long length = 0;
+        int available = 0;
+        while (true) {
+            int nread = instr.read(buffer, available, buffer.length - available);
+            if (nread < 0) {
+                break;
+            }
+            available += nread;
+            length += nread;
+
+            int offset = 0;
+            for (; offset + 16 <= available; offset += 16) {
+                long k1 = getLong(buffer, offset);
+                long k2 = getLong(buffer, offset + 8);
+
+                h1 ^= mixK1(k1);
+                h1 = Long.rotateLeft(h1, 27);
+                h1 += h2;
+                h1 = h1 * 5 + 0x52dce729;
+
+                h2 ^= mixK2(k2);
+                h2 = Long.rotateLeft(h2, 31);
+                h2 += h1;
+                h2 = h2 * 5 + 0x38495ab5;
+            }
+
+            // Move any partial block to the start of the buffer
+            System.arraycopy(buffer, offset, buffer, 0, available - offset);
+            available -= offset;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = available - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (buffer[i] & 0xff);
+        }
+        for (int i = Math.min(available, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (buffer[i] & 0xff);
+        }
+        if (available > 8) {
+            h2 ^= mixK2(k2);
+        }
+        if (available > 0) {
+            h1 ^= mixK1(k1);
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        byte[] hash = new byte[16];
+        putLong(hash, 0, h1);
+        putLong(hash, 8, h2);
+        return hash;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long getLong(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xffL)
+                | (buffer[offset + 1] & 0xffL) << 8
+                | (buffer[offset + 2] & 0xffL) << 16
+                | (buffer[offset + 3] & 0xffL) << 24
+                | (buffer[offset + 4] & 0xffL) << 32
+                | (buffer[offset + 5] & 0xffL) << 40
+                | (buffer[offset + 6] & 0xffL) << 48
+                | (buffer[offset + 7] & 0xffL) << 56;
+    }
+
+    private static void putLong(byte[] buffer, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            buffer[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+}
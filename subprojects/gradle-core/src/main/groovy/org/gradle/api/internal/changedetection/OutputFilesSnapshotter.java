@@ -25,6 +25,7 @@ import org.gradle.util.IdGenerator;
 import org.gradle.util.NoOpChangeListener;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,6 +39,14 @@ import java.util.Map;
  * <li>Collect the hash of each output file and each file in each output directory.</li>
  * </ul>
  *
+ * <p>When a previous snapshot is given, the state of the files it recorded is only used when each output file and
+ * directory still has the same unique id, so that an output which has been deleted and created again is snapshotted
+ * from scratch.</p>
+ *
+ * <p>The unique ids are stored by absolute path. When a snapshot which was read after the build has been moved to
+ * another location is used, {@link #adoptIds(FileCollectionSnapshot)} uses the unique ids from the snapshot for any
+ * existing output files which do not yet have an id, so that the outputs which were moved along with the build are not
+ * considered to have been recreated.</p>
  */
 public class OutputFilesSnapshotter implements FileSnapshotter {
     private final FileSnapshotter snapshotter;
@@ -52,10 +61,27 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
     }
 
     public FileCollectionSnapshot snapshot() {
-        return new OutputFilesSnapshot(new HashMap<String, Long>(), snapshotter.snapshot());
+        return new OutputFilesSnapshot(new HashMap<String, Long>(), snapshotter.snapshot(), false);
     }
 
     public FileCollectionSnapshot snapshot(FileCollection files) {
+        return new OutputFilesSnapshot(getIds(files), snapshotter.snapshot(files), false);
+    }
+
+    public FileCollectionSnapshot snapshot(FileCollection files, FileCollectionSnapshot previous) {
+        OutputFilesSnapshot previousSnapshot = (OutputFilesSnapshot) previous;
+        Map<String, Long> snapshotDirIds = getIds(files);
+        for (Map.Entry<String, Long> entry : snapshotDirIds.entrySet()) {
+            Long previousId = previousSnapshot.rootFileIds.get(entry.getKey());
+            if (entry.getValue() != null && previousId != null && !previousId.equals(entry.getValue())) {
+                return new OutputFilesSnapshot(snapshotDirIds, snapshotter.snapshot(files), false);
+            }
+        }
+        return new OutputFilesSnapshot(snapshotDirIds, snapshotter.snapshot(files, previousSnapshot.filesSnapshot),
+                false);
+    }
+
+    private Map<String, Long> getIds(FileCollection files) {
         Map<String, Long> snapshotDirIds = new HashMap<String, Long>();
         for (File file : files) {
             Long dirId;
@@ -71,16 +97,66 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
             }
             snapshotDirIds.put(file.getAbsolutePath(), dirId);
         }
-        return new OutputFilesSnapshot(snapshotDirIds, snapshotter.snapshot(files));
+        return snapshotDirIds;
+    }
+
+    public FileCollectionSnapshot snapshot(FileCollection files, FileCollection classpath) {
+        return snapshot(files);
+    }
+
+    public void write(FileCollectionSnapshot snapshot, SnapshotEncoder encoder) throws IOException {
+        OutputFilesSnapshot outputFilesSnapshot = (OutputFilesSnapshot) snapshot;
+        encoder.writeSmallInt(outputFilesSnapshot.rootFileIds.size());
+        for (Map.Entry<String, Long> entry : outputFilesSnapshot.rootFileIds.entrySet()) {
+            encoder.writePath(entry.getKey());
+            if (entry.getValue() == null) {
+                encoder.writeByte(0);
+            } else {
+                encoder.writeByte(1);
+                encoder.writeLong(entry.getValue());
+            }
+        }
+        snapshotter.write(outputFilesSnapshot.filesSnapshot, encoder);
+    }
+
+    public FileCollectionSnapshot read(SnapshotDecoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        Map<String, Long> rootFileIds = new HashMap<String, Long>();
+        for (int i = 0; i < count; i++) {
+            String path = decoder.readPath();
+            Long dirId = decoder.readByte() == 0 ? null : decoder.readLong();
+            rootFileIds.put(path, dirId);
+        }
+        return new OutputFilesSnapshot(rootFileIds, snapshotter.read(decoder), decoder.isRelocated());
+    }
+
+    /**
+     * Uses the unique ids from the given snapshot for any existing output files which do not yet have an id, when the
+     * snapshot was read after the build has been moved. Should be called before the output files are snapshotted.
+     */
+    public void adoptIds(FileCollectionSnapshot snapshot) {
+        OutputFilesSnapshot outputFilesSnapshot = (OutputFilesSnapshot) snapshot;
+        if (!outputFilesSnapshot.relocated) {
+            return;
+        }
+        for (Map.Entry<String, Long> entry : outputFilesSnapshot.rootFileIds.entrySet()) {
+            String path = entry.getKey();
+            if (entry.getValue() != null && new File(path).exists() && dirIdentiferCache.get(path) == null) {
+                dirIdentiferCache.put(path, entry.getValue());
+            }
+        }
     }
 
     private static class OutputFilesSnapshot implements FileCollectionSnapshot {
         private final Map<String, Long> rootFileIds;
         private final FileCollectionSnapshot filesSnapshot;
+        private final boolean relocated;
 
-        public OutputFilesSnapshot(Map<String, Long> rootFileIds, FileCollectionSnapshot filesSnapshot) {
+        public OutputFilesSnapshot(Map<String, Long> rootFileIds, FileCollectionSnapshot filesSnapshot,
+                                   boolean relocated) {
             this.rootFileIds = rootFileIds;
             this.filesSnapshot = filesSnapshot;
+            this.relocated = relocated;
         }
 
         public FileCollection getFiles() {
@@ -145,7 +221,7 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
             Map<String, Long> dirIds = new HashMap<String, Long>(other.rootFileIds);
             DiffUtil.diff(newFileIds, oldFileIds, new MapMergeChangeListener<String, Long>(
                     new NoOpChangeListener<FileCollectionSnapshot.Merge>(), dirIds));
-            return new OutputFilesSnapshot(newFileIds, filesDiff.applyTo(other.filesSnapshot, listener));
+            return new OutputFilesSnapshot(newFileIds, filesDiff.applyTo(other.filesSnapshot, listener), false);
         }
 
         public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot) {
@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection;
 import org.gradle.StartParameter;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.tasks.TaskInputChanges;
 
 public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStateRepository {
     private final StartParameter startParameter;
@@ -39,6 +40,13 @@ public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStat
                 return state.getOutputFiles();
             }
 
+            public TaskInputChanges getInputChanges() {
+                if (startParameter.isNoOpt() || !task.getOutputs().getUpToDateSpec().isSatisfiedBy(task)) {
+                    return DefaultTaskInputChanges.allOutOfDate(task);
+                }
+                return state.getInputChanges();
+            }
+
             public void update() {
                 state.update();
             }
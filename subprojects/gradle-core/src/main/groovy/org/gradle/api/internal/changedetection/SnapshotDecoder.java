@@ -0,0 +1,110 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads snapshots written by a {@link SnapshotEncoder}.
+ */
+public class SnapshotDecoder {
+    static final int NEW_ABSOLUTE_DIR = 0;
+    static final int NEW_RELATIVE_DIR = 1;
+    static final int FIRST_DIR_INDEX = 2;
+    private final DataInputStream input;
+    private final String rootPrefix;
+    private final List<String> directories = new ArrayList<String>();
+    private boolean relocated;
+
+    public SnapshotDecoder(InputStream input) {
+        this(input, null);
+    }
+
+    /**
+     * Creates a decoder which resolves relative directories against the given root directory.
+     */
+    public SnapshotDecoder(InputStream input, File rootDir) {
+        this.input = new DataInputStream(input);
+        this.rootPrefix = rootDir == null ? "" : rootDir.getAbsolutePath() + File.separator;
+    }
+
+    /**
+     * Reads the location of the root directory when the snapshots were written.
+     */
+    public void readRootDir() throws IOException {
+        relocated = !readString().equals(rootPrefix);
+    }
+
+    /**
+     * Returns true if the root directory has moved since the snapshots were written.
+     */
+    public boolean isRelocated() {
+        return relocated;
+    }
+
+    public int readByte() throws IOException {
+        return input.readUnsignedByte();
+    }
+
+    public long readLong() throws IOException {
+        return input.readLong();
+    }
+
+    public int readSmallInt() throws IOException {
+        return (int) readSmallLong();
+    }
+
+    public long readSmallLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    public byte[] readBytes() throws IOException {
+        byte[] value = new byte[readSmallInt()];
+        input.readFully(value);
+        return value;
+    }
+
+    public String readString() throws IOException {
+        return new String(readBytes(), "UTF-8");
+    }
+
+    public String readPath() throws IOException {
+        int index = readSmallInt();
+        String directory;
+        if (index == NEW_ABSOLUTE_DIR) {
+            directory = readString();
+            directories.add(directory);
+        } else if (index == NEW_RELATIVE_DIR) {
+            directory = rootPrefix + readString();
+            directories.add(directory);
+        } else {
+            directory = directories.get(index - FIRST_DIR_INDEX);
+        }
+        return directory + readString();
+    }
+}
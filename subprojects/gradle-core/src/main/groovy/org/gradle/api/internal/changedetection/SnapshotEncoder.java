@@ -0,0 +1,108 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes snapshots in a compact binary format, to be read using a {@link SnapshotDecoder}.
+ *
+ * <p>Integers are written as variable length integers. File paths are split into a parent directory and a file name.
+ * Each distinct parent directory is written once, the first time it is used, and afterwards is referred to by its index
+ * in a table of directories.</p>
+ *
+ * <p>When created with a root directory, directories inside the root directory are written relative to it, so that the
+ * snapshots can be read back after the root directory has been moved or copied to another location.</p>
+ */
+public class SnapshotEncoder {
+    private final DataOutputStream output;
+    private final String rootPrefix;
+    private final Map<String, Integer> directories = new HashMap<String, Integer>();
+
+    public SnapshotEncoder(OutputStream output) {
+        this(output, null);
+    }
+
+    public SnapshotEncoder(OutputStream output, File rootDir) {
+        this.output = new DataOutputStream(output);
+        this.rootPrefix = rootDir == null ? null : rootDir.getAbsolutePath() + File.separator;
+    }
+
+    /**
+     * Writes the location of the root directory, so that the reader can tell whether the snapshots have been moved.
+     */
+    public void writeRootDir() throws IOException {
+        writeString(rootPrefix == null ? "" : rootPrefix);
+    }
+
+    public void writeByte(int value) throws IOException {
+        output.writeByte(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        output.writeLong(value);
+    }
+
+    public void writeSmallInt(int value) throws IOException {
+        writeSmallLong(value & 0xffffffffL);
+    }
+
+    public void writeSmallLong(long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            output.writeByte((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    public void writeBytes(byte[] value) throws IOException {
+        writeSmallInt(value.length);
+        output.write(value);
+    }
+
+    public void writeString(String value) throws IOException {
+        writeBytes(value.getBytes("UTF-8"));
+    }
+
+    public void writePath(String path) throws IOException {
+        int separator = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        String directory = path.substring(0, separator + 1);
+        Integer index = directories.get(directory);
+        if (index == null) {
+            // 0 and 1 mark a directory which has not been seen before
+            if (rootPrefix != null && directory.startsWith(rootPrefix)) {
+                writeSmallInt(SnapshotDecoder.NEW_RELATIVE_DIR);
+                writeString(directory.substring(rootPrefix.length()));
+            } else {
+                writeSmallInt(SnapshotDecoder.NEW_ABSOLUTE_DIR);
+                writeString(directory);
+            }
+            directories.put(directory, directories.size() + SnapshotDecoder.FIRST_DIR_INDEX);
+        } else {
+            writeSmallInt(index);
+        }
+        writeString(path.substring(separator + 1));
+    }
+
+    public void flush() throws IOException {
+        output.flush();
+    }
+}
@@ -458,7 +458,11 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
         if (!isTrue(path)) {
             throw new InvalidUserDataException("A path must be specified!");
         }
-        return projectRegistry.getProject(absoluteProjectPath(path));
+        ProjectInternal project = projectRegistry.getProject(absoluteProjectPath(path));
+        if (project != null) {
+            gradle.getProjectAccessBroadcaster().beforeAccess(project);
+        }
+        return project;
     }
 
     public Set<Project> getAllprojects() {
@@ -618,7 +622,7 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
             throw new InvalidUserDataException("You must specify a project!");
         }
         DefaultProject projectToEvaluate = (DefaultProject) project(path);
-        if (projectToEvaluate.getState().getExecuting()) {
+        if (projectToEvaluate.getState().isExecutingInCurrentThread()) {
             throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.",
                     projectToEvaluate));
         }
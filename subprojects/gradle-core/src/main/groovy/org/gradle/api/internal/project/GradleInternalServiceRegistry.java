@@ -23,9 +23,13 @@ import org.gradle.api.internal.artifacts.repositories.DefaultInternalRepository;
 import org.gradle.api.internal.artifacts.repositories.InternalRepository;
 import org.gradle.api.internal.plugins.DefaultPluginRegistry;
 import org.gradle.api.internal.plugins.PluginRegistry;
+import org.gradle.cache.CacheRepository;
 import org.gradle.execution.DefaultTaskGraphExecuter;
+import org.gradle.execution.PersistentTaskExecutionTimes;
+import org.gradle.execution.TaskExecutionTimes;
 import org.gradle.execution.TaskGraphExecuter;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 
 /**
  * Contains the services for a given {@link GradleInternal} instance.
@@ -51,7 +55,12 @@ public class GradleInternalServiceRegistry extends DefaultServiceRegistry implem
     }
 
     protected TaskGraphExecuter createTaskGraphExecuter() {
-        return new DefaultTaskGraphExecuter(get(ListenerManager.class));
+        int parallelThreadCount = gradle.getStartParameter().getParallelThreadCount();
+        TaskExecutionTimes executionTimes = parallelThreadCount > 1
+                ? new PersistentTaskExecutionTimes(get(CacheRepository.class))
+                : null;
+        return new DefaultTaskGraphExecuter(get(ListenerManager.class), get(ExecutorFactory.class), executionTimes,
+                parallelThreadCount);
     }
 
     protected PluginRegistry createPluginRegistry() {
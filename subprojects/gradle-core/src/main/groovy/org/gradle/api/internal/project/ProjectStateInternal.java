@@ -20,7 +20,7 @@ import org.gradle.api.ProjectState;
 import org.gradle.util.UncheckedException;
 
 public class ProjectStateInternal implements ProjectState {
-    private boolean executing;
+    private volatile Thread executingThread;
     private boolean executed;
     private Throwable failure;
 
@@ -39,11 +39,18 @@ public class ProjectStateInternal implements ProjectState {
     }
 
     public boolean getExecuting() {
-        return executing;
+        return executingThread != null;
+    }
+
+    /**
+     * Returns true if this project is currently being evaluated by the calling thread.
+     */
+    public boolean isExecutingInCurrentThread() {
+        return executingThread == Thread.currentThread();
     }
 
     public void setExecuting(boolean executing) {
-        this.executing = executing;
+        this.executingThread = executing ? Thread.currentThread() : null;
     }
 
     public Throwable getFailure() {
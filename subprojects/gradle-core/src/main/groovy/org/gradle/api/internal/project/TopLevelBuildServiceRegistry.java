@@ -18,6 +18,7 @@ package org.gradle.api.internal.project;
 
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.gradle.FileHashAlgorithm;
 import org.gradle.StartParameter;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Module;
@@ -41,14 +42,21 @@ import org.gradle.api.internal.file.IdentityFileResolver;
 import org.gradle.api.internal.initialization.DefaultScriptHandlerFactory;
 import org.gradle.api.internal.initialization.ScriptHandlerFactory;
 import org.gradle.api.internal.project.taskfactory.*;
+import org.gradle.api.internal.tasks.CachingTaskExecuter;
 import org.gradle.api.internal.tasks.DefaultTaskExecuter;
 import org.gradle.api.internal.tasks.ExecuteAtMostOnceTaskExecuter;
 import org.gradle.api.internal.tasks.SkipTaskExecuter;
 import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.cache.HttpTaskOutputCache;
+import org.gradle.api.internal.tasks.cache.LayeredTaskOutputCache;
+import org.gradle.api.internal.tasks.cache.LocalTaskOutputCache;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
 import org.gradle.cache.AutoCloseCacheFactory;
 import org.gradle.cache.CacheFactory;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.DefaultCacheRepository;
+import org.gradle.cache.PersistentCache;
 import org.gradle.configuration.*;
 import org.gradle.groovy.scripts.*;
 import org.gradle.initialization.*;
@@ -57,8 +65,10 @@ import org.gradle.logging.LoggingManagerInternal;
 import org.gradle.logging.ProgressLoggerFactory;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.messaging.actor.internal.DefaultActorFactory;
+import org.gradle.messaging.concurrent.CompositeStoppable;
 import org.gradle.messaging.concurrent.DefaultExecutorFactory;
 import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 import org.gradle.messaging.remote.MessagingServer;
 import org.gradle.messaging.remote.internal.TcpMessagingServer;
 import org.gradle.process.internal.DefaultWorkerProcessFactory;
@@ -77,12 +87,26 @@ import java.util.Map;
 public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry implements ServiceRegistryFactory {
     private final StartParameter startParameter;
     private final Map<String, ModuleDescriptor> clientModuleRegistry = new HashMap<String, ModuleDescriptor>();
+    private final CompositeStoppable cacheWriters = new CompositeStoppable();
 
     public TopLevelBuildServiceRegistry(final ServiceRegistry parent, final StartParameter startParameter) {
         super(parent);
         this.startParameter = startParameter;
     }
 
+    /**
+     * Stops the services which hash files and write to the persistent caches before closing the services of this
+     * registry, as the caches are closed along with the {@link CacheFactory}.
+     */
+    @Override
+    public void close() {
+        try {
+            cacheWriters.stop();
+        } finally {
+            super.close();
+        }
+    }
+
     protected PublishArtifactFactory createPublishArtifactFactory() {
         return new DefaultPublishArtifactFactory();
     }
@@ -125,13 +149,34 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
     }
 
     protected TaskExecuter createTaskExecuter() {
+        TaskExecuter executer = new PostExecutionAnalysisTaskExecuter(
+                new DefaultTaskExecuter(
+                        get(ListenerManager.class).getBroadcaster(TaskActionListener.class)));
+        if (startParameter.isBuildCacheEnabled() && !startParameter.isNoOpt()) {
+            executer = new CachingTaskExecuter(
+                    executer,
+                    get(TaskOutputCache.class),
+                    new TaskCacheKeyCalculator(get(CachingHasher.class),
+                            get(ClassLoaderFactory.class).getRootClassLoader()));
+        }
         return new ExecuteAtMostOnceTaskExecuter(
                 new SkipTaskExecuter(
                         new ExecutionShortCircuitTaskExecuter(
-                                new PostExecutionAnalysisTaskExecuter(
-                                        new DefaultTaskExecuter(
-                                                get(ListenerManager.class).getBroadcaster(TaskActionListener.class))),
-                                        get(TaskArtifactStateRepository.class))));
+                                executer,
+                                get(TaskArtifactStateRepository.class))));
+    }
+
+    protected TaskOutputCache createTaskOutputCache() {
+        PersistentCache cache = get(CacheRepository.class).cache("taskOutputs").open();
+        if (!cache.isValid()) {
+            cache.markValid();
+        }
+        TaskOutputCache localCache = new LocalTaskOutputCache(cache.getBaseDir());
+        if (startParameter.getBuildCacheUrl() == null) {
+            return localCache;
+        }
+        return new LayeredTaskOutputCache(localCache, new HttpTaskOutputCache(startParameter.getBuildCacheUrl(),
+                startParameter.getBuildCacheTimeout()));
     }
 
     protected Factory<RepositoryHandler> createRepositoryHandlerFactory() {
@@ -246,19 +291,61 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                                 get(ClassGenerator.class))));
     }
 
+    protected CachingHasher createCachingHasher() {
+        return new CachingHasher(
+                createContentHasher(),
+                startParameter.getFileHashAlgorithm().name(),
+                get(CacheRepository.class));
+    }
+
+    private Hasher createContentHasher() {
+        return startParameter.getFileHashAlgorithm() == FileHashAlgorithm.MURMUR3 ? new Murmur3Hasher()
+                : new DefaultHasher();
+    }
+
     protected TaskArtifactStateRepository createTaskArtifactStateRepository() {
         CacheRepository cacheRepository = get(CacheRepository.class);
+        CachingHasher hasher = get(CachingHasher.class);
+        CachingHasher classpathHasher = new CachingHasher(
+                new ClasspathEntryHasher(hasher),
+                "classpathHashes",
+                startParameter.getFileHashAlgorithm().name(),
+                cacheRepository);
+        int hashingThreadCount = Runtime.getRuntime().availableProcessors();
+        StoppableExecutor hashingExecutor = get(ExecutorFactory.class).create("File hasher", hashingThreadCount);
         FileSnapshotter fileSnapshotter = new DefaultFileSnapshotter(
-                new CachingHasher(
-                        new DefaultHasher(),
-                        cacheRepository));
-
-        FileSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(fileSnapshotter, new RandomLongIdGenerator(), cacheRepository);
+                hasher,
+                classpathHasher,
+                hashingExecutor,
+                hashingThreadCount);
+
+        FileSnapshotter outputFileStateSnapshotter = fileSnapshotter;
+        if (startParameter.isTimestampOutputSnapshots()) {
+            outputFileStateSnapshotter = new DefaultFileSnapshotter(
+                    createContentHasher(),
+                    hashingExecutor,
+                    hashingThreadCount,
+                    true);
+        }
+        OutputFilesSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(outputFileStateSnapshotter, new RandomLongIdGenerator(), cacheRepository);
+        InputFilesSnapshotPrefetcher prefetcher = null;
+        if (startParameter.isPrefetchInputSnapshots()) {
+            prefetcher = new InputFilesSnapshotPrefetcher(fileSnapshotter, get(ExecutorFactory.class));
+            get(ListenerManager.class).addListener(prefetcher);
+            cacheWriters.add(prefetcher);
+        }
+        // Added after the prefetcher, so that hashes are written once the prefetcher and the hashing threads have stopped
+        cacheWriters.add(hashingExecutor);
+        cacheWriters.add(hasher);
+        cacheWriters.add(classpathHasher);
+        get(ListenerManager.class).addListener(hasher);
+        get(ListenerManager.class).addListener(classpathHasher);
         return new ShortCircuitTaskArtifactStateRepository(
                 startParameter,
                 new DefaultTaskArtifactStateRepository(cacheRepository,
                         fileSnapshotter,
-                        outputFilesSnapshotter));
+                        outputFilesSnapshotter,
+                        prefetcher));
     }
 
     protected ScriptCompilerFactory createScriptCompileFactory() {
@@ -325,6 +412,7 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
 
     protected BuildConfigurer createBuildConfigurer() {
         return new DefaultBuildConfigurer(
+                get(ExecutorFactory.class),
                 new ProjectEvaluationConfigurer(),
                 new ProjectDependencies2TaskResolver(),
                 new ImplicitTasksConfigurer());
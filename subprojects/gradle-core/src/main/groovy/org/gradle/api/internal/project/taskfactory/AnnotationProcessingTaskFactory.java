@@ -20,10 +20,13 @@ import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Task;
+import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.DefaultTaskInputChanges;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.TaskInputChanges;
 import org.gradle.util.ReflectionUtil;
 
 import java.lang.annotation.Annotation;
@@ -117,7 +120,9 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
             throw new GradleException(String.format("Cannot use @TaskAction annotation on static method %s.%s().",
                     method.getDeclaringClass().getSimpleName(), method.getName()));
         }
-        if (method.getParameterTypes().length > 0) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (parameterTypes.length > 1 || parameterTypes.length == 1 && !parameterTypes[0].equals(
+                TaskInputChanges.class)) {
             throw new GradleException(String.format(
                     "Cannot use @TaskAction annotation on method %s.%s() as this method takes parameters.",
                     method.getDeclaringClass().getSimpleName(), method.getName()));
@@ -126,11 +131,27 @@ public class AnnotationProcessingTaskFactory implements ITaskFactory {
             return;
         }
         methods.add(method.getName());
-        actions.add(new Action<Task>() {
-            public void execute(Task task) {
-                ReflectionUtil.invoke(task, method.getName(), new Object[0]);
-            }
-        });
+        if (parameterTypes.length == 0) {
+            actions.add(new Action<Task>() {
+                public void execute(Task task) {
+                    ReflectionUtil.invoke(task, method.getName(), new Object[0]);
+                }
+            });
+        } else {
+            actions.add(new Action<Task>() {
+                public void execute(Task task) {
+                    ReflectionUtil.invoke(task, method.getName(), new Object[]{getInputChanges((TaskInternal) task)});
+                }
+            });
+        }
+    }
+
+    private static TaskInputChanges getInputChanges(TaskInternal task) {
+        TaskExecutionHistory history = task.getOutputs().getHistory();
+        if (history == null) {
+            return DefaultTaskInputChanges.allOutOfDate(task);
+        }
+        return history.getInputChanges();
     }
 
     private static boolean isGetter(Method method) {
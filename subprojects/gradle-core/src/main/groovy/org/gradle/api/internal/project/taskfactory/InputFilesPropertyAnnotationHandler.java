@@ -18,6 +18,7 @@ package org.gradle.api.internal.project.taskfactory;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Task;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.SkipWhenEmpty;
 
@@ -41,10 +42,18 @@ public class InputFilesPropertyAnnotationHandler implements PropertyAnnotationHa
         if (context.getTarget().getAnnotation(SkipWhenEmpty.class) != null) {
             context.setSkipAction(skipEmptyFileCollection);
         }
-        context.setConfigureAction(new UpdateAction() {
-            public void update(Task task, Callable<Object> futureValue) {
-                task.getInputs().files(futureValue);
-            }
-        });
+        if (context.getTarget().getAnnotation(Classpath.class) != null) {
+            context.setConfigureAction(new UpdateAction() {
+                public void update(Task task, Callable<Object> futureValue) {
+                    task.getInputs().classpath(futureValue);
+                }
+            });
+        } else {
+            context.setConfigureAction(new UpdateAction() {
+                public void update(Task task, Callable<Object> futureValue) {
+                    task.getInputs().files(futureValue);
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
+import org.gradle.api.internal.tasks.cache.TaskOutputPacker;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+
+/**
+ * A {@link TaskExecuter} which restores the outputs of a task from a {@link TaskOutputCache} instead of executing the
+ * task, when the cache contains outputs produced from the same inputs. When the task is executed, its outputs are
+ * stored in the cache. Failures to use the cache are logged, and do not fail the task.
+ */
+public class CachingTaskExecuter implements TaskExecuter {
+    private static final Logger LOGGER = Logging.getLogger(CachingTaskExecuter.class);
+    private final TaskExecuter executer;
+    private final TaskOutputCache cache;
+    private final TaskCacheKeyCalculator keyCalculator;
+    private final TaskOutputPacker packer;
+
+    public CachingTaskExecuter(TaskExecuter executer, TaskOutputCache cache, TaskCacheKeyCalculator keyCalculator) {
+        this(executer, cache, keyCalculator, new TaskOutputPacker());
+    }
+
+    CachingTaskExecuter(TaskExecuter executer, TaskOutputCache cache, TaskCacheKeyCalculator keyCalculator,
+                        TaskOutputPacker packer) {
+        this.executer = executer;
+        this.cache = cache;
+        this.keyCalculator = keyCalculator;
+        this.packer = packer;
+    }
+
+    public void execute(final TaskInternal task, TaskStateInternal state) {
+        String key = isCacheable(task) ? keyCalculator.calculate(task) : null;
+        if (key == null) {
+            executer.execute(task, state);
+            return;
+        }
+
+        try {
+            boolean found = cache.load(key, new Action<File>() {
+                public void execute(File archive) {
+                    packer.unpack(task, archive);
+                }
+            });
+            if (found) {
+                LOGGER.info("Restored the outputs of {} from the task output cache.", task);
+                state.skipped("FROM-CACHE");
+                return;
+            }
+        } catch (Exception e) {
+            LOGGER.warn(String.format("Could not load the outputs of %s from the task output cache.", task), e);
+        }
+
+        executer.execute(task, state);
+        if (state.getFailure() == null) {
+            store(task, key);
+        }
+    }
+
+    private boolean isCacheable(TaskInternal task) {
+        return task.getInputs().getHasInputs() && !task.getOutputs().getFiles().isEmpty()
+                && task.getOutputs().getUpToDateSpec().isSatisfiedBy(task);
+    }
+
+    private void store(TaskInternal task, String key) {
+        try {
+            File archive = File.createTempFile("task-outputs", ".bin");
+            try {
+                packer.pack(task, archive);
+                cache.store(key, archive);
+            } finally {
+                archive.delete();
+            }
+        } catch (Exception e) {
+            LOGGER.warn(String.format("Could not store the outputs of %s in the task output cache.", task), e);
+        }
+    }
+}
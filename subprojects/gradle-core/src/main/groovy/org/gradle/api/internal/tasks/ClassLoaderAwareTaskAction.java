@@ -0,0 +1,34 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+
+/**
+ * A task {@link Action} which delegates to some other implementation, such as a closure.
+ */
+public interface ClassLoaderAwareTaskAction extends Action<Task> {
+    /**
+     * Returns the class loader which loaded the implementation of this action.
+     */
+    ClassLoader getClassLoader();
+
+    /**
+     * Returns the name of the class which implements this action.
+     */
+    String getImplementationClassName();
+}
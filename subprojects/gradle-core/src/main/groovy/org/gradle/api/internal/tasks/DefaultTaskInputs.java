@@ -28,12 +28,14 @@ import java.util.concurrent.Callable;
 
 public class DefaultTaskInputs implements TaskInputs {
     private final PathResolvingFileCollection inputFiles;
+    private final PathResolvingFileCollection classpathFiles;
     private final FileResolver resolver;
     private final Map<String, Object> properties = new HashMap<String, Object>();
 
     public DefaultTaskInputs(FileResolver resolver) {
         this.resolver = resolver;
         inputFiles = new PathResolvingFileCollection("task input files", resolver, null);
+        classpathFiles = new PathResolvingFileCollection("task classpath input files", resolver, null);
     }
 
     public boolean getHasInputs() {
@@ -54,6 +56,16 @@ public class DefaultTaskInputs implements TaskInputs {
         return this;
     }
 
+    public FileCollection getClasspathFiles() {
+        return classpathFiles;
+    }
+
+    public TaskInputs classpath(Object... paths) {
+        inputFiles.from(paths);
+        classpathFiles.from(paths);
+        return this;
+    }
+
     public TaskInputs dir(Object dirPath) {
         inputFiles.from(resolver.resolveFilesAsTree(dirPath));
         return this;
@@ -80,6 +80,10 @@ public class DefaultTaskOutputs implements TaskOutputsInternal {
         return history.getOutputFiles();
     }
 
+    public TaskExecutionHistory getHistory() {
+        return history;
+    }
+
     public void setHistory(TaskExecutionHistory history) {
         this.history = history;
     }
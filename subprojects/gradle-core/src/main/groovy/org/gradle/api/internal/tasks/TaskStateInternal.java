@@ -77,6 +77,17 @@ public class TaskStateInternal implements TaskState {
         skipped("UP-TO-DATE");
     }
     
+    /**
+     * Resets this state so that the task can be executed again.
+     */
+    public void reset() {
+        executed = false;
+        didWork = false;
+        failure = null;
+        skipped = false;
+        skippedMessage = null;
+    }
+
     public boolean getExecuting() {
         return executing;
     }
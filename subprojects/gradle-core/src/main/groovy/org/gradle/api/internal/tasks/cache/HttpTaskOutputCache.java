@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+
+/**
+ * A {@link TaskOutputCache} which stores entries on an HTTP server. An entry is fetched using a GET request to the
+ * base URI of the cache followed by the key, and stored using a PUT request to the same URI. Entries are zip archives,
+ * so are already compressed.
+ *
+ * <p>A failure to connect to the server, or a response other than success or not found, is reported to the caller.
+ * After the first such failure, the cache is disabled for the remainder of the build, so that an unavailable server
+ * does not delay every task.</p>
+ */
+public class HttpTaskOutputCache implements TaskOutputCache {
+    private static final Logger LOGGER = Logging.getLogger(HttpTaskOutputCache.class);
+    private final URI root;
+    private final int timeout;
+    private volatile boolean disabled;
+
+    /**
+     * Creates a cache backed by the given server.
+     *
+     * @param root The base URI of the cache.
+     * @param timeout The connect and read timeout, in milliseconds. Zero means no timeout.
+     */
+    public HttpTaskOutputCache(URI root, int timeout) {
+        this.root = root.getPath().endsWith("/") ? root : URI.create(root.toString() + "/");
+        this.timeout = timeout;
+    }
+
+    public boolean load(String key, Action<File> reader) {
+        if (disabled) {
+            return false;
+        }
+        URL url = url(key);
+        try {
+            File archive = File.createTempFile("task-outputs", ".bin");
+            try {
+                HttpURLConnection connection = open(url);
+                try {
+                    int status = connection.getResponseCode();
+                    if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+                        return false;
+                    }
+                    checkStatus(status, "GET", url);
+                    InputStream instr = connection.getInputStream();
+                    try {
+                        copy(instr, archive);
+                    } finally {
+                        instr.close();
+                    }
+                } finally {
+                    connection.disconnect();
+                }
+                reader.execute(archive);
+                return true;
+            } finally {
+                archive.delete();
+            }
+        } catch (IOException e) {
+            throw failed("load", url, e);
+        }
+    }
+
+    public void store(String key, File archive) {
+        if (disabled) {
+            return;
+        }
+        URL url = url(key);
+        try {
+            HttpURLConnection connection = open(url);
+            try {
+                connection.setRequestMethod("PUT");
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/zip");
+                if (archive.length() <= Integer.MAX_VALUE) {
+                    connection.setFixedLengthStreamingMode((int) archive.length());
+                }
+                OutputStream outstr = connection.getOutputStream();
+                try {
+                    InputStream instr = new FileInputStream(archive);
+                    try {
+                        IOUtils.copy(instr, outstr);
+                    } finally {
+                        instr.close();
+                    }
+                } finally {
+                    outstr.close();
+                }
+                checkStatus(connection.getResponseCode(), "PUT", url);
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            throw failed("store", url, e);
+        }
+    }
+
+    private URL url(String key) {
+        try {
+            return root.resolve(key).toURL();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpURLConnection open(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setUseCaches(false);
+        return connection;
+    }
+
+    private void checkStatus(int status, String method, URL url) throws IOException {
+        if (status < 200 || status >= 300) {
+            throw new IOException(String.format("%s %s returned status %d.", method, url, status));
+        }
+    }
+
+    private void copy(InputStream instr, File file) throws IOException {
+        OutputStream outstr = new FileOutputStream(file);
+        try {
+            IOUtils.copy(instr, outstr);
+        } finally {
+            outstr.close();
+        }
+    }
+
+    private UncheckedIOException failed(String operation, URL url, IOException e) {
+        if (!disabled) {
+            disabled = true;
+            LOGGER.warn("Could not {} task output cache entry {}. The remote task output cache is disabled for the rest of this build.",
+                    operation, url);
+        }
+        return new UncheckedIOException(String.format("Could not %s task output cache entry %s.", operation, url), e);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.Action;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+
+/**
+ * A {@link TaskOutputCache} which combines a local cache with a remote cache. Entries are loaded from the local cache
+ * where possible, and entries loaded from the remote cache are copied to the local cache. Entries are stored in both
+ * caches. A failure of the remote cache is logged and treated as a cache miss, so that the task is executed locally.
+ */
+public class LayeredTaskOutputCache implements TaskOutputCache {
+    private static final Logger LOGGER = Logging.getLogger(LayeredTaskOutputCache.class);
+    private final TaskOutputCache local;
+    private final TaskOutputCache remote;
+
+    public LayeredTaskOutputCache(TaskOutputCache local, TaskOutputCache remote) {
+        this.local = local;
+        this.remote = remote;
+    }
+
+    public boolean load(final String key, final Action<File> reader) {
+        if (local.load(key, reader)) {
+            return true;
+        }
+        try {
+            return remote.load(key, new Action<File>() {
+                public void execute(File archive) {
+                    local.store(key, archive);
+                    reader.execute(archive);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not load entry from remote task output cache.", e);
+            return false;
+        }
+    }
+
+    public void store(String key, File archive) {
+        local.store(key, archive);
+        try {
+            remote.store(key, archive);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not store entry in remote task output cache.", e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A {@link TaskOutputCache} which stores each entry as a file in a local directory. The modification time of an entry
+ * is updated each time it is used. When the total size of the entries exceeds the maximum size, the least recently
+ * used entries are removed until the total size is below 90% of the maximum size.
+ *
+ * <p>The total size is kept in memory once the directory has been listed, so the directory is only listed again when
+ * the maximum size is exceeded. Entries stored by other processes are counted when the directory is next listed.</p>
+ *
+ * <p>Entries are written to a temporary file and then renamed, so that a partially written entry is never visible.
+ * An entry which is removed while it is being read may cause the read to fail, in which case the task is executed
+ * instead.</p>
+ */
+public class LocalTaskOutputCache implements TaskOutputCache {
+    private static final Logger LOGGER = Logging.getLogger(LocalTaskOutputCache.class);
+    private static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+    private static final String SUFFIX = ".bin";
+    private final File dir;
+    private final long maxSize;
+    private long size = -1;
+
+    public LocalTaskOutputCache(File dir) {
+        this(dir, DEFAULT_MAX_SIZE);
+    }
+
+    public LocalTaskOutputCache(File dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    public boolean load(String key, Action<File> reader) {
+        File entry = entryFile(key);
+        if (!entry.isFile()) {
+            return false;
+        }
+        entry.setLastModified(System.currentTimeMillis());
+        reader.execute(entry);
+        return true;
+    }
+
+    public void store(String key, File archive) {
+        dir.mkdirs();
+        File tmpFile;
+        try {
+            tmpFile = File.createTempFile("entry", ".tmp", dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            GFileUtils.copyFile(archive, tmpFile);
+            synchronized (this) {
+                File entry = entryFile(key);
+                long replacedLength = entry.length();
+                entry.delete();
+                if (!tmpFile.renameTo(entry)) {
+                    throw new UncheckedIOException(String.format("Could not move %s to %s.", tmpFile, entry));
+                }
+                if (size < 0) {
+                    size = totalSize(listEntries());
+                } else {
+                    size += entry.length() - replacedLength;
+                }
+                if (size > maxSize) {
+                    evict();
+                }
+            }
+        } finally {
+            tmpFile.delete();
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(dir, key + SUFFIX);
+    }
+
+    private File[] listEntries() {
+        File[] entries = dir.listFiles(new FileFilter() {
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(SUFFIX);
+            }
+        });
+        return entries == null ? new File[0] : entries;
+    }
+
+    private long totalSize(File[] entries) {
+        long size = 0;
+        for (File entry : entries) {
+            size += entry.length();
+        }
+        return size;
+    }
+
+    private void evict() {
+        File[] entries = listEntries();
+        size = totalSize(entries);
+        if (size <= maxSize) {
+            return;
+        }
+
+        Arrays.sort(entries, new Comparator<File>() {
+            public int compare(File file1, File file2) {
+                long diff = file1.lastModified() - file2.lastModified();
+                return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+            }
+        });
+        long targetSize = maxSize - maxSize / 10;
+        for (int i = 0; i < entries.length && size > targetSize; i++) {
+            long length = entries[i].length();
+            if (entries[i].delete()) {
+                size -= length;
+                LOGGER.debug("Removed task output cache entry {}.", entries[i].getName());
+            }
+        }
+    }
+}
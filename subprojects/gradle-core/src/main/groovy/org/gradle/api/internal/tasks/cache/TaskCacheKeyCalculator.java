@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.Hasher;
+import org.gradle.api.internal.tasks.ClassLoaderAwareTaskAction;
+import org.gradle.util.GradleVersion;
+import org.gradle.util.UncheckedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Calculates the key under which the outputs of a task are cached. The key is a hash of the Gradle version, the type and
+ * actions of the task, its input properties, the paths and content of its input files, and the paths of its output
+ * files. Paths inside the root directory of the build are hashed relative to the root directory, so that the key does
+ * not depend on where the build is checked out.
+ *
+ * <p>The input files are the files and directories which the task sees when it visits its input files, so the
+ * include and exclude patterns of an input file tree are taken into account. The path of each input file relative to
+ * the root of its file tree is hashed as well, as the task may use that path, for example to decide where to copy the
+ * file to.</p>
+ *
+ * <p>The type and actions of the task are identified by class name, which is only sufficient for classes which are
+ * part of Gradle. A task whose type or actions are implemented by a build script or by classes from the build script
+ * classpath can change without its class names changing, so such a task has no key.</p>
+ */
+public class TaskCacheKeyCalculator {
+    private final Hasher hasher;
+    private final ClassLoader gradleClassLoader;
+    private final String gradleVersion = new GradleVersion().getVersion();
+
+    /**
+     * @param gradleClassLoader The class loader which loads the classes of Gradle and its plugins.
+     */
+    public TaskCacheKeyCalculator(Hasher hasher, ClassLoader gradleClassLoader) {
+        this.hasher = hasher;
+        this.gradleClassLoader = gradleClassLoader;
+    }
+
+    /**
+     * Calculates the cache key for the given task.
+     *
+     * @return The key, or null if the task has an input property value which cannot be serialized, or is implemented
+     * by classes which are not part of Gradle.
+     */
+    public String calculate(TaskInternal task) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+        final String rootPath = task.getProject().getRootDir().getAbsolutePath() + File.separator;
+
+        update(digest, gradleVersion);
+
+        if (!isGradleClassLoader(task.getClass().getClassLoader())) {
+            return null;
+        }
+        update(digest, task.getClass().getName());
+
+        for (Action<? super Task> action : task.getActions()) {
+            ClassLoader classLoader;
+            String className;
+            if (action instanceof ClassLoaderAwareTaskAction) {
+                ClassLoaderAwareTaskAction classLoaderAwareAction = (ClassLoaderAwareTaskAction) action;
+                classLoader = classLoaderAwareAction.getClassLoader();
+                className = classLoaderAwareAction.getImplementationClassName();
+            } else {
+                classLoader = action.getClass().getClassLoader();
+                className = action.getClass().getName();
+            }
+            if (!isGradleClassLoader(classLoader)) {
+                return null;
+            }
+            update(digest, className);
+        }
+
+        Map<String, Object> properties = new TreeMap<String, Object>(task.getInputs().getProperties());
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            update(digest, entry.getKey());
+            byte[] value = serialize(entry.getValue());
+            if (value == null) {
+                return null;
+            }
+            digest.update(value);
+        }
+
+        final Map<String, File> inputFiles = new TreeMap<String, File>();
+        task.getInputs().getFiles().getAsFileTree().visit(new FileVisitor() {
+            public void visitDir(FileVisitDetails dirDetails) {
+                inputFiles.put(inputPath(rootPath, dirDetails), dirDetails.getFile());
+            }
+
+            public void visitFile(FileVisitDetails fileDetails) {
+                inputFiles.put(inputPath(rootPath, fileDetails), fileDetails.getFile());
+            }
+        });
+        for (Map.Entry<String, File> entry : inputFiles.entrySet()) {
+            update(digest, entry.getKey());
+            File file = entry.getValue();
+            if (file.isFile()) {
+                digest.update((byte) 0);
+                digest.update(hasher.hash(file));
+            } else if (file.isDirectory()) {
+                digest.update((byte) 1);
+            } else {
+                digest.update((byte) 2);
+            }
+        }
+
+        for (File file : task.getOutputs().getFiles()) {
+            update(digest, relativePath(rootPath, file));
+        }
+
+        return String.format("%032x", new BigInteger(1, digest.digest()));
+    }
+
+    private boolean isGradleClassLoader(ClassLoader classLoader) {
+        if (classLoader == null) {
+            return true;
+        }
+        for (ClassLoader current = gradleClassLoader; current != null; current = current.getParent()) {
+            if (current == classLoader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the path of the given input file relative to the root directory of the build, followed by its path
+     * relative to the root of its file tree.
+     */
+    private String inputPath(String rootPath, FileVisitDetails details) {
+        return relativePath(rootPath, details.getFile()) + '\0' + details.getRelativePath().getPathString();
+    }
+
+    private String relativePath(String rootPath, File file) {
+        String path = file.getAbsolutePath();
+        if (path.startsWith(rootPath)) {
+            path = path.substring(rootPath.length());
+        }
+        return path.replace(File.separatorChar, '/');
+    }
+
+    private void update(MessageDigest digest, String value) {
+        try {
+            byte[] bytes = value.getBytes("UTF-8");
+            digest.update((byte) (bytes.length >>> 24));
+            digest.update((byte) (bytes.length >>> 16));
+            digest.update((byte) (bytes.length >>> 8));
+            digest.update((byte) bytes.length);
+            digest.update(bytes);
+        } catch (IOException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream outstr = new ObjectOutputStream(bytes);
+            outstr.writeObject(value);
+            outstr.close();
+            return bytes.toByteArray();
+        } catch (NotSerializableException e) {
+            return null;
+        } catch (IOException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+    }
+}
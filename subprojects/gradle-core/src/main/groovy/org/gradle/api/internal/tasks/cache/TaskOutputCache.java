@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.Action;
+
+import java.io.File;
+
+/**
+ * A store of task outputs, keyed by a hash of the inputs of the task which produced them. Each entry is an archive
+ * created by {@link TaskOutputPacker}.
+ */
+public interface TaskOutputCache {
+    /**
+     * Passes the archive for the given key to the given action.
+     *
+     * @return true if an entry was found, false if there is no entry for the given key.
+     */
+    boolean load(String key, Action<File> reader);
+
+    /**
+     * Stores the given archive under the given key, replacing any existing entry. The archive is copied, so the
+     * caller may delete it once this method returns.
+     */
+    void store(String key, File archive);
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.TaskInternal;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs the output files of a task into a zip archive, and unpacks them again. Each output file or directory of the
+ * task is stored under its index in the task's output files, so that the archive does not depend on where the outputs
+ * are located.
+ */
+public class TaskOutputPacker {
+    public void pack(TaskInternal task, File archive) {
+        try {
+            ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archive)));
+            try {
+                int index = 0;
+                for (File root : task.getOutputs().getFiles()) {
+                    String name = String.valueOf(index++);
+                    if (root.isFile()) {
+                        packFile(root, name, zip);
+                    } else if (root.isDirectory()) {
+                        packDir(root, name + "/", zip);
+                    }
+                }
+            } finally {
+                zip.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not pack the outputs of %s.", task), e);
+        }
+    }
+
+    private void packDir(File dir, String name, ZipOutputStream zip) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.closeEntry();
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isDirectory()) {
+                packDir(child, name + child.getName() + "/", zip);
+            } else if (child.isFile()) {
+                packFile(child, name + child.getName(), zip);
+            }
+        }
+    }
+
+    private void packFile(File file, String name, ZipOutputStream zip) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        InputStream instr = new FileInputStream(file);
+        try {
+            IOUtils.copy(instr, zip);
+        } finally {
+            instr.close();
+        }
+        zip.closeEntry();
+    }
+
+    public void unpack(TaskInternal task, File archive) {
+        List<File> roots = new ArrayList<File>();
+        try {
+            // Remove any stale outputs, so that only the unpacked files remain
+            for (File root : task.getOutputs().getFiles()) {
+                roots.add(root);
+                if (root.isDirectory()) {
+                    FileUtils.cleanDirectory(root);
+                } else if (root.isFile() && !root.delete()) {
+                    throw new IOException(String.format("Could not delete %s.", root));
+                }
+            }
+
+            ZipInputStream zip = new ZipInputStream(new BufferedInputStream(new FileInputStream(archive)));
+            try {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    unpackEntry(entry, roots, zip);
+                }
+            } finally {
+                zip.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Could not unpack the outputs of %s.", task), e);
+        }
+    }
+
+    private void unpackEntry(ZipEntry entry, List<File> roots, InputStream instr) throws IOException {
+        String name = entry.getName();
+        int separator = name.indexOf('/');
+        String path = separator < 0 ? "" : name.substring(separator + 1);
+        int index;
+        try {
+            index = Integer.parseInt(separator < 0 ? name : name.substring(0, separator));
+        } catch (NumberFormatException e) {
+            index = -1;
+        }
+        if (index < 0 || index >= roots.size() || ("/" + path + "/").contains("/../")) {
+            throw new IOException(String.format("Unexpected entry '%s' found in archive.", name));
+        }
+
+        File target = path.length() == 0 ? roots.get(index) : new File(roots.get(index), path);
+        if (entry.isDirectory()) {
+            target.mkdirs();
+            return;
+        }
+        if (target.isDirectory()) {
+            throw new IOException(String.format("Cannot unpack to %s as it is a directory.", target));
+        }
+        target.getParentFile().mkdirs();
+        OutputStream outstr = new FileOutputStream(target);
+        try {
+            IOUtils.copy(instr, outstr);
+        } finally {
+            outstr.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.tasks;
+
+import org.gradle.api.file.FileCollection;
+
+/**
+ * <p>A {@code TaskInputChanges} describes the changes to the input files of a task since the task was last
+ * successfully executed. A task action method can receive this by declaring a single parameter of this type:</p>
+ *
+ * <pre>
+ * &#064;TaskAction
+ * void compile(TaskInputChanges changes) {
+ *     if (!changes.incremental) {
+ *         // rebuild everything
+ *     }
+ *     changes.outOfDateFiles.each { ... }
+ *     changes.removedFiles.each { ... }
+ * }
+ * </pre>
+ *
+ * <p>When the changes cannot be determined, for example when the task has no history, or its input properties or
+ * outputs have changed, the changes are not incremental and all input files are reported as out-of-date.</p>
+ */
+public interface TaskInputChanges {
+    /**
+     * Returns true if only the changed input files need to be processed. Returns false when the task must process all
+     * of its input files.
+     *
+     * @return true if the changes are incremental.
+     */
+    boolean isIncremental();
+
+    /**
+     * Returns the input files which have been added or changed since the task was last executed. Returns all the input
+     * files of the task when the changes are not incremental.
+     *
+     * @return The out-of-date input files. Never returns null.
+     */
+    FileCollection getOutOfDateFiles();
+
+    /**
+     * Returns the input files which have been removed since the task was last executed. Returns an empty collection
+     * when the changes are not incremental.
+     *
+     * @return The removed input files. Never returns null.
+     */
+    FileCollection getRemovedFiles();
+}
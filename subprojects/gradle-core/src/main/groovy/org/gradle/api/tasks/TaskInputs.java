@@ -56,6 +56,25 @@ public interface TaskInputs {
      */
     TaskInputs file(Object path);
 
+    /**
+     * Returns the input files of this task which are the elements of a classpath. These files are also included in
+     * {@link #getFiles()}.
+     *
+     * @return The classpath input files. Returns an empty collection if this task has no classpath input files.
+     */
+    FileCollection getClasspathFiles();
+
+    /**
+     * <p>Registers some classpath input files for this task. A jar or zip file in the classpath is considered to have
+     * changed only when the names or content of its entries have changed. Changes to the timestamps or the order of the
+     * entries, or to the manifest, are ignored.</p>
+     *
+     * @param paths The classpath elements. The given paths are evaluated as for {@link
+     * org.gradle.api.Project#files(Object...)}.
+     * @return this
+     */
+    TaskInputs classpath(Object... paths);
+
     /**
      * Registers an input directory hierarchy. All files found under the given directory are treated as input files for
      * this task.
@@ -30,7 +30,7 @@ public class AutoCloseCacheFactory implements CacheFactory {
         this.cacheFactory = cacheFactory;
     }
 
-    public PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties) {
+    public synchronized PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties) {
         File canonicalDir = GFileUtils.canonicalise(cacheDir);
         CacheInfo cacheInfo = openCaches.get(canonicalDir);
         if (cacheInfo == null) {
@@ -48,7 +48,7 @@ public class AutoCloseCacheFactory implements CacheFactory {
         return cacheInfo.cache;
     }
 
-    public void close(PersistentCache cache) {
+    public synchronized void close(PersistentCache cache) {
         for (CacheInfo cacheInfo : openCaches.values()) {
             if (cacheInfo.cache == cache) {
                 if (cacheInfo.removeReference()) {
@@ -61,7 +61,7 @@ public class AutoCloseCacheFactory implements CacheFactory {
         throw new IllegalArgumentException("Attempting to close unknown cache " + cache);
     }
 
-    public void close() {
+    public synchronized void close() {
         try {
             for (CacheInfo cacheInfo : openCaches.values()) {
                 cacheFactory.close(cacheInfo.cache);
@@ -17,6 +17,7 @@ package org.gradle.cache;
 
 import org.gradle.CacheUsage;
 import org.gradle.cache.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.btree.CachingBlockStore;
 import org.gradle.util.GFileUtils;
 import org.gradle.util.GUtil;
 
@@ -25,6 +26,11 @@ import java.util.Map;
 import java.util.Properties;
 
 public class DefaultPersistentDirectoryCache implements PersistentCache {
+    /**
+     * The system property which, when set to true, causes indexed caches to access their cache file using memory-mapped
+     * regions.
+     */
+    public static final String MEMORY_MAPPED_PROPERTY = "org.gradle.cache.memoryMapped";
     private final File dir;
     private final File propertiesFile;
     private final Properties properties = new Properties();
@@ -75,8 +81,14 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
     }
 
     public <K, V> BTreePersistentIndexedCache<K, V> openIndexedCache(Serializer<V> serializer) {
+        return openIndexedCache(serializer, CachingBlockStore.DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public synchronized <K, V> BTreePersistentIndexedCache<K, V> openIndexedCache(Serializer<V> serializer,
+                                                                                long blockCacheSize) {
         if (indexedCache == null) {
-            indexedCache = new BTreePersistentIndexedCache<K,V>(this, serializer);
+            indexedCache = new BTreePersistentIndexedCache<K,V>(this, serializer, Boolean.getBoolean(
+                    MEMORY_MAPPED_PROPERTY), true, blockCacheSize);
         }
         return indexedCache;
     }
@@ -85,7 +97,7 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
         return openIndexedCache(new DefaultSerializer<V>());
     }
 
-    public <T> SimpleStateCache<T> openStateCache() {
+    public synchronized <T> SimpleStateCache<T> openStateCache() {
         if (stateCache == null) {
             stateCache = new SimpleStateCache<T>(this, new DefaultSerializer<T>());
         }
@@ -109,7 +121,7 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
         valid = true;
     }
 
-    public void close() {
+    public synchronized void close() {
         if (indexedCache != null) {
             indexedCache.close();
         }
@@ -46,6 +46,16 @@ public interface PersistentCache {
      */
     <K, V> PersistentIndexedCache<K, V> openIndexedCache(Serializer<V> serializer);
 
+    /**
+     * Opens an indexed cache backed by this cache, which keeps up to the given number of bytes of the cache file in
+     * memory. If the indexed cache is already open, it is returned as is.
+     *
+     * @param serializer The serializer to use to serialise the cache entries.
+     * @param blockCacheSize The maximum size in bytes of the blocks of the cache file to keep in memory.
+     * @return The cache.
+     */
+    <K, V> PersistentIndexedCache<K, V> openIndexedCache(Serializer<V> serializer, long blockCacheSize);
+
     /**
      * Opens an indexed cache backed by this cache.
      *
@@ -24,42 +24,127 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 // todo - stream serialised value to file
 // todo - handle hash collisions
 // todo - don't store null links to child blocks in leaf index blocks
 // todo - align block boundaries
-// todo - concurrency control
 // todo - remove the check-sum from each block
-// todo - merge small values into a single data block
 // todo - discard when file corrupt
 // todo - include data directly in index entry when serializer can guarantee small fixed sized data
 // todo - free list leaks disk space
-// todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
+/**
+ * A {@link PersistentIndexedCache} which stores its entries in a B-tree in a single file.
+ *
+ * <p>This cache is thread-safe. Any number of threads can get entries concurrently. Putting or removing an entry
+ * changes the structure of the tree and the free list, and so excludes all other threads while it runs.</p>
+ *
+ * <p>The cache can optionally use a {@link WriteAheadLog}. Each put or remove is then appended to the log and kept in
+ * memory, rather than being applied to the tree straight away. The log is committed when enough changes have been
+ * buffered, and the changes are applied to the tree in one batch when enough of them are pending, when the cache is
+ * verified, and when the cache is closed. As the tree is not modified between these checkpoints, a crash during a build
+ * no longer leaves the tree corrupt. The committed log is replayed when the cache is next opened, including after a
+ * corrupt tree has been discarded.</p>
+ *
+ * <p>When the cache is opened and more than half of the cache file is free space, the cache file is compacted. See
+ * {@link #compact()}.</p>
+ */
 public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
+    private static final int MAX_PENDING_ENTRIES = 1000;
+    private static final int MAX_UNCOMMITTED_LOG_SIZE = 64 * 1024;
+    private static final long MIN_COMPACTION_LENGTH = 1024 * 1024;
+    private static final double MAX_FREE_SPACE_RATIO = 0.5;
     private final File cacheFile;
     private final PersistentCache backingCache;
     private final Serializer<V> serializer;
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
+    private final int maxFreeListEntries;
+    private final long blockCacheSize;
+    private final CachingBlockStore cachingStore;
+    private final FreeListBlockStore freeListStore;
     private final StateCheckBlockStore store;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final WriteAheadLog log;
+    private final Map<String, byte[]> pending = new LinkedHashMap<String, byte[]>();
     private HeaderBlock header;
 
     public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer) {
-        this(backingCache, serializer, (short) 512, 512);
+        this(backingCache, serializer, false);
+    }
+
+    /**
+     * @param memoryMapped true to access the cache file using memory-mapped regions, false to use file reads and writes.
+     */
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer, boolean memoryMapped) {
+        this(backingCache, serializer, (short) 512, 512, memoryMapped);
     }
 
     public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(backingCache, serializer, maxChildIndexEntries, maxFreeListEntries, false);
+    }
+
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, boolean memoryMapped) {
+        this(backingCache, serializer, maxChildIndexEntries, maxFreeListEntries, memoryMapped, false);
+    }
+
+    /**
+     * @param memoryMapped true to access the cache file using memory-mapped regions, false to use file reads and writes.
+     * @param writeAheadLog true to log changes to the cache and apply them to the cache file in batches, false to apply
+     * each change to the cache file straight away.
+     */
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer, boolean memoryMapped,
+                                       boolean writeAheadLog) {
+        this(backingCache, serializer, memoryMapped, writeAheadLog, CachingBlockStore.DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * @param memoryMapped true to access the cache file using memory-mapped regions, false to use file reads and writes.
+     * @param writeAheadLog true to log changes to the cache and apply them to the cache file in batches, false to apply
+     * each change to the cache file straight away.
+     * @param blockCacheSize the maximum total size in bytes of the index and data blocks to keep in memory.
+     */
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer, boolean memoryMapped,
+                                       boolean writeAheadLog, long blockCacheSize) {
+        this(backingCache, serializer, (short) 512, 512, memoryMapped, writeAheadLog, blockCacheSize);
+    }
+
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, boolean memoryMapped,
+                                       boolean writeAheadLog) {
+        this(backingCache, serializer, maxChildIndexEntries, maxFreeListEntries, memoryMapped, writeAheadLog,
+                CachingBlockStore.DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, boolean memoryMapped,
+                                       boolean writeAheadLog, long blockCacheSize) {
+        this(backingCache, new File(backingCache.getBaseDir(), "cache.bin"), serializer, maxChildIndexEntries,
+                maxFreeListEntries, memoryMapped, writeAheadLog, blockCacheSize);
+    }
+
+    private BTreePersistentIndexedCache(PersistentCache backingCache, File cacheFile, Serializer<V> serializer,
+                                        short maxChildIndexEntries, int maxFreeListEntries, boolean memoryMapped,
+                                        boolean writeAheadLog, long blockCacheSize) {
         this.backingCache = backingCache;
+        this.cacheFile = cacheFile;
         this.serializer = serializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        cacheFile = new File(backingCache.getBaseDir(), "cache.bin");
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
-        store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
+        this.maxFreeListEntries = maxFreeListEntries;
+        this.blockCacheSize = blockCacheSize;
+        BlockStore fileStore = memoryMapped ? new MemoryMappedBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        cachingStore = new CachingBlockStore(fileStore, blockCacheSize, IndexBlock.class,
+                FreeListBlockStore.FreeListBlock.class, DataBlock.class);
+        freeListStore = new FreeListBlockStore(cachingStore, maxFreeListEntries);
+        store = new StateCheckBlockStore(freeListStore);
+        log = writeAheadLog ? new WriteAheadLog(new File(backingCache.getBaseDir(), "cache.log")) : null;
         try {
             open();
         } catch (Exception e) {
@@ -78,6 +163,23 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         } catch (CorruptedCacheException e) {
             rebuild();
         }
+        if (log != null) {
+            log.open(new WriteAheadLog.Receiver() {
+                public void put(String key, byte[] value) {
+                    pending.put(key, value);
+                }
+
+                public void remove(String key) {
+                    pending.put(key, null);
+                }
+            });
+            checkpoint();
+        }
+        try {
+            maybeCompact();
+        } catch (CorruptedCacheException e) {
+            rebuild();
+        }
     }
 
     private void doOpen() throws Exception {
@@ -111,60 +213,229 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public V get(K key) {
         try {
+            lock.readLock().lock();
             try {
-                DataBlock block = header.getRoot().get(key);
+                String keyString = key.toString();
+                if (pending.containsKey(keyString)) {
+                    byte[] serialisedValue = pending.get(keyString);
+                    return serialisedValue == null ? null : deserialise(serialisedValue);
+                }
+                DataBlock block = header.index.get(keyString);
                 if (block != null) {
                     return block.getValue();
                 }
                 return null;
             } catch (CorruptedCacheException e) {
+                // Rebuild below, once the read lock has been released
+            } finally {
+                lock.readLock().unlock();
+            }
+            lock.writeLock().lock();
+            try {
                 rebuild();
-                return null;
+            } finally {
+                lock.writeLock().unlock();
             }
+            return null;
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
         }
     }
 
     public void put(K key, V value) {
+        lock.writeLock().lock();
         try {
             String keyString = key.toString();
-            long hashCode = keyString.hashCode();
-            Lookup lookup = header.getRoot().find(hashCode);
-            boolean needNewBlock = true;
-            if (lookup.entry != null) {
-                DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-                needNewBlock = !block.useNewValue(value);
-                if (needNewBlock) {
-                    store.remove(block);
-                }
-            }
-            if (needNewBlock) {
-                DataBlock block = new DataBlock(keyString, value);
-                store.write(block);
-                lookup.indexBlock.put(hashCode, block.getPos());
+            byte[] serialisedValue = serialise(value);
+            if (log != null) {
+                log.append(keyString, serialisedValue);
+                pending.put(keyString, serialisedValue);
+                maybeCommit();
+            } else {
+                doPut(keyString.hashCode(), serialisedValue);
+                store.flush();
             }
-            store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void doPut(long hashCode, byte[] serialisedValue) throws Exception {
+        Lookup lookup = header.getRoot().find(hashCode);
+        boolean needNewBlock = true;
+        if (lookup.entry != null) {
+            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            needNewBlock = !block.useNewValue(serialisedValue);
+            if (needNewBlock) {
+                store.remove(block);
+            }
+        }
+        if (needNewBlock) {
+            DataBlock block = new DataBlock(serialisedValue);
+            store.write(block);
+            lookup.indexBlock.put(hashCode, block.getPos());
         }
     }
 
     public void remove(K key) {
+        lock.writeLock().lock();
         try {
-            Lookup lookup = header.getRoot().find(key.toString());
-            if (lookup.entry == null) {
-                return;
+            String keyString = key.toString();
+            if (log != null) {
+                log.append(keyString, null);
+                pending.put(keyString, null);
+                maybeCommit();
+            } else {
+                doRemove(keyString);
+                store.flush();
             }
-            lookup.indexBlock.remove(lookup.entry);
-            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-            store.remove(block);
-            store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void doRemove(String keyString) throws Exception {
+        Lookup lookup = header.getRoot().find(keyString);
+        if (lookup.entry == null) {
+            return;
+        }
+        lookup.indexBlock.remove(lookup.entry);
+        DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+        store.remove(block);
+    }
+
+    private void maybeCommit() throws Exception {
+        if (pending.size() >= MAX_PENDING_ENTRIES) {
+            checkpoint();
+        } else if (log.getUncommittedSize() >= MAX_UNCOMMITTED_LOG_SIZE) {
+            log.commit();
+        }
+    }
+
+    /**
+     * Applies the pending changes to the tree, then discards the log. The log is committed first, so that the changes
+     * can be recovered if the process crashes while the tree is being updated. If the tree turns out to be corrupt, it
+     * is discarded and the pending changes are applied to the new tree. The tree is forced to the storage device before
+     * the log is discarded.
+     */
+    private void checkpoint() throws Exception {
+        if (log == null || pending.isEmpty()) {
+            return;
+        }
+        log.commit();
+        try {
+            applyPending();
+        } catch (CorruptedCacheException e) {
+            rebuild();
+            applyPending();
+        }
+        store.flush();
+        log.clear();
+        pending.clear();
+    }
+
+    private void applyPending() throws Exception {
+        for (Map.Entry<String, byte[]> entry : pending.entrySet()) {
+            if (entry.getValue() == null) {
+                doRemove(entry.getKey());
+            } else {
+                doPut(entry.getKey().hashCode(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Rewrites the cache file so that it contains only the live blocks, with no free space between them. Entries are
+     * written in key order, and each value is written to a block of exactly the size it needs, rather than into
+     * whichever free block it happened to fit in.
+     *
+     * @return the number of bytes reclaimed.
+     */
+    public long compact() {
+        lock.writeLock().lock();
+        try {
+            checkpoint();
+            return doCompact();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not compact %s.", this), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void maybeCompact() throws Exception {
+        long length = store.getLength();
+        if (length >= MIN_COMPACTION_LENGTH && freeListStore.getFreeSpace() > length * MAX_FREE_SPACE_RATIO) {
+            try {
+                doCompact();
+            } catch (IOException e) {
+                LOGGER.warn(String.format("Could not compact %s.", this), e);
+            }
         }
     }
 
+    private long doCompact() throws Exception {
+        long originalLength = store.getLength();
+        File compactFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact");
+        compactFile.delete();
+        BTreePersistentIndexedCache<K, V> compacted = new BTreePersistentIndexedCache<K, V>(backingCache, compactFile,
+                serializer, maxChildIndexEntries, maxFreeListEntries, false, false, blockCacheSize);
+        try {
+            try {
+                copyEntries(header.getRoot(), compacted);
+            } finally {
+                compacted.close();
+            }
+        } catch (Exception e) {
+            compactFile.delete();
+            throw e;
+        }
+
+        store.close();
+        if (!cacheFile.delete() || !compactFile.renameTo(cacheFile)) {
+            compactFile.delete();
+            doOpen();
+            throw new IOException(String.format("Could not replace %s with compacted file %s.", cacheFile,
+                    compactFile));
+        }
+        doOpen();
+
+        long reclaimed = originalLength - store.getLength();
+        LOGGER.info(String.format("Compacted %s, reclaiming %d bytes.", this, reclaimed));
+        return reclaimed;
+    }
+
+    /**
+     * Copies the entries of the given index block and its children to the given cache, in order of hash code.
+     */
+    private void copyEntries(IndexBlock block, BTreePersistentIndexedCache<K, V> target) throws Exception {
+        for (IndexEntry entry : block.entries) {
+            if (!entry.childIndexBlock.isNull()) {
+                copyEntries(store.read(entry.childIndexBlock, IndexBlock.class), target);
+            }
+            DataBlock dataBlock = store.read(entry.dataBlock, DataBlock.class);
+            target.doPut(entry.hashCode, dataBlock.serialisedValue);
+        }
+        if (!block.tailPos.isNull()) {
+            copyEntries(store.read(block.tailPos, IndexBlock.class), target);
+        }
+        target.store.flush();
+    }
+
+    private byte[] serialise(V value) throws Exception {
+        ByteArrayOutputStream outStr = new ByteArrayOutputStream();
+        serializer.write(outStr, value);
+        return outStr.toByteArray();
+    }
+
+    private V deserialise(byte[] serialisedValue) throws Exception {
+        return serializer.read(new ByteArrayInputStream(serialisedValue));
+    }
+
     private IndexBlock load(BlockPointer pos, IndexRoot root, IndexBlock parent, int index) {
         IndexBlock block = store.read(pos, IndexBlock.class);
         block.root = root;
@@ -174,19 +445,37 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     }
 
     public void reset() {
-        close();
+        lock.writeLock().lock();
         try {
-            open();
-        } catch (Exception e) {
-            throw new UncheckedIOException(e);
+            close();
+            try {
+                open();
+            } catch (Exception e) {
+                throw new UncheckedIOException(e);
+            }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public void close() {
+        lock.writeLock().lock();
         try {
-            store.close();
+            try {
+                if (store.isOpen()) {
+                    checkpoint();
+                    LOGGER.debug("Closing {}. Block cache statistics: {}.", this, cachingStore.getStatistics());
+                }
+            } finally {
+                if (log != null) {
+                    log.close();
+                }
+                store.close();
+            }
         } catch (Exception e) {
             throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -194,19 +483,30 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         return store.isOpen();
     }
 
+    /**
+     * Returns a snapshot of the statistics of the block cache, which can be used to choose a suitable block cache size.
+     */
+    public BlockCacheStatistics getBlockCacheStatistics() {
+        return cachingStore.getStatistics();
+    }
+
     private void rebuild() throws Exception {
         LOGGER.warn(String.format("%s is corrupt. Discarding.", this));
         store.clear();
-        close();
+        store.close();
         doOpen();
     }
 
     public void verify() {
+        lock.writeLock().lock();
         try {
+            checkpoint();
             doVerify();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Some problems were found when checking the integrity of %s.",
                     this), e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -289,6 +589,15 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             return load(rootPos, this, null, 0);
         }
 
+        /**
+         * Locates the data block for the given key. Unlike {@link #getRoot()}, this does not change the state of any
+         * index blocks, so can be used by concurrent readers.
+         */
+        public DataBlock get(String keyString) throws Exception {
+            IndexBlock block = store.read(rootPos, IndexBlock.class);
+            return block.get(keyString);
+        }
+
         public IndexBlock newRoot() {
             IndexBlock block = new IndexBlock();
             store.write(block);
@@ -432,13 +741,28 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             maybeSplit();
         }
 
-        public DataBlock get(K key) throws Exception {
-            Lookup lookup = find(key.toString());
-            if (lookup.entry == null) {
-                return null;
-            }
+        public DataBlock get(String keyString) throws Exception {
+            long hashCode = keyString.hashCode();
+            IndexEntry searchEntry = new IndexEntry(hashCode);
+            IndexBlock current = this;
+            while (true) {
+                int index = Collections.binarySearch(current.entries, searchEntry);
+                if (index >= 0) {
+                    return store.read(current.entries.get(index).dataBlock, DataBlock.class);
+                }
 
-            return store.read(lookup.entry.dataBlock, DataBlock.class);
+                index = -index - 1;
+                BlockPointer childBlockPos;
+                if (index == current.entries.size()) {
+                    childBlockPos = current.tailPos;
+                } else {
+                    childBlockPos = current.entries.get(index).childIndexBlock;
+                }
+                if (childBlockPos.isNull()) {
+                    return null;
+                }
+                current = store.read(childBlockPos, IndexBlock.class);
+            }
         }
 
         public Lookup find(String keyString) throws Exception {
@@ -625,28 +949,21 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     private class DataBlock extends BlockPayload {
         private int size;
         private byte[] serialisedValue;
-        private V value;
 
         private DataBlock() {
         }
 
-        public DataBlock(String key, V value) throws Exception {
-            this.value = value;
-            setValue(value);
+        public DataBlock(byte[] serialisedValue) {
+            this.serialisedValue = serialisedValue;
             size = serialisedValue.length;
         }
 
-        public void setValue(V value) throws Exception {
-            ByteArrayOutputStream outStr = new ByteArrayOutputStream();
-            serializer.write(outStr, value);
-            this.serialisedValue = outStr.toByteArray();
-        }
-
+        /**
+         * Returns a new copy of the value. Data blocks may be cached and shared between callers, so the value is not
+         * kept in memory.
+         */
         public V getValue() throws Exception {
-            if (value == null) {
-                value = serializer.read(new ByteArrayInputStream(serialisedValue));
-            }
-            return value;
+            return deserialise(serialisedValue);
         }
 
         @Override
@@ -672,8 +989,8 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             outstr.write(serialisedValue);
         }
 
-        public boolean useNewValue(V value) throws Exception {
-            setValue(value);
+        public boolean useNewValue(byte[] serialisedValue) throws Exception {
+            this.serialisedValue = serialisedValue;
             boolean ok = serialisedValue.length <= size;
             if (ok) {
                 store.write(this);
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+/**
+ * A snapshot of the statistics of the block cache of a {@link CachingBlockStore}.
+ */
+public class BlockCacheStatistics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int cachedBlocks;
+    private final long cachedSize;
+    private final long maxSize;
+
+    public BlockCacheStatistics(long hits, long misses, long evictions, int cachedBlocks, long cachedSize,
+                                long maxSize) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.cachedBlocks = cachedBlocks;
+        this.cachedSize = cachedSize;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses, %d evictions, %d blocks cached using %d of %d bytes", hits, misses,
+                evictions, cachedBlocks, cachedSize, maxSize);
+    }
+
+    /**
+     * Returns the number of reads of a cacheable block type which were served from the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of reads of a cacheable block type which had to read the block from the cache file.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of blocks which have been evicted from the cache to stay within its maximum size.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of blocks currently in the cache.
+     */
+    public int getCachedBlocks() {
+        return cachedBlocks;
+    }
+
+    /**
+     * Returns the total size in bytes of the blocks currently in the cache.
+     */
+    public long getCachedSize() {
+        return cachedSize;
+    }
+
+    /**
+     * Returns the maximum total size in bytes of the blocks in the cache.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+}
@@ -15,6 +15,10 @@
  */
 package org.gradle.cache.btree;
 
+/**
+ * A store of blocks. Implementations are not thread-safe, except that {@link #read(BlockPointer, Class)} may be called
+ * concurrently by multiple threads, provided no other method is called at the same time.
+ */
 public interface BlockStore {
     /**
      * Opens this store, calling the given action if the store is empty.
@@ -58,10 +62,15 @@ public interface BlockStore {
     void attach(BlockPayload block);
 
     /**
-     * Flushes any pending updates for this store.
+     * Flushes any pending updates for this store, and waits until they have been written to the storage device.
      */
     void flush();
 
+    /**
+     * Returns the length of this store in bytes, up to the end of the last block. This includes any free blocks.
+     */
+    long getLength();
+
     interface Factory {
         Object create(Class<? extends BlockPayload> type);
     }
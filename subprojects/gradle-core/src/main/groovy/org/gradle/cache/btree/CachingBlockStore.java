@@ -1,5 +1,5 @@
 /*
- * Copyright 2009 the original author or authors.
+ * Copyright 2010 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,18 +15,40 @@
  */
 package org.gradle.cache.btree;
 
-import org.apache.commons.collections.map.LRUMap;
-
 import java.util.*;
 
+/**
+ * A {@link BlockStore} which caches blocks of certain types, and buffers block writes until the store is flushed.
+ *
+ * <p>The cache holds the most recently used blocks, up to a maximum total size. The size of a block is taken to be its
+ * size in the cache file, which is an approximation of the heap it uses. A block which is larger than an eighth of the
+ * maximum size is not cached, so that a few large blocks do not push out everything else.</p>
+ *
+ * <p>Reads from this store may be performed concurrently, provided that they do not overlap with any other operation
+ * on the store.</p>
+ */
 public class CachingBlockStore implements BlockStore {
+    public static final long DEFAULT_MAX_CACHE_SIZE = 2 * 1024 * 1024;
     private final BlockStore store;
     private final Map<BlockPointer, BlockPayload> dirty = new LinkedHashMap<BlockPointer, BlockPayload>();
-    private final Map<BlockPointer, BlockPayload> indexBlockCache = new LRUMap(100);
+    private final Map<BlockPointer, CachedBlock> cache = new LinkedHashMap<BlockPointer, CachedBlock>(16, 0.75f, true);
     private final Set<Class<?>> cachableTypes = new HashSet<Class<?>>();
+    private final long maxCacheSize;
+    private long cacheSize;
+    private long hits;
+    private long misses;
+    private long evictions;
 
     public CachingBlockStore(BlockStore store, Class<? extends BlockPayload>... cacheableBlockTypes) {
+        this(store, DEFAULT_MAX_CACHE_SIZE, cacheableBlockTypes);
+    }
+
+    /**
+     * @param maxCacheSize The maximum total size in bytes of the blocks to cache.
+     */
+    public CachingBlockStore(BlockStore store, long maxCacheSize, Class<? extends BlockPayload>... cacheableBlockTypes) {
         this.store = store;
+        this.maxCacheSize = maxCacheSize;
         cachableTypes.addAll(Arrays.asList(cacheableBlockTypes));
     }
 
@@ -36,16 +58,23 @@ public class CachingBlockStore implements BlockStore {
 
     public void close() {
         flush();
-        indexBlockCache.clear();
+        clearCache();
         store.close();
     }
 
     public void clear() {
         dirty.clear();
-        indexBlockCache.clear();
+        clearCache();
         store.clear();
     }
 
+    private void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+            cacheSize = 0;
+        }
+    }
+
     public void flush() {
         Iterator<BlockPayload> iterator = dirty.values().iterator();
         while (iterator.hasNext()) {
@@ -56,13 +85,28 @@ public class CachingBlockStore implements BlockStore {
         store.flush();
     }
 
+    public long getLength() {
+        return store.getLength();
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the block cache.
+     */
+    public BlockCacheStatistics getStatistics() {
+        synchronized (cache) {
+            return new BlockCacheStatistics(hits, misses, evictions, cache.size(), cacheSize, maxCacheSize);
+        }
+    }
+
     public void attach(BlockPayload block) {
         store.attach(block);
     }
 
     public void remove(BlockPayload block) {
         dirty.remove(block.getPos());
-        indexBlockCache.remove(block.getPos());
+        synchronized (cache) {
+            uncache(block.getPos());
+        }
         store.remove(block);
     }
 
@@ -77,9 +121,16 @@ public class CachingBlockStore implements BlockStore {
         if (block != null) {
             return block;
         }
-        block = payloadType.cast(indexBlockCache.get(pos));
-        if (block != null) {
-            return block;
+        if (!cachableTypes.contains(payloadType)) {
+            return store.read(pos, payloadType);
+        }
+        synchronized (cache) {
+            CachedBlock cachedBlock = cache.get(pos);
+            if (cachedBlock != null) {
+                hits++;
+                return payloadType.cast(cachedBlock.block);
+            }
+            misses++;
         }
         block = store.read(pos, payloadType);
         maybeCache(block);
@@ -93,8 +144,42 @@ public class CachingBlockStore implements BlockStore {
     }
 
     private <T extends BlockPayload> void maybeCache(T block) {
-        if (cachableTypes.contains(block.getClass())) {
-            indexBlockCache.put(block.getPos(), block);
+        if (!cachableTypes.contains(block.getClass())) {
+            return;
+        }
+        BlockPointer pos = block.getPos();
+        int size = block.getBlock().getSize();
+        synchronized (cache) {
+            uncache(pos);
+            if (size > maxCacheSize / 8) {
+                return;
+            }
+            cache.put(pos, new CachedBlock(block, size));
+            cacheSize += size;
+            Iterator<CachedBlock> iterator = cache.values().iterator();
+            while (cacheSize > maxCacheSize) {
+                CachedBlock eldest = iterator.next();
+                iterator.remove();
+                cacheSize -= eldest.size;
+                evictions++;
+            }
+        }
+    }
+
+    private void uncache(BlockPointer pos) {
+        CachedBlock cachedBlock = cache.remove(pos);
+        if (cachedBlock != null) {
+            cacheSize -= cachedBlock.size;
+        }
+    }
+
+    private static class CachedBlock {
+        final BlockPayload block;
+        final int size;
+
+        private CachedBlock(BlockPayload block, int size) {
+            this.block = block;
+            this.size = size;
         }
     }
 }
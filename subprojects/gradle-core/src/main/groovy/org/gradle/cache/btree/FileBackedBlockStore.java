@@ -18,6 +18,8 @@ package org.gradle.cache.btree;
 import org.gradle.api.UncheckedIOException;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.zip.CRC32;
 
 public class FileBackedBlockStore implements BlockStore {
@@ -25,6 +27,7 @@ public class FileBackedBlockStore implements BlockStore {
     private final File cacheFile;
     private long nextBlock;
     private Factory factory;
+    private boolean modified;
 
     public FileBackedBlockStore(File cacheFile) {
         this.cacheFile = cacheFile;
@@ -63,6 +66,7 @@ public class FileBackedBlockStore implements BlockStore {
             throw new UncheckedIOException(e);
         }
         nextBlock = 0;
+        modified = true;
     }
 
     public void attach(BlockPayload block) {
@@ -77,6 +81,19 @@ public class FileBackedBlockStore implements BlockStore {
     }
 
     public void flush() {
+        if (!modified) {
+            return;
+        }
+        try {
+            file.getChannel().force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        modified = false;
+    }
+
+    public long getLength() {
+        return nextBlock;
     }
 
     public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
@@ -99,6 +116,7 @@ public class FileBackedBlockStore implements BlockStore {
 
     public void write(BlockPayload block) {
         BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        modified = true;
         try {
             blockImpl.write();
         } catch (CorruptedCacheException e) {
@@ -201,10 +219,8 @@ public class FileBackedBlockStore implements BlockStore {
             if (pos + HEADER_SIZE >= file.length()) {
                 throw blockCorruptedException();
             }
-            file.seek(pos);
-
             Crc32InputStream checkSumInputStream = new Crc32InputStream(new BufferedInputStream(
-                    new RandomAccessFileInputStream(file)));
+                    new RandomAccessFileInputStream(file, pos)));
             DataInputStream inputStream = new DataInputStream(checkSumInputStream);
 
             BlockPayload payload = getPayload();
@@ -241,26 +257,38 @@ public class FileBackedBlockStore implements BlockStore {
         }
     }
 
+    /**
+     * Reads from the given position in the file. Uses positional reads rather than the file pointer of the file, so that
+     * several blocks can be read concurrently.
+     */
     private static class RandomAccessFileInputStream extends InputStream {
-        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private long pos;
 
-        private RandomAccessFileInputStream(RandomAccessFile file) {
-            this.file = file;
+        private RandomAccessFileInputStream(RandomAccessFile file, long pos) {
+            this.channel = file.getChannel();
+            this.pos = pos;
         }
 
         @Override
         public int read(byte[] bytes) throws IOException {
-            return file.read(bytes);
+            return read(bytes, 0, bytes.length);
         }
 
         @Override
         public int read() throws IOException {
-            return file.read();
+            byte[] bytes = new byte[1];
+            int count = read(bytes, 0, 1);
+            return count < 0 ? -1 : bytes[0] & 0xff;
         }
 
         @Override
         public int read(byte[] bytes, int offset, int length) throws IOException {
-            return file.read(bytes, offset, length);
+            int count = channel.read(ByteBuffer.wrap(bytes, offset, length), pos);
+            if (count > 0) {
+                pos += count;
+            }
+            return count;
         }
     }
 
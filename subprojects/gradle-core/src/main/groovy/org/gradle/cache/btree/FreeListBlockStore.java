@@ -92,6 +92,27 @@ public class FreeListBlockStore implements BlockStore {
         store.flush();
     }
 
+    public long getLength() {
+        return store.getLength();
+    }
+
+    /**
+     * Returns the total size in bytes of the free blocks in this store.
+     */
+    public long getFreeSpace() {
+        long freeSpace = 0;
+        FreeListBlock block = freeListBlock;
+        while (true) {
+            for (FreeListEntry entry : block.entries) {
+                freeSpace += entry.size;
+            }
+            if (block.nextBlock.isNull()) {
+                return freeSpace;
+            }
+            block = block.getNextBlock();
+        }
+    }
+
     private void verify() {
         FreeListBlock block = store.readFirst(FreeListBlock.class);
         verify(block, Integer.MAX_VALUE);
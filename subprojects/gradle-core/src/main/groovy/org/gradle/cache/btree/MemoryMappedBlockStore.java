@@ -0,0 +1,421 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link BlockStore} which accesses the cache file through a set of memory-mapped regions, rather than seeking and
+ * reading or writing the file for each block. Regions are mapped as they are first used, and the file grows one region
+ * at a time. Blocks are read from and written to the mapped regions directly, so reading or writing a block does not
+ * require any system calls once its region has been mapped.
+ *
+ * <p>The blocks are stored in the same format as {@link FileBackedBlockStore}, so a file written by one store can be
+ * read by the other. When this store is closed, the file is truncated to the end of the last block. When this store is
+ * flushed, the regions which have been written to since the last flush are forced to the storage device.</p>
+ *
+ * <p>The cache file must not be truncated by another process while this store is open, as accessing a mapped region
+ * which is beyond the end of the file crashes the JVM.</p>
+ */
+public class MemoryMappedBlockStore implements BlockStore {
+    static final int DEFAULT_REGION_SIZE = 4 * 1024 * 1024;
+    private final File cacheFile;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    private final Set<Integer> modifiedRegions = new TreeSet<Integer>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long nextBlock;
+    private Factory factory;
+
+    public MemoryMappedBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    MemoryMappedBlockStore(File cacheFile, int regionSize) {
+        this.cacheFile = cacheFile;
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            nextBlock = file.length();
+            if (nextBlock == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        try {
+            unmap(nextBlock);
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        unmap(0);
+        nextBlock = 0;
+    }
+
+    /**
+     * Discards the mapped regions and truncates the file to the given length. The regions are unmapped when they are
+     * garbage collected, and some platforms do not allow a mapped file to be truncated. In this case, the file is left
+     * as it is, and the unused space at the end of the file is reused by later blocks.
+     */
+    private void unmap(long length) {
+        synchronized (regions) {
+            regions.clear();
+            modifiedRegions.clear();
+        }
+        try {
+            if (channel.size() > length) {
+                channel.truncate(length);
+            }
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+        synchronized (regions) {
+            for (Integer index : modifiedRegions) {
+                regions.get(index).force();
+            }
+            modifiedRegions.clear();
+        }
+    }
+
+    public long getLength() {
+        return nextBlock;
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Returns the mapped region with the given index, for writing. The region is forced when this store is next flushed.
+     */
+    private ByteBuffer modifiedRegion(int index) throws IOException {
+        synchronized (regions) {
+            ByteBuffer region = region(index);
+            modifiedRegions.add(index);
+            return region;
+        }
+    }
+
+    /**
+     * Returns the mapped region with the given index, mapping it if required. Mapping a region beyond the end of the
+     * file extends the file. Concurrent readers may call this method, so it synchronizes on the region list.
+     */
+    private ByteBuffer region(int index) throws IOException {
+        synchronized (regions) {
+            while (regions.size() <= index) {
+                regions.add(null);
+            }
+            MappedByteBuffer region = regions.get(index);
+            if (region == null) {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, (long) index * regionSize, regionSize);
+                regions.set(index, region);
+            }
+            return region;
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+            MappedOutputStream outputStream = new MappedOutputStream(pos);
+            DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            dataOutputStream.writeByte(BLOCK_MARKER);
+            dataOutputStream.writeByte(payload.getType());
+            dataOutputStream.writeInt(payloadSize);
+
+            // Write body
+            payload.write(dataOutputStream);
+
+            // Write checksum
+            dataOutputStream.writeLong(outputStream.checksum.getValue());
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= nextBlock) {
+                throw blockCorruptedException();
+            }
+
+            MappedInputStream inputStream = new MappedInputStream(pos);
+            DataInputStream dataInputStream = new DataInputStream(inputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = dataInputStream.readByte();
+            if (type != (byte) BLOCK_MARKER) {
+                throw blockCorruptedException();
+            }
+            type = dataInputStream.readByte();
+            if (type != (byte) payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = dataInputStream.readInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > nextBlock) {
+                throw blockCorruptedException();
+            }
+            inputStream.limit(pos + HEADER_SIZE + payloadSize + TAIL_SIZE);
+            payload.read(dataInputStream);
+
+            // Read and verify checksum
+            long actualChecksum = inputStream.checksum.getValue();
+            long checksum = dataInputStream.readLong();
+            if (actualChecksum != checksum) {
+                throw blockCorruptedException();
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MemoryMappedBlockStore.this));
+        }
+    }
+
+    /**
+     * Reads directly from the mapped regions, starting at the given position in the file, and calculates the checksum
+     * of the bytes read.
+     */
+    private class MappedInputStream extends InputStream {
+        private final CRC32 checksum = new CRC32();
+        private long pos;
+        private long limit = Long.MAX_VALUE;
+        private ByteBuffer region;
+        private int regionIndex = -1;
+
+        private MappedInputStream(long pos) {
+            this.pos = pos;
+        }
+
+        public void limit(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= limit) {
+                return -1;
+            }
+            int offset = seek();
+            int b = region.get(offset) & 0xff;
+            checksum.update(b);
+            pos++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (pos >= limit) {
+                return -1;
+            }
+            int regionOffset = seek();
+            int count = (int) Math.min(Math.min(length, regionSize - regionOffset), limit - pos);
+            region.position(regionOffset);
+            region.get(bytes, offset, count);
+            checksum.update(bytes, offset, count);
+            pos += count;
+            return count;
+        }
+
+        private int seek() throws IOException {
+            int index = (int) (pos / regionSize);
+            if (index != regionIndex) {
+                region = region(index).duplicate();
+                regionIndex = index;
+            }
+            return (int) (pos % regionSize);
+        }
+    }
+
+    /**
+     * Writes directly to the mapped regions, starting at the given position in the file, and calculates the checksum of
+     * the bytes written.
+     */
+    private class MappedOutputStream extends OutputStream {
+        private final CRC32 checksum = new CRC32();
+        private long pos;
+        private ByteBuffer region;
+        private int regionIndex = -1;
+
+        private MappedOutputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            int offset = seek();
+            region.put(offset, (byte) b);
+            checksum.update(b);
+            pos++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            checksum.update(bytes, offset, length);
+            while (length > 0) {
+                int regionOffset = seek();
+                int count = Math.min(length, regionSize - regionOffset);
+                region.position(regionOffset);
+                region.put(bytes, offset, count);
+                pos += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private int seek() throws IOException {
+            int index = (int) (pos / regionSize);
+            if (index != regionIndex) {
+                region = modifiedRegion(index).duplicate();
+                regionIndex = index;
+            }
+            return (int) (pos % regionSize);
+        }
+    }
+}
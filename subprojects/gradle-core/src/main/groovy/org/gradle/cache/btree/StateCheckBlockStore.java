@@ -75,4 +75,9 @@ public class StateCheckBlockStore implements BlockStore {
         assert open;
         blockStore.flush();
     }
+
+    public long getLength() {
+        assert open;
+        return blockStore.getLength();
+    }
 }
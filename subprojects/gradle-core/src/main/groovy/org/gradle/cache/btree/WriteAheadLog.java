@@ -0,0 +1,188 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of changes to the entries of a cache. Changes are buffered in memory, and are written to the log
+ * file using a single sequential write followed by a sync when the log is committed. This way, many changes share the
+ * cost of one sync.
+ *
+ * <p>Each record in the log holds a key and the serialized value of the entry, or no value if the entry was removed,
+ * followed by a checksum of the record. When the log is replayed, an incomplete or corrupt record, such as one which
+ * was being written when the process crashed, is discarded along with everything after it.</p>
+ */
+public class WriteAheadLog {
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private final File logFile;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private RandomAccessFile file;
+
+    public WriteAheadLog(File logFile) {
+        this.logFile = logFile;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("log '%s'", logFile);
+    }
+
+    /**
+     * Opens this log, passing each valid record in the log to the given receiver, in the order they were appended.
+     */
+    public void open(Receiver receiver) {
+        try {
+            file = new RandomAccessFile(logFile, "rw");
+            long end = replay(receiver);
+            file.setLength(end);
+            file.seek(end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long replay(Receiver receiver) throws IOException {
+        long length = file.length();
+        DataInputStream instr = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)));
+        try {
+            long pos = 0;
+            while (pos + Block.INT_SIZE <= length) {
+                int recordLength = instr.readInt();
+                if (recordLength <= 0 || pos + Block.INT_SIZE + recordLength + Block.LONG_SIZE > length) {
+                    break;
+                }
+                byte[] bytes = new byte[recordLength];
+                instr.readFully(bytes);
+                long checksum = instr.readLong();
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+
+                DataInputStream recordStr = new DataInputStream(new ByteArrayInputStream(bytes));
+                byte type = recordStr.readByte();
+                String key = recordStr.readUTF();
+                if (type == PUT) {
+                    byte[] value = new byte[recordStr.readInt()];
+                    recordStr.readFully(value);
+                    receiver.put(key, value);
+                } else if (type == REMOVE) {
+                    receiver.remove(key);
+                } else {
+                    break;
+                }
+                pos += Block.INT_SIZE + recordLength + Block.LONG_SIZE;
+            }
+            return pos;
+        } finally {
+            instr.close();
+        }
+    }
+
+    /**
+     * Appends a record to this log. The record is not written to the log file until {@link #commit()} is called.
+     *
+     * @param value The serialized value, or null if the entry has been removed.
+     */
+    public void append(String key, byte[] value) {
+        try {
+            record.reset();
+            DataOutputStream recordStr = new DataOutputStream(record);
+            recordStr.writeByte(value == null ? REMOVE : PUT);
+            recordStr.writeUTF(key);
+            if (value != null) {
+                recordStr.writeInt(value.length);
+                recordStr.write(value);
+            }
+            recordStr.flush();
+
+            CRC32 crc = new CRC32();
+            crc.update(record.toByteArray());
+            DataOutputStream outstr = new DataOutputStream(buffer);
+            outstr.writeInt(record.size());
+            record.writeTo(outstr);
+            outstr.writeLong(crc.getValue());
+            outstr.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the number of bytes which have been appended but not yet committed.
+     */
+    public int getUncommittedSize() {
+        return buffer.size();
+    }
+
+    /**
+     * Writes the records appended since the last commit to the log file, and syncs the file.
+     */
+    public void commit() {
+        if (buffer.size() == 0) {
+            return;
+        }
+        try {
+            file.write(buffer.toByteArray());
+            file.getChannel().force(false);
+            buffer.reset();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Discards all records from this log, including any which have not been committed.
+     */
+    public void clear() {
+        buffer.reset();
+        try {
+            file.setLength(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes this log. Any records which have not been committed are discarded.
+     */
+    public void close() {
+        buffer.reset();
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            file = null;
+        }
+    }
+
+    public interface Receiver {
+        void put(String key, byte[] value);
+
+        void remove(String key);
+    }
+}
@@ -15,23 +15,71 @@
  */
 package org.gradle.configuration;
 
+import org.gradle.StartParameter;
 import org.gradle.api.Action;
+import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Project;
+import org.gradle.api.ProjectEvaluationListener;
+import org.gradle.api.ProjectState;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ProjectDependency;
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectAccessListener;
 import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.project.ProjectStateInternal;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.gradle.util.UncheckedException;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Applies a set of actions to each project of the build.
+ *
+ * <p>By default, the actions are applied to one project at a time. When {@link
+ * StartParameter#isParallelProjectEvaluation()} is set, each action is applied to all projects before the next action
+ * is applied, using a pool of worker threads. A project is only configured once its parent project has been
+ * configured, so that configuration injected by the parent is visible to the child. When a project looks up another
+ * project which would have been evaluated before it when evaluating serially, the other project is evaluated first, or
+ * waited for if another thread is evaluating it.</p>
+ *
+ * <p>When {@link StartParameter#isConfigureOnDemand()} is set, only the root project is configured up front. Any other
+ * project is configured when it is evaluated, which happens when tasks are selected from it, when it is looked up,
+ * for example through {@link Project#project(String)} or a task path, or when a configured project depends on it,
+ * either through {@link Project#dependsOn(String)} or through a project dependency. Configuring on demand cannot be
+ * combined with parallel project evaluation.</p>
+ */
 public class DefaultBuildConfigurer implements BuildConfigurer {
+    private final ExecutorFactory executorFactory;
     private List<Action<? super ProjectInternal>> actions;
 
     public DefaultBuildConfigurer(Action<? super ProjectInternal>... actions) {
+        this(null, actions);
+    }
+
+    public DefaultBuildConfigurer(ExecutorFactory executorFactory, Action<? super ProjectInternal>... actions) {
+        this.executorFactory = executorFactory;
         this.actions = new ArrayList<Action<? super ProjectInternal>>(Arrays.asList(actions));
     }
 
     public void configure(GradleInternal gradle) {
+        if (gradle.getStartParameter().isConfigureOnDemand()) {
+            if (gradle.getStartParameter().isParallelProjectEvaluation()) {
+                throw new InvalidUserDataException(
+                        "Configuration on demand cannot be used together with parallel project evaluation.");
+            }
+            gradle.addListener(new ConfigureOnDemandListener());
+            gradle.getRootProject().evaluate();
+            return;
+        }
+        if (executorFactory != null && gradle.getStartParameter().isParallelProjectEvaluation()) {
+            configureInParallel(gradle);
+            return;
+        }
+
         gradle.getRootProject().allprojects(new Action<Project>() {
             public void execute(Project project) {
                 for (Action<? super ProjectInternal> action : actions) {
@@ -40,4 +88,197 @@ public class DefaultBuildConfigurer implements BuildConfigurer {
             }
         });
     }
+
+    private void configureInParallel(GradleInternal gradle) {
+        StartParameter startParameter = gradle.getStartParameter();
+        int threadCount = startParameter.getParallelThreadCount() > 1 ? startParameter.getParallelThreadCount()
+                : Runtime.getRuntime().availableProcessors();
+        ProjectInternal rootProject = gradle.getRootProject();
+        ParallelEvaluationListener listener = new ParallelEvaluationListener();
+        gradle.addListener(listener);
+        try {
+            for (Action<? super ProjectInternal> action : actions) {
+                ProjectConfiguration configuration = new ProjectConfiguration(rootProject, action);
+                StoppableExecutor executor = executorFactory.create("Project configuration");
+                try {
+                    for (int i = 0; i < threadCount; i++) {
+                        executor.execute(configuration);
+                    }
+                } finally {
+                    executor.stop();
+                }
+                configuration.rethrowFailure();
+            }
+        } finally {
+            gradle.removeListener(listener);
+        }
+    }
+
+    /**
+     * Evaluates a project which is looked up during parallel evaluation, when serial evaluation would already have
+     * evaluated it.
+     */
+    private static class ParallelEvaluationListener implements ProjectEvaluationListener, ProjectAccessListener {
+        private final ThreadLocal<LinkedList<Project>> evaluatingProjects = new ThreadLocal<LinkedList<Project>>() {
+            @Override
+            protected LinkedList<Project> initialValue() {
+                return new LinkedList<Project>();
+            }
+        };
+
+        public void beforeEvaluate(Project project) {
+            evaluatingProjects.get().addLast(project);
+        }
+
+        public void afterEvaluate(Project project, ProjectState state) {
+            evaluatingProjects.get().removeLast();
+        }
+
+        public void beforeAccess(ProjectInternal project) {
+            // Projects are evaluated serially in the order of Project.compareTo(). The first project being evaluated by
+            // this thread is the one which is being evaluated in that order, any others are evaluated on demand
+            LinkedList<Project> evaluating = evaluatingProjects.get();
+            if (evaluating.isEmpty() || project.compareTo(evaluating.getFirst()) >= 0) {
+                return;
+            }
+
+            // Evaluate the parents first, so that configuration they inject is visible
+            LinkedList<ProjectInternal> projects = new LinkedList<ProjectInternal>();
+            for (ProjectInternal current = project; current != null; current = current.getParent()) {
+                if (((ProjectStateInternal) current.getState()).isExecutingInCurrentThread()) {
+                    // This project, or one of its parents, is being evaluated further up the call stack
+                    return;
+                }
+                projects.addFirst(current);
+            }
+            for (ProjectInternal current : projects) {
+                current.evaluate();
+            }
+        }
+    }
+
+    /**
+     * Evaluates a project when it is needed by the build: when it is looked up, or when a configured project depends on
+     * it.
+     */
+    private class ConfigureOnDemandListener implements ProjectEvaluationListener, ProjectAccessListener {
+        public void beforeEvaluate(Project project) {
+            ProjectInternal parent = (ProjectInternal) project.getParent();
+            if (parent != null && !((ProjectStateInternal) parent.getState()).isExecutingInCurrentThread()) {
+                parent.evaluate();
+            }
+        }
+
+        public void afterEvaluate(Project project, ProjectState state) {
+            if (state.getFailure() != null) {
+                return;
+            }
+            for (Project dependsOnProject : project.getDependsOnProjects()) {
+                ((ProjectInternal) dependsOnProject).evaluate();
+            }
+            for (Configuration configuration : project.getConfigurations()) {
+                for (ProjectDependency dependency : configuration.getDependencies(ProjectDependency.class)) {
+                    ((ProjectInternal) dependency.getDependencyProject()).evaluate();
+                }
+            }
+            for (Action<? super ProjectInternal> action : actions) {
+                action.execute((ProjectInternal) project);
+            }
+        }
+
+        public void beforeAccess(ProjectInternal project) {
+            for (ProjectInternal current = project; current != null; current = current.getParent()) {
+                if (((ProjectStateInternal) current.getState()).isExecutingInCurrentThread()) {
+                    // This project, or one of its parents, is being evaluated further up the call stack. Evaluating it
+                    // now would apply its build script before the configuration its parent injects into it
+                    return;
+                }
+            }
+            project.evaluate();
+        }
+    }
+
+    private static class ProjectConfiguration implements Runnable {
+        private final Lock lock = new ReentrantLock();
+        private final Condition stateChanged = lock.newCondition();
+        private final LinkedList<ProjectInternal> readyProjects = new LinkedList<ProjectInternal>();
+        private final Action<? super ProjectInternal> action;
+        private int activeProjects;
+        private Throwable failure;
+
+        private ProjectConfiguration(ProjectInternal rootProject, Action<? super ProjectInternal> action) {
+            this.action = action;
+            readyProjects.add(rootProject);
+        }
+
+        public void run() {
+            while (true) {
+                ProjectInternal project = takeNextProject();
+                if (project == null) {
+                    return;
+                }
+                Throwable projectFailure = null;
+                try {
+                    action.execute(project);
+                } catch (Throwable throwable) {
+                    projectFailure = throwable;
+                }
+                projectCompleted(project, projectFailure);
+            }
+        }
+
+        private ProjectInternal takeNextProject() {
+            lock.lock();
+            try {
+                while (true) {
+                    if (failure != null) {
+                        return null;
+                    }
+                    if (!readyProjects.isEmpty()) {
+                        activeProjects++;
+                        return readyProjects.removeFirst();
+                    }
+                    if (activeProjects == 0) {
+                        return null;
+                    }
+                    try {
+                        stateChanged.await();
+                    } catch (InterruptedException e) {
+                        throw new UncheckedException(e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void projectCompleted(ProjectInternal project, Throwable projectFailure) {
+            lock.lock();
+            try {
+                activeProjects--;
+                if (projectFailure != null) {
+                    if (failure == null) {
+                        failure = projectFailure;
+                    }
+                } else {
+                    for (Project child : project.getChildProjects().values()) {
+                        readyProjects.add((ProjectInternal) child);
+                    }
+                }
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void rethrowFailure() {
+            if (failure == null) {
+                return;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw UncheckedException.asUncheckedException(failure);
+        }
+    }
 }
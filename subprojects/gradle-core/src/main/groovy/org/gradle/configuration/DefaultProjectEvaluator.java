@@ -15,31 +15,139 @@
  */
 package org.gradle.configuration;
 
+import org.gradle.api.CircularReferenceException;
 import org.gradle.api.ProjectEvaluationListener;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectStateInternal;
+import org.gradle.util.UncheckedException;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Evaluates each project at most once. When projects are evaluated concurrently, a thread which attempts to evaluate a
+ * project which is currently being evaluated by another thread blocks until that evaluation has completed. A {@link
+ * CircularReferenceException} is thrown when waiting would deadlock.
+ *
+ * <p>Evaluation listeners are not required to be thread-safe, so they are notified one at a time. A listener which
+ * causes another project to be evaluated does not prevent other threads from notifying listeners while that evaluation
+ * takes place.</p>
+ */
 public class DefaultProjectEvaluator implements ProjectEvaluator {
     private final ProjectEvaluator evaluator;
+    private final ReentrantLock notificationLock = new ReentrantLock();
+    private final Lock lock = new ReentrantLock();
+    private final Condition evaluationCompleted = lock.newCondition();
+    private final Map<ProjectInternal, Thread> evaluatingProjects = new HashMap<ProjectInternal, Thread>();
+    private final Map<Thread, ProjectInternal> waitingThreads = new HashMap<Thread, ProjectInternal>();
 
     public DefaultProjectEvaluator(ProjectEvaluator evaluator) {
         this.evaluator = evaluator;
     }
 
     public void evaluate(ProjectInternal project, ProjectStateInternal state) {
-        if (state.getExecuted()) {
+        // This thread may be notifying a listener, which may need to wait for a project being evaluated by another thread
+        int notificationHoldCount = notificationLock.getHoldCount();
+        for (int i = 0; i < notificationHoldCount; i++) {
+            notificationLock.unlock();
+        }
+        try {
+            doEvaluate(project, state);
+        } finally {
+            for (int i = 0; i < notificationHoldCount; i++) {
+                notificationLock.lock();
+            }
+        }
+    }
+
+    private void doEvaluate(ProjectInternal project, ProjectStateInternal state) {
+        if (!startEvaluation(project, state)) {
             return;
         }
 
-        ProjectEvaluationListener listener = project.getProjectEvaluationBroadcaster();
-        listener.beforeEvaluate(project);
-        state.setExecuting(true);
         try {
-            evaluator.evaluate(project, state);
+            ProjectEvaluationListener listener = project.getProjectEvaluationBroadcaster();
+            notificationLock.lock();
+            try {
+                listener.beforeEvaluate(project);
+            } finally {
+                notificationLock.unlock();
+            }
+            state.setExecuting(true);
+            try {
+                evaluator.evaluate(project, state);
+            } finally {
+                state.setExecuting(false);
+                state.executed();
+                notificationLock.lock();
+                try {
+                    listener.afterEvaluate(project, state);
+                } finally {
+                    notificationLock.unlock();
+                }
+            }
+        } finally {
+            evaluationFinished(project);
+        }
+    }
+
+    private boolean startEvaluation(ProjectInternal project, ProjectStateInternal state) {
+        Thread currentThread = Thread.currentThread();
+        lock.lock();
+        try {
+            while (true) {
+                if (state.getExecuted()) {
+                    return false;
+                }
+                Thread owner = evaluatingProjects.get(project);
+                if (owner == null) {
+                    evaluatingProjects.put(project, currentThread);
+                    return true;
+                }
+                if (dependsOnThread(owner, currentThread)) {
+                    throw new CircularReferenceException(String.format(
+                            "Circular referencing during evaluation for %s.", project));
+                }
+                waitingThreads.put(currentThread, project);
+                try {
+                    evaluationCompleted.await();
+                } catch (InterruptedException e) {
+                    throw new UncheckedException(e);
+                } finally {
+                    waitingThreads.remove(currentThread);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true if the given thread is, directly or indirectly, waiting for the target thread to finish evaluating a
+     * project.
+     */
+    private boolean dependsOnThread(Thread thread, Thread target) {
+        Thread current = thread;
+        while (current != null) {
+            if (current == target) {
+                return true;
+            }
+            ProjectInternal waitingFor = waitingThreads.get(current);
+            current = waitingFor == null ? null : evaluatingProjects.get(waitingFor);
+        }
+        return false;
+    }
+
+    private void evaluationFinished(ProjectInternal project) {
+        lock.lock();
+        try {
+            evaluatingProjects.remove(project);
+            evaluationCompleted.signalAll();
         } finally {
-            state.setExecuting(false);
-            state.executed();
-            listener.afterEvaluate(project, state);
+            lock.unlock();
         }
     }
 }
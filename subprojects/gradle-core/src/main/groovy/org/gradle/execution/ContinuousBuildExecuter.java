@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.AndSpec;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskState;
+
+import java.util.*;
+
+/**
+ * A {@link BuildExecuter} which keeps the build running once the selected tasks have executed. It waits for the input
+ * files of the executed tasks to change, then executes the changed tasks and the tasks which depend on them again,
+ * along with any tasks which failed or did not execute. This continues until the build thread is interrupted.
+ *
+ * <p>The configured build model, and so the task artifact state repository, is reused by each execution. The build
+ * does not finish between executions, so {@link ContinuousBuildListener}s are notified after each one instead.</p>
+ *
+ * <p>The state of the input files of the tasks is recorded before they are executed, so that changes made while the
+ * tasks are executing are not missed. The state of the input files of each task is recorded again when the task starts,
+ * so that input files written by the tasks it depends on are not reported as changes.</p>
+ */
+public class ContinuousBuildExecuter extends DelegatingBuildExecuter {
+    private static final Logger LOGGER = Logging.getLogger(ContinuousBuildExecuter.class);
+    private static final long POLL_INTERVAL = 500;
+    private final TaskInputsWatcher watcher;
+
+    public ContinuousBuildExecuter(BuildExecuter delegate) {
+        this(delegate, new PollingTaskInputsWatcher(POLL_INTERVAL));
+    }
+
+    ContinuousBuildExecuter(BuildExecuter delegate, TaskInputsWatcher watcher) {
+        super(delegate);
+        this.watcher = watcher;
+    }
+
+    @Override
+    public void execute() {
+        TaskGraphExecuter taskGraph = getBuild().getTaskGraph();
+        List<Task> tasks = new ArrayList<Task>(taskGraph.getAllTasks());
+        Map<Task, Set<Task>> dependents = getDependents(tasks);
+        TaskExecutionListener inputsRecorder = new InputsRecorder();
+        taskGraph.addTaskExecutionListener(inputsRecorder);
+
+        RuntimeException failure;
+        try {
+            watcher.watch(tasks);
+            failure = executeAndReport(new Runnable() {
+                public void run() {
+                    ContinuousBuildExecuter.super.execute();
+                }
+            });
+            getBuild().getContinuousBuildBroadcaster().iterationFinished();
+            while (true) {
+                LOGGER.lifecycle("Waiting for changes to input files of tasks...");
+                Set<Task> changedTasks;
+                try {
+                    changedTasks = watcher.waitForChanges();
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                final List<Task> tasksToExecute = getTasksToExecute(tasks, changedTasks, dependents);
+                for (Task task : tasksToExecute) {
+                    ((TaskStateInternal) task.getState()).reset();
+                }
+                watcher.watch(tasksToExecute);
+                LOGGER.lifecycle(String.format("Change detected, executing %s task(s).", tasksToExecute.size()));
+                failure = executeAndReport(new Runnable() {
+                    public void run() {
+                        executeAgain(tasksToExecute);
+                    }
+                });
+                getBuild().getContinuousBuildBroadcaster().iterationFinished();
+            }
+        } finally {
+            taskGraph.removeTaskExecutionListener(inputsRecorder);
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private RuntimeException executeAndReport(Runnable execution) {
+        try {
+            execution.run();
+            return null;
+        } catch (RuntimeException e) {
+            LOGGER.error(String.format("Build failed: %s", e.getMessage()));
+            return e;
+        }
+    }
+
+    private void executeAgain(List<Task> tasks) {
+        TaskGraphExecuter taskGraph = getBuild().getTaskGraph();
+        Spec<? super Task> filter = taskGraph.getFilter();
+        taskGraph.useFilter(new AndSpec<Task>(filter, new Spec<Task>() {
+            public boolean isSatisfiedBy(Task task) {
+                return !task.getState().getExecuted();
+            }
+        }));
+        try {
+            taskGraph.addTasks(tasks);
+        } finally {
+            taskGraph.useFilter(filter);
+        }
+        taskGraph.execute();
+    }
+
+    private Map<Task, Set<Task>> getDependents(List<Task> tasks) {
+        Map<Task, Set<Task>> dependents = new HashMap<Task, Set<Task>>();
+        for (Task task : tasks) {
+            for (Task dependency : task.getTaskDependencies().getDependencies(task)) {
+                Set<Task> taskDependents = dependents.get(dependency);
+                if (taskDependents == null) {
+                    taskDependents = new HashSet<Task>();
+                    dependents.put(dependency, taskDependents);
+                }
+                taskDependents.add(task);
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Returns the changed tasks, the tasks which depend on them and the tasks which failed or did not execute, in
+     * execution plan order.
+     */
+    private List<Task> getTasksToExecute(List<Task> tasks, Set<Task> changedTasks, Map<Task, Set<Task>> dependents) {
+        Set<Task> affected = new HashSet<Task>();
+        LinkedList<Task> queue = new LinkedList<Task>(changedTasks);
+        while (!queue.isEmpty()) {
+            Task task = queue.removeFirst();
+            if (affected.add(task) && dependents.containsKey(task)) {
+                queue.addAll(dependents.get(task));
+            }
+        }
+
+        List<Task> tasksToExecute = new ArrayList<Task>();
+        for (Task task : tasks) {
+            if (affected.contains(task) || !task.getState().getExecuted() || task.getState().getFailure() != null) {
+                tasksToExecute.add(task);
+            }
+        }
+        return tasksToExecute;
+    }
+
+    private class InputsRecorder implements TaskExecutionListener {
+        public void beforeExecute(Task task) {
+            watcher.watch(Collections.singleton(task));
+        }
+
+        public void afterExecute(Task task, TaskState state) {
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+/**
+ * Receives notifications when the tasks of a continuous build have executed. A continuous build executes tasks many
+ * times before it finishes, so services which hold state until the build finishes should release it here too.
+ */
+public interface ContinuousBuildListener {
+    /**
+     * Called when the tasks selected for an iteration of a continuous build have executed, whether or not they
+     * failed, and before waiting for the next change.
+     */
+    void iterationFinished();
+}
@@ -17,6 +17,7 @@
 package org.gradle.execution;
 
 import groovy.lang.Closure;
+import org.gradle.api.Action;
 import org.gradle.api.CircularReferenceException;
 import org.gradle.api.Task;
 import org.gradle.api.execution.TaskExecutionGraphListener;
@@ -27,6 +28,7 @@ import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.util.Clock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,10 +44,24 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final Set<Task> executionPlan = new LinkedHashSet<Task>();
+    private final Map<Task, List<Task>> dependencies = new HashMap<Task, List<Task>>();
+    private final List<List<Task>> batches = new ArrayList<List<Task>>();
+    private final ExecutorFactory executorFactory;
+    private final TaskExecutionTimes executionTimes;
+    private final int parallelThreadCount;
     private boolean populated;
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager) {
+        this(listenerManager, null, null, 0);
+    }
+
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, ExecutorFactory executorFactory,
+                                    TaskExecutionTimes executionTimes, int parallelThreadCount) {
+        assert parallelThreadCount <= 1 || executorFactory != null;
+        this.executorFactory = executorFactory;
+        this.executionTimes = executionTimes;
+        this.parallelThreadCount = parallelThreadCount;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
     }
@@ -54,6 +70,10 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         this.filter = filter;
     }
 
+    public Spec<? super Task> getFilter() {
+        return filter;
+    }
+
     public void addTasks(Iterable<? extends Task> tasks) {
         assert tasks != null;
 
@@ -75,10 +95,16 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         graphListeners.getSource().graphPopulated(this);
 
         try {
-            doExecute(executionPlan);
+            if (parallelThreadCount > 1) {
+                doExecuteParallel();
+            } else {
+                doExecute(executionPlan);
+            }
             logger.debug("Timing: Executing the DAG took " + clock.getTime());
         } finally {
             executionPlan.clear();
+            dependencies.clear();
+            batches.clear();
         }
     }
 
@@ -87,44 +113,53 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         execute();
     }
 
+    /**
+     * Adds the given tasks and their dependencies to the execution plan, using a depth-first walk of the task graph.
+     * The queue is used as a stack, so that each push and pop is constant time, and each task's dependencies are sorted
+     * only once. Dependencies are pushed in reverse name order, so that they are added to the plan in name order.
+     */
     private void fillDag(Collection<? extends Task> tasks) {
+        List<Task> batch = new ArrayList<Task>();
         Set<Task> visiting = new HashSet<Task>();
-        List<Task> queue = new ArrayList<Task>();
-        queue.addAll(tasks);
+        LinkedList<Task> queue = new LinkedList<Task>(tasks);
         CachingTaskDependencyResolveContext context = new CachingTaskDependencyResolveContext();
 
         while (!queue.isEmpty()) {
-            Task task = queue.get(0);
+            Task task = queue.getFirst();
             if (!filter.isSatisfiedBy(task)) {
                 // Filtered - skip
-                queue.remove(0);
+                queue.removeFirst();
                 continue;
             }
             if (executionPlan.contains(task)) {
                 // Already in plan - skip
-                queue.remove(0);
+                queue.removeFirst();
                 continue;
             }
 
             if (visiting.add(task)) {
                 // Have not seen this task before - add its dependencies to the head of the queue and leave this
                 // task in the queue
-                Set<Task> dependsOnTasks = new TreeSet<Task>(Collections.reverseOrder());
-                dependsOnTasks.addAll(context.getDependencies(task));
-                for (Task dependsOnTask : dependsOnTasks) {
+                List<Task> dependsOnTasks = new ArrayList<Task>(context.getDependencies(task));
+                Collections.sort(dependsOnTasks);
+                for (int i = dependsOnTasks.size() - 1; i >= 0; i--) {
+                    Task dependsOnTask = dependsOnTasks.get(i);
                     if (visiting.contains(dependsOnTask)) {
                         throw new CircularReferenceException(String.format(
                                 "Circular dependency between tasks. Cycle includes [%s, %s].", task, dependsOnTask));
                     }
-                    queue.add(0, dependsOnTask);
+                    queue.addFirst(dependsOnTask);
                 }
+                dependencies.put(task, dependsOnTasks);
             } else {
                 // Have visited this task's dependencies - add it to the end of the plan
-                queue.remove(0);
+                queue.removeFirst();
                 visiting.remove(task);
                 executionPlan.add(task);
+                batch.add(task);
             }
         }
+        batches.add(batch);
     }
 
     public void addTaskExecutionGraphListener(TaskExecutionGraphListener listener) {
@@ -161,12 +196,37 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         }
     }
 
+    private void doExecuteParallel() {
+        ParallelTaskPlanExecuter planExecuter = new ParallelTaskPlanExecuter(executorFactory, executionTimes,
+                parallelThreadCount);
+        Action<Task> worker = new Action<Task>() {
+            public void execute(Task task) {
+                executeTask(task);
+            }
+        };
+        // Each batch must complete before the tasks of the next batch are started
+        for (List<Task> batch : batches) {
+            planExecuter.execute(batch, dependencies, worker);
+        }
+    }
+
     private void executeTask(Task task) {
-        taskListeners.getSource().beforeExecute(task);
+        // Listeners are not required to be thread-safe, so notifications are delivered one at a time
+        synchronized (taskListeners) {
+            taskListeners.getSource().beforeExecute(task);
+        }
+        Clock clock = new Clock();
         try {
             ((TaskInternal) task).execute();
+            // Execution times are only used to schedule parallel execution. Skipped and up-to-date tasks take almost
+            // no time, which says nothing about how long they take to execute
+            if (parallelThreadCount > 1 && executionTimes != null && !task.getState().getSkipped()) {
+                executionTimes.recordTime(task, clock.getTimeInMs());
+            }
         } finally {
-            taskListeners.getSource().afterExecute(task, task.getState());
+            synchronized (taskListeners) {
+                taskListeners.getSource().afterExecute(task, task.getState());
+            }
         }
     }
 
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.gradle.util.UncheckedException;
+
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executes a batch of tasks using a fixed number of worker threads. A task is started as soon as all of its
+ * dependencies in the batch have completed.
+ *
+ * <p>When several tasks are ready, the task with the longest remaining critical path is started first. The critical
+ * path of a task is its expected execution time plus the longest critical path of the tasks which depend on it, using
+ * the times recorded by previous builds. Tasks with no recorded time are assumed to take the average time of the other
+ * tasks in the batch. Ties are broken using execution plan order.</p>
+ *
+ * <p>When a task fails, no further tasks are started. The first failure is rethrown once the tasks which are currently
+ * executing have completed.</p>
+ */
+class ParallelTaskPlanExecuter {
+    private final ExecutorFactory executorFactory;
+    private final TaskExecutionTimes executionTimes;
+    private final int threadCount;
+
+    public ParallelTaskPlanExecuter(ExecutorFactory executorFactory, TaskExecutionTimes executionTimes, int threadCount) {
+        this.executorFactory = executorFactory;
+        this.executionTimes = executionTimes;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Executes the given tasks, blocking until all tasks have completed.
+     *
+     * @param plan The tasks to execute, in execution plan order. Each task must appear after its dependencies.
+     * @param dependencies The dependencies of each task. Dependencies which are not in the plan are ignored.
+     * @param worker The action which executes a single task.
+     */
+    public void execute(List<? extends Task> plan, Map<Task, ? extends Collection<Task>> dependencies, Action<Task> worker) {
+        if (plan.isEmpty()) {
+            return;
+        }
+
+        PlanExecution execution = new PlanExecution(plan, dependencies, executionTimes, worker);
+        StoppableExecutor executor = executorFactory.create("Task worker");
+        try {
+            int workers = Math.min(threadCount, plan.size());
+            for (int i = 0; i < workers; i++) {
+                executor.execute(execution);
+            }
+        } finally {
+            executor.stop();
+        }
+        execution.rethrowFailure();
+    }
+
+    private static class TaskNode {
+        final Task task;
+        final int index;
+        final List<TaskNode> dependents = new ArrayList<TaskNode>();
+        int remainingDependencies;
+        Long expectedTime;
+        long criticalPath;
+
+        private TaskNode(Task task, int index) {
+            this.task = task;
+            this.index = index;
+        }
+    }
+
+    private static class PlanExecution implements Runnable {
+        private final Lock lock = new ReentrantLock();
+        private final Condition stateChanged = lock.newCondition();
+        private final Queue<TaskNode> readyTasks = new PriorityQueue<TaskNode>(11, new Comparator<TaskNode>() {
+            public int compare(TaskNode node1, TaskNode node2) {
+                if (node1.criticalPath != node2.criticalPath) {
+                    return node1.criticalPath > node2.criticalPath ? -1 : 1;
+                }
+                return node1.index - node2.index;
+            }
+        });
+        private final Action<Task> worker;
+        private int remainingTasks;
+        private Throwable failure;
+
+        private PlanExecution(List<? extends Task> plan, Map<Task, ? extends Collection<Task>> dependencies,
+                              TaskExecutionTimes executionTimes, Action<Task> worker) {
+            this.worker = worker;
+            Map<Task, TaskNode> nodes = new LinkedHashMap<Task, TaskNode>();
+            for (Task task : plan) {
+                nodes.put(task, new TaskNode(task, nodes.size()));
+            }
+            for (TaskNode node : nodes.values()) {
+                Collection<Task> taskDependencies = dependencies.get(node.task);
+                if (taskDependencies == null) {
+                    continue;
+                }
+                for (Task dependency : taskDependencies) {
+                    TaskNode dependencyNode = nodes.get(dependency);
+                    if (dependencyNode != null) {
+                        dependencyNode.dependents.add(node);
+                        node.remainingDependencies++;
+                    }
+                }
+            }
+            calculateCriticalPaths(new ArrayList<TaskNode>(nodes.values()), executionTimes);
+            for (TaskNode node : nodes.values()) {
+                if (node.remainingDependencies == 0) {
+                    readyTasks.add(node);
+                }
+            }
+            remainingTasks = nodes.size();
+        }
+
+        private void calculateCriticalPaths(List<TaskNode> nodes, TaskExecutionTimes executionTimes) {
+            if (executionTimes == null) {
+                return;
+            }
+
+            long totalTime = 0;
+            int timedTasks = 0;
+            for (TaskNode node : nodes) {
+                node.expectedTime = executionTimes.getExpectedTime(node.task);
+                if (node.expectedTime != null) {
+                    totalTime += node.expectedTime;
+                    timedTasks++;
+                }
+            }
+            long defaultTime = timedTasks == 0 ? 0 : totalTime / timedTasks;
+
+            // Dependents always appear later in the plan than their dependencies, so visit the plan in reverse order
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                TaskNode node = nodes.get(i);
+                long longestDependentPath = 0;
+                for (TaskNode dependent : node.dependents) {
+                    longestDependentPath = Math.max(longestDependentPath, dependent.criticalPath);
+                }
+                long expectedTime = node.expectedTime != null ? node.expectedTime : defaultTime;
+                node.criticalPath = expectedTime + longestDependentPath;
+            }
+        }
+
+        public void run() {
+            while (true) {
+                TaskNode node = takeNextTask();
+                if (node == null) {
+                    return;
+                }
+                Throwable taskFailure = null;
+                try {
+                    worker.execute(node.task);
+                } catch (Throwable throwable) {
+                    taskFailure = throwable;
+                }
+                taskCompleted(node, taskFailure);
+            }
+        }
+
+        private TaskNode takeNextTask() {
+            lock.lock();
+            try {
+                while (true) {
+                    if (failure != null || remainingTasks == 0) {
+                        return null;
+                    }
+                    TaskNode node = readyTasks.poll();
+                    if (node != null) {
+                        return node;
+                    }
+                    try {
+                        stateChanged.await();
+                    } catch (InterruptedException e) {
+                        throw new UncheckedException(e);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void taskCompleted(TaskNode node, Throwable taskFailure) {
+            lock.lock();
+            try {
+                remainingTasks--;
+                if (taskFailure != null) {
+                    if (failure == null) {
+                        failure = taskFailure;
+                    }
+                } else {
+                    for (TaskNode dependent : node.dependents) {
+                        dependent.remainingDependencies--;
+                        if (dependent.remainingDependencies == 0) {
+                            readyTasks.add(dependent);
+                        }
+                    }
+                }
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void rethrowFailure() {
+            if (failure == null) {
+                return;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw UncheckedException.asUncheckedException(failure);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.Task;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+
+/**
+ * A {@link TaskExecutionTimes} which keeps the execution time of each task in the build's persistent cache, keyed by
+ * task path. The expected time is a running average, so that a single unusually fast or slow execution does not
+ * dominate.
+ */
+public class PersistentTaskExecutionTimes implements TaskExecutionTimes {
+    private final CacheRepository repository;
+    private PersistentIndexedCache<String, Long> cache;
+
+    public PersistentTaskExecutionTimes(CacheRepository repository) {
+        this.repository = repository;
+    }
+
+    public synchronized Long getExpectedTime(Task task) {
+        return getCache(task).get(task.getPath());
+    }
+
+    public synchronized void recordTime(Task task, long executionTime) {
+        PersistentIndexedCache<String, Long> cache = getCache(task);
+        Long previous = cache.get(task.getPath());
+        long expected = previous == null ? executionTime : (previous + executionTime) / 2;
+        cache.put(task.getPath(), expected);
+    }
+
+    private PersistentIndexedCache<String, Long> getCache(Task task) {
+        if (cache == null) {
+            cache = repository.cache("taskExecutionTimes").forObject(task.getProject().getGradle()).open().openIndexedCache();
+        }
+        return cache;
+    }
+}
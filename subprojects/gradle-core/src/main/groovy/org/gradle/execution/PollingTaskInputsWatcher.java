@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.Task;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * A {@link TaskInputsWatcher} which periodically compares the size and modification time of the input files of each
+ * task with the recorded values.
+ */
+public class PollingTaskInputsWatcher implements TaskInputsWatcher {
+    private final long pollInterval;
+    private final Map<Task, Map<File, FileState>> watchedTasks = new LinkedHashMap<Task, Map<File, FileState>>();
+
+    public PollingTaskInputsWatcher(long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    public void watch(Collection<? extends Task> tasks) {
+        for (Task task : tasks) {
+            Map<File, FileState> state = snapshot(task);
+            synchronized (watchedTasks) {
+                watchedTasks.put(task, state);
+            }
+        }
+    }
+
+    public Set<Task> waitForChanges() throws InterruptedException {
+        while (true) {
+            Map<Task, Map<File, FileState>> watched;
+            synchronized (watchedTasks) {
+                watched = new LinkedHashMap<Task, Map<File, FileState>>(watchedTasks);
+            }
+            Set<Task> changed = new LinkedHashSet<Task>();
+            for (Map.Entry<Task, Map<File, FileState>> entry : watched.entrySet()) {
+                if (!snapshot(entry.getKey()).equals(entry.getValue())) {
+                    changed.add(entry.getKey());
+                }
+            }
+            if (!changed.isEmpty()) {
+                return changed;
+            }
+            Thread.sleep(pollInterval);
+        }
+    }
+
+    private Map<File, FileState> snapshot(Task task) {
+        Map<File, FileState> files = new HashMap<File, FileState>();
+        for (File file : task.getInputs().getFiles().getAsFileTree()) {
+            files.put(file, new FileState(file.length(), file.lastModified()));
+        }
+        return files;
+    }
+
+    private static class FileState {
+        private final long length;
+        private final long lastModified;
+
+        private FileState(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            FileState other = (FileState) obj;
+            return length == other.length && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (length ^ lastModified);
+        }
+    }
+}
@@ -34,6 +34,7 @@ public class ProjectDefaultsBuildExecuter extends DelegatingBuildExecuter {
         if (getDelegate() == null) {
             // Gather the default tasks from this first group project
             ProjectInternal project = gradle.getDefaultProject();
+            project.evaluate();
             defaultTasks = project.getDefaultTasks();
             displayName = String.format("project default tasks %s", GUtil.toString(defaultTasks));
             if (defaultTasks.size() == 0) {
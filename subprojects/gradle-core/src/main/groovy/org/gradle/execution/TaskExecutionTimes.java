@@ -0,0 +1,36 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.Task;
+
+/**
+ * Records how long tasks took to execute, so that later builds can schedule long running tasks first.
+ * Implementations must be thread-safe.
+ */
+public interface TaskExecutionTimes {
+    /**
+     * Returns the expected execution time of the given task, in milliseconds.
+     *
+     * @return The expected time, or null when the task has not been executed before.
+     */
+    Long getExpectedTime(Task task);
+
+    /**
+     * Records the time the given task took to execute, in milliseconds.
+     */
+    void recordTime(Task task, long executionTime);
+}
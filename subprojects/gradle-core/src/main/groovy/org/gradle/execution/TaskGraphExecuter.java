@@ -26,6 +26,11 @@ public interface TaskGraphExecuter extends TaskExecutionGraph {
      */
     void useFilter(Spec<? super Task> filter);
 
+    /**
+     * Returns the filter which is used when adding tasks to this graph.
+     */
+    Spec<? super Task> getFilter();
+
     /**
      * Adds the given tasks and their dependencies to this graph. Tasks are executed in an arbitrary order. The tasks
      * are executed before any tasks from a subsequent call to this method are executed.
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.Task;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Watches the input files of a set of tasks for changes.
+ */
+public interface TaskInputsWatcher {
+    /**
+     * Starts watching the given tasks, and records the current state of their input files. Replaces any state
+     * previously recorded for these tasks. Other watched tasks are still watched. May be called from any thread.
+     */
+    void watch(Collection<? extends Task> tasks);
+
+    /**
+     * Blocks until the input files of one or more of the watched tasks have changed since they were recorded.
+     *
+     * @return The tasks whose input files have changed. Never empty.
+     */
+    Set<Task> waitForChanges() throws InterruptedException;
+}
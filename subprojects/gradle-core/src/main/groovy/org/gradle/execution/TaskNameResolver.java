@@ -30,10 +30,16 @@ public class TaskNameResolver {
     }
 
     public SetMultimap<String, Task> selectAll(String name, Project project) {
+        ((ProjectInternal) project).evaluate();
+        for (Project subproject : project.getSubprojects()) {
+            ((ProjectInternal) subproject).evaluate();
+        }
         return select(name, (ProjectInternal) project, project.getSubprojects());
     }
 
     private SetMultimap<String, Task> select(String name, ProjectInternal project, Iterable<Project> additionalProjects) {
+        // The project may not have been evaluated yet when projects are configured on demand
+        project.evaluate();
         SetMultimap<String, Task> selected = LinkedHashMultimap.create();
         Task task = project.getTasks().findByName(name);
         if (task != null) {
@@ -86,9 +86,12 @@ public class DefaultScriptCompilerFactory implements ScriptCompilerFactory {
                 classesDir = new File(cache.getBaseDir(), scriptBaseClass.getSimpleName());
             }
 
-            if (!cache.isValid() || !classesDir.exists()) {
-                scriptCompilationHandler.compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass);
-                cache.markValid();
+            // The same script may be compiled by projects which are evaluated concurrently
+            synchronized (cache) {
+                if (!cache.isValid() || !classesDir.exists()) {
+                    scriptCompilationHandler.compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass);
+                    cache.markValid();
+                }
             }
             Class<? extends T> scriptClass = scriptCompilationHandler.loadFromDir(source, classLoader, classesDir,
                     scriptBaseClass);
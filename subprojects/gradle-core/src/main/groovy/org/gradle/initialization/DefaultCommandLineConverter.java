@@ -19,6 +19,7 @@ import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import org.gradle.CacheUsage;
 import org.gradle.CommandLineArgumentException;
+import org.gradle.FileHashAlgorithm;
 import org.gradle.StartParameter;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.initialization.Settings;
@@ -29,6 +30,8 @@ import org.gradle.configuration.ImplicitTasksConfigurer;
 import org.gradle.logging.LoggingConfiguration;
 import org.gradle.logging.internal.LoggingCommandLineConverter;
 
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -59,6 +62,16 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
     private static final String NO_OPT = "no-opt";
     private static final String EXCLUDE_TASK = "x";
     private static final String PROFILE = "profile";
+    private static final String PARALLEL_THREADS = "parallel-threads";
+    private static final String PARALLEL_EVALUATION = "parallel-evaluation";
+    private static final String CONFIGURE_ON_DEMAND = "configure-on-demand";
+    private static final String CONTINUOUS = "continuous";
+    private static final String PREFETCH_INPUTS = "prefetch-inputs";
+    private static final String FILE_HASH = "file-hash";
+    private static final String TIMESTAMP_OUTPUTS = "timestamp-outputs";
+    private static final String BUILD_CACHE = "build-cache";
+    private static final String BUILD_CACHE_URL = "build-cache-url";
+    private static final String BUILD_CACHE_TIMEOUT = "build-cache-timeout";
 
     private static BiMap<String, StartParameter.ShowStacktrace> showStacktraceMap = HashBiMap.create();
     private final CommandLineConverter<LoggingConfiguration> loggingConfigurationCommandLineConverter = new LoggingCommandLineConverter();
@@ -96,6 +109,16 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
         parser.option(NO_OPT).hasDescription("Ignore any task optimization.");
         parser.option(EXCLUDE_TASK, "exclude-task").hasArguments().hasDescription("Specify a task to be excluded from execution.");
         parser.option(PROFILE).hasDescription("Profiles build execution time and generates a report in the <build_dir>/reports/profile directory.");
+        parser.option(PARALLEL_THREADS).hasArgument().hasDescription("Specifies the number of threads to use to execute independent tasks concurrently.");
+        parser.option(PARALLEL_EVALUATION).hasDescription("Evaluates independent projects concurrently.");
+        parser.option(CONFIGURE_ON_DEMAND).hasDescription("Only configures the projects required by the selected tasks.");
+        parser.option(CONTINUOUS).hasDescription("Keeps running and re-executes tasks when their input files change.");
+        parser.option(PREFETCH_INPUTS).hasDescription("Snapshots the input files of upcoming tasks in the background.");
+        parser.option(FILE_HASH).hasArgument().hasDescription("Specifies how the content of task input and output files should be hashed. Possible values are: 'md5' and 'murmur3'. Default value is 'md5'");
+        parser.option(TIMESTAMP_OUTPUTS).hasDescription("Hashes task output files only when their size or modification time has changed.");
+        parser.option(BUILD_CACHE).hasDescription("Restores task outputs from the build cache instead of executing tasks, when possible.");
+        parser.option(BUILD_CACHE_URL).hasArgument().hasDescription("Specifies the HTTP URL of a remote build cache to share task outputs with other machines.");
+        parser.option(BUILD_CACHE_TIMEOUT).hasArgument().hasDescription("Specifies the timeout in milliseconds for requests to the remote build cache. Default value is 10000.");
     }
 
     @Override
@@ -206,6 +229,68 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
             startParameter.setProfile(true);
         }
 
+        if (options.hasOption(PARALLEL_THREADS)) {
+            String value = options.option(PARALLEL_THREADS).getValue();
+            try {
+                startParameter.setParallelThreadCount(Integer.parseInt(value));
+            } catch (IllegalArgumentException e) {
+                throw new CommandLineArgumentException(String.format(
+                        "Error: The --%s option requires a non-negative number of threads, got '%s'.", PARALLEL_THREADS, value));
+            }
+        }
+
+        if (options.hasOption(PARALLEL_EVALUATION)) {
+            startParameter.setParallelProjectEvaluation(true);
+        }
+
+        if (options.hasOption(CONFIGURE_ON_DEMAND)) {
+            startParameter.setConfigureOnDemand(true);
+        }
+
+        if (options.hasOption(CONTINUOUS)) {
+            startParameter.setContinuous(true);
+        }
+
+        if (options.hasOption(PREFETCH_INPUTS)) {
+            startParameter.setPrefetchInputSnapshots(true);
+        }
+
+        if (options.hasOption(FILE_HASH)) {
+            try {
+                startParameter.setFileHashAlgorithm(FileHashAlgorithm.fromString(options.option(FILE_HASH).getValue()));
+            } catch (InvalidUserDataException e) {
+                throw new CommandLineArgumentException(e.getMessage());
+            }
+        }
+
+        if (options.hasOption(TIMESTAMP_OUTPUTS)) {
+            startParameter.setTimestampOutputSnapshots(true);
+        }
+
+        if (options.hasOption(BUILD_CACHE)) {
+            startParameter.setBuildCacheEnabled(true);
+        }
+
+        if (options.hasOption(BUILD_CACHE_URL)) {
+            String value = options.option(BUILD_CACHE_URL).getValue();
+            try {
+                startParameter.setBuildCacheUrl(new URI(value));
+            } catch (URISyntaxException e) {
+                throw new CommandLineArgumentException(String.format(
+                        "Error: The --%s option requires a valid URL, got '%s'.", BUILD_CACHE_URL, value));
+            }
+        }
+
+        if (options.hasOption(BUILD_CACHE_TIMEOUT)) {
+            String value = options.option(BUILD_CACHE_TIMEOUT).getValue();
+            try {
+                startParameter.setBuildCacheTimeout(Integer.parseInt(value));
+            } catch (IllegalArgumentException e) {
+                throw new CommandLineArgumentException(String.format(
+                        "Error: The --%s option requires a non-negative number of milliseconds, got '%s'.", BUILD_CACHE_TIMEOUT, value));
+            }
+        }
+
         return startParameter;
     }
 
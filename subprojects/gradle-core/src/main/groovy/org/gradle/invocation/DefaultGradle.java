@@ -23,9 +23,11 @@ import org.gradle.api.ProjectEvaluationListener;
 import org.gradle.api.internal.GradleDistributionLocator;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.project.IProjectRegistry;
+import org.gradle.api.internal.project.ProjectAccessListener;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ServiceRegistryFactory;
 import org.gradle.api.invocation.Gradle;
+import org.gradle.execution.ContinuousBuildListener;
 import org.gradle.execution.TaskGraphExecuter;
 import org.gradle.listener.ListenerManager;
 import org.gradle.util.DeprecationLogger;
@@ -168,6 +170,14 @@ public class DefaultGradle implements GradleInternal {
         return listenerManager.getBroadcaster(ProjectEvaluationListener.class);
     }
 
+    public ProjectAccessListener getProjectAccessBroadcaster() {
+        return listenerManager.getBroadcaster(ProjectAccessListener.class);
+    }
+
+    public ContinuousBuildListener getContinuousBuildBroadcaster() {
+        return listenerManager.getBroadcaster(ContinuousBuildListener.class);
+    }
+
     public void addBuildListener(BuildListener buildListener) {
         addListener(buildListener);
     }
@@ -41,10 +41,20 @@ public class DefaultExecutorFactory implements ExecutorFactory, Stoppable {
         return executor;
     }
 
+    public StoppableExecutor create(String displayName, int fixedSize) {
+        StoppableExecutorImpl executor = new StoppableExecutorImpl(createExecutor(displayName, fixedSize));
+        executors.add(executor);
+        return executor;
+    }
+
     protected ExecutorService createExecutor(String displayName) {
         return Executors.newCachedThreadPool(new ThreadFactoryImpl(displayName));
     }
 
+    protected ExecutorService createExecutor(String displayName, int fixedSize) {
+        return Executors.newFixedThreadPool(fixedSize, new ThreadFactoryImpl(displayName));
+    }
+
     private class StoppableExecutorImpl implements StoppableExecutor {
         private final ExecutorService executor;
         private final ExceptionTrackingListener exceptionListener;
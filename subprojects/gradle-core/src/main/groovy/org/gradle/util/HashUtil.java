@@ -18,10 +18,11 @@ package org.gradle.util;
 import org.gradle.api.UncheckedIOException;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.io.File;
-import java.io.InputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 
@@ -29,6 +30,16 @@ import java.io.IOException;
  * @author Hans Dockter
  */
 public class HashUtil {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    static final long MAPPED_HASH_THRESHOLD = 8 * 1024 * 1024;
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+    };
+
     public static String createHash(String scriptText) {
         MessageDigest messageDigest;
         try {
@@ -40,7 +51,16 @@ public class HashUtil {
         return new BigInteger(1, messageDigest.digest()).toString(16);
     }
 
+    /**
+     * Calculates the MD5 hash of the content of the given file. The file is read through a {@link FileChannel} into a
+     * reusable direct buffer. Files of {@value #MAPPED_HASH_THRESHOLD} bytes or more are memory mapped instead, except
+     * on Windows, where a mapped file cannot be deleted until the mapping is garbage collected.
+     */
     public static byte[] createHash(File file) {
+        return createHash(file, OperatingSystem.current().isWindows() ? Long.MAX_VALUE : MAPPED_HASH_THRESHOLD);
+    }
+
+    static byte[] createHash(File file, long mappedHashThreshold) {
         MessageDigest messageDigest;
         try {
             messageDigest = MessageDigest.getInstance("MD5");
@@ -48,15 +68,23 @@ public class HashUtil {
             throw UncheckedException.asUncheckedException(e);
         }
         try {
-            byte[] buffer = new byte[4096];
-            InputStream instr = new FileInputStream(file);
+            FileInputStream instr = new FileInputStream(file);
             try {
-                while (true) {
-                    int nread = instr.read(buffer);
-                    if (nread < 0) {
-                        break;
+                FileChannel channel = instr.getChannel();
+                long size = channel.size();
+                if (size >= mappedHashThreshold) {
+                    for (long pos = 0; pos < size; pos += MAPPED_REGION_SIZE) {
+                        messageDigest.update(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(
+                                MAPPED_REGION_SIZE, size - pos)));
+                    }
+                } else {
+                    ByteBuffer buffer = BUFFERS.get();
+                    buffer.clear();
+                    while (channel.read(buffer) >= 0) {
+                        buffer.flip();
+                        messageDigest.update(buffer);
+                        buffer.clear();
                     }
-                    messageDigest.update(buffer, 0, nread);
                 }
             } finally {
                 instr.close();
@@ -23,6 +23,7 @@ import org.gradle.api.logging.LogLevel
 import org.gradle.execution.BuildExecuter
 import org.gradle.execution.DefaultBuildExecuter
 import org.gradle.execution.DryRunBuildExecuter
+import org.gradle.execution.ContinuousBuildExecuter
 import org.gradle.groovy.scripts.ScriptSource
 import org.gradle.groovy.scripts.StringScriptSource
 import org.gradle.groovy.scripts.UriScriptSource
@@ -61,6 +62,16 @@ class StartParameterTest {
         testObj.cacheUsage = CacheUsage.ON
         testObj.logLevel = LogLevel.WARN
         testObj.colorOutput = false
+        testObj.parallelThreadCount = 4
+        testObj.parallelProjectEvaluation = true
+        testObj.configureOnDemand = true
+        testObj.continuous = true
+        testObj.prefetchInputSnapshots = true
+        testObj.fileHashAlgorithm = FileHashAlgorithm.MURMUR3
+        testObj.timestampOutputSnapshots = true
+        testObj.buildCacheEnabled = true
+        testObj.buildCacheUrl = new URI('http://localhost/cache/')
+        testObj.buildCacheTimeout = 500
 
         StartParameter startParameter = testObj.newInstance()
         assertEquals(testObj, startParameter)
@@ -83,6 +94,16 @@ class StartParameterTest {
         assertThat(parameter.buildExecuter, instanceOf(DefaultBuildExecuter))
         assertThat(parameter.defaultProjectSelector, reflectionEquals(new DefaultProjectSpec(parameter.currentDir)))
         assertFalse(parameter.dryRun)
+        assertThat(parameter.parallelThreadCount, equalTo(0))
+        assertFalse(parameter.parallelProjectEvaluation)
+        assertFalse(parameter.configureOnDemand)
+        assertFalse(parameter.continuous)
+        assertFalse(parameter.prefetchInputSnapshots)
+        assertThat(parameter.fileHashAlgorithm, equalTo(FileHashAlgorithm.MD5))
+        assertFalse(parameter.timestampOutputSnapshots)
+        assertFalse(parameter.buildCacheEnabled)
+        assertThat(parameter.buildCacheUrl, nullValue())
+        assertThat(parameter.buildCacheTimeout, equalTo(10000))
     }
 
     @Test public void testDefaultWithGradleUserHomeSystemProp() {
@@ -217,6 +238,17 @@ class StartParameterTest {
         assertThat(parameter.buildExecuter, sameInstance(originalExecuter))
     }
 
+    @Test public void testWrapsExecuterWhenContinuousIsTrue() {
+        StartParameter parameter = new StartParameter()
+        def originalExecuter = [:] as BuildExecuter
+        parameter.buildExecuter = originalExecuter
+        parameter.continuous = true
+        assertThat(parameter.buildExecuter, instanceOf(ContinuousBuildExecuter))
+        assertThat(parameter.buildExecuter.delegate, sameInstance(originalExecuter))
+        parameter.continuous = false
+        assertThat(parameter.buildExecuter, sameInstance(originalExecuter))
+    }
+
     @Test public void testNewBuild() {
         StartParameter parameter = new StartParameter()
 
@@ -224,6 +256,8 @@ class StartParameterTest {
         parameter.gradleUserHomeDir = new File("home")
         parameter.cacheUsage = CacheUsage.REBUILD
         parameter.logLevel = LogLevel.DEBUG
+        parameter.fileHashAlgorithm = FileHashAlgorithm.MURMUR3
+        parameter.timestampOutputSnapshots = true
         parameter.colorOutput = false
 
         // Non-copied
@@ -243,6 +277,8 @@ class StartParameterTest {
         assertThat(newParameter.cacheUsage, equalTo(parameter.cacheUsage));
         assertThat(newParameter.logLevel, equalTo(parameter.logLevel));
         assertThat(newParameter.colorOutput, equalTo(parameter.colorOutput));
+        assertThat(newParameter.fileHashAlgorithm, equalTo(parameter.fileHashAlgorithm));
+        assertThat(newParameter.timestampOutputSnapshots, equalTo(parameter.timestampOutputSnapshots));
 
         assertThat(newParameter.buildFile, nullValue())
         assertThat(newParameter.taskNames, isEmpty())
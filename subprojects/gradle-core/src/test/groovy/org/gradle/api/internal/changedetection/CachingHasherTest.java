@@ -19,6 +19,7 @@ import org.gradle.cache.*;
 
 import static org.gradle.util.Matchers.*;
 import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
 import static org.hamcrest.Matchers.*;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
@@ -30,6 +31,7 @@ import org.junit.Before;
 import org.junit.runner.RunWith;
 
 import java.io.File;
+import java.util.Collections;
 
 @RunWith(JMock.class)
 public class CachingHasherTest {
@@ -41,7 +43,7 @@ public class CachingHasherTest {
             PersistentIndexedCache.class);
     private final CacheRepository cacheRepository = context.mock(CacheRepository.class);
     private final byte[] hash = "hash".getBytes();
-    private final File file = tmpDir.createFile("testfile").write("content");
+    private final TestFile file = tmpDir.createFile("testfile").write("content");
     private CachingHasher hasher;
 
     @Before
@@ -53,13 +55,18 @@ public class CachingHasherTest {
             one(cacheRepository).cache("fileHashes");
             will(returnValue(cacheBuilder));
 
+            one(cacheBuilder).withProperties(Collections.singletonMap("algorithm", "MD5"));
+            will(returnValue(cacheBuilder));
+
             one(cacheBuilder).open();
             will(returnValue(persistentCache));
 
-            one(persistentCache).openIndexedCache(with(notNullValue(Serializer.class)));
+            one(persistentCache).openIndexedCache(with(notNullValue(Serializer.class)), with(equal(
+                    CachingHasher.BLOCK_CACHE_SIZE)));
             will(returnValue(cache));
         }});
-        hasher = new CachingHasher(delegate, cacheRepository);
+        hasher = new CachingHasher(delegate, "MD5", cacheRepository, 2, 2);
+        file.setLastModified(file.lastModified() - 10000);
     }
 
     @Test
@@ -69,11 +76,16 @@ public class CachingHasherTest {
             will(returnValue(null));
             one(delegate).hash(file);
             will(returnValue(hash));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        context.checking(new Expectations() {{
             one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
                     file.lastModified()))));
         }});
 
-        assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
     }
 
     @Test
@@ -83,11 +95,16 @@ public class CachingHasherTest {
             will(returnValue(new CachingHasher.FileInfo(hash, 1078, file.lastModified())));
             one(delegate).hash(file);
             will(returnValue(hash));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        context.checking(new Expectations() {{
             one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
                     file.lastModified()))));
         }});
 
-        assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
     }
 
     @Test
@@ -97,11 +114,50 @@ public class CachingHasherTest {
             will(returnValue(new CachingHasher.FileInfo(hash, file.length(), 12)));
             one(delegate).hash(file);
             will(returnValue(hash));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        context.checking(new Expectations() {{
             one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
                     file.lastModified()))));
         }});
 
+        hasher.flush();
+    }
+
+    @Test
+    public void doesNotCacheHashAfterBuildWhenFileWasModifiedRecently() {
+        file.setLastModified(System.currentTimeMillis());
+        context.checking(new Expectations() {{
+            exactly(2).of(cache).get(file);
+            will(returnValue(null));
+            exactly(2).of(delegate).hash(file);
+            will(returnValue(hash));
+        }});
+
         assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
+        hasher.buildFinished(null);
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
+    }
+
+    @Test
+    public void usesHashOfFileWrittenDuringBuildWhenFileHashedAgain() {
+        final TestFile written = tmpDir.createFile("written").write("content");
+        context.checking(new Expectations() {{
+            one(cache).get(written);
+            will(returnValue(null));
+            one(delegate).hash(written);
+            will(returnValue(hash));
+        }});
+
+        assertThat(hasher.hash(written), sameInstance(hash));
+        assertThat(hasher.hash(written), sameInstance(hash));
+
+        hasher.flush();
     }
 
     @Test
@@ -113,4 +169,159 @@ public class CachingHasherTest {
 
         assertThat(hasher.hash(file), sameInstance(hash));
     }
+
+    @Test
+    public void usesHashHeldInMemoryWhenFileHashedAgain() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.getHitCount(), equalTo(1L));
+        assertThat(hasher.getMissCount(), equalTo(1L));
+    }
+
+    @Test
+    public void usesNewHashWhichHasNotBeenWrittenWhenFileHashedAgain() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void hashesFileAgainWhenFileChangesAfterHashHeldInMemory() {
+        final byte[] newHash = "new hash".getBytes();
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        file.write("new content");
+
+        context.checking(new Expectations() {{
+            one(delegate).hash(file);
+            will(returnValue(newHash));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(newHash));
+    }
+
+    @Test
+    public void keepsHashesCalculatedDuringBuildInMemoryUntilBuildFinishes() {
+        final TestFile other1 = tmpDir.createFile("other1").write("other");
+        final TestFile other2 = tmpDir.createFile("other2").write("other");
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+            one(cache).get(other1);
+            will(returnValue(new CachingHasher.FileInfo(hash, other1.length(), other1.lastModified())));
+            one(cache).get(other2);
+            will(returnValue(new CachingHasher.FileInfo(hash, other2.length(), other2.lastModified())));
+        }});
+
+        hasher.hash(file);
+        hasher.hash(other1);
+        hasher.hash(other2);
+
+        // More entries have been used than the in-memory cache can hold
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void releasesHashesCalculatedDuringBuildWhenContinuousBuildIterationFinishes() {
+        final TestFile other1 = tmpDir.createFile("other1").write("other");
+        final TestFile other2 = tmpDir.createFile("other2").write("other");
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+            one(cache).put(with(equalTo(file)), with(notNullValue(CachingHasher.FileInfo.class)));
+            one(cache).get(other1);
+            will(returnValue(new CachingHasher.FileInfo(hash, other1.length(), other1.lastModified())));
+            one(cache).get(other2);
+            will(returnValue(new CachingHasher.FileInfo(hash, other2.length(), other2.lastModified())));
+        }});
+
+        hasher.hash(file);
+        hasher.flush();
+        hasher.iterationFinished();
+        hasher.hash(other1);
+        hasher.hash(other2);
+
+        // More entries have been used than the in-memory cache can hold
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+    }
+
+    @Test
+    public void writesHashesWhenBatchIsFull() {
+        final File other = tmpDir.createFile("other").write("other");
+        other.setLastModified(other.lastModified() - 10000);
+        context.checking(new Expectations() {{
+            allowing(cache).get(with(notNullValue(File.class)));
+            will(returnValue(null));
+            allowing(delegate).hash(with(notNullValue(File.class)));
+            will(returnValue(hash));
+        }});
+
+        hasher.hash(file);
+
+        context.checking(new Expectations() {{
+            one(cache).put(with(equalTo(file)), with(notNullValue(CachingHasher.FileInfo.class)));
+            one(cache).put(with(equalTo(other)), with(notNullValue(CachingHasher.FileInfo.class)));
+        }});
+
+        hasher.hash(other);
+        hasher.flush();
+    }
+
+    @Test
+    public void writesPendingHashesWhenClosed() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+        }});
+
+        hasher.hash(file);
+
+        context.checking(new Expectations() {{
+            one(cache).put(with(equalTo(file)), with(notNullValue(CachingHasher.FileInfo.class)));
+        }});
+
+        hasher.close();
+    }
+
+    @Test
+    public void doesNotWriteToCacheWhenBuildFinishes() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+        }});
+
+        hasher.hash(file);
+
+        // The persistent cache may already have been closed at this point
+        hasher.buildFinished(null);
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ClasspathEntryHasherTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final Hasher delegate = new DefaultHasher();
+    private final ClasspathEntryHasher hasher = new ClasspathEntryHasher(delegate);
+
+    @Test
+    public void hashIsIndependentOfEntryTimestamps() throws IOException {
+        TestFile jar1 = jar("lib1.jar", 1000, "a.class", "a", "b.class", "b");
+        TestFile jar2 = jar("lib2.jar", 2000000, "a.class", "a", "b.class", "b");
+
+        assertThat(hasher.hash(jar1), equalTo(hasher.hash(jar2)));
+        assertThat(delegate.hash(jar1), not(equalTo(delegate.hash(jar2))));
+    }
+
+    @Test
+    public void hashIsIndependentOfEntryOrder() throws IOException {
+        TestFile jar1 = jar("lib1.jar", 1000, "a.class", "a", "b.class", "b");
+        TestFile jar2 = jar("lib2.jar", 1000, "b.class", "b", "a.class", "a");
+
+        assertThat(hasher.hash(jar1), equalTo(hasher.hash(jar2)));
+    }
+
+    @Test
+    public void hashIgnoresManifestAndMavenMetadata() throws IOException {
+        TestFile jar1 = jar("lib1.jar", 1000, "a.class", "a", "META-INF/MANIFEST.MF", "Built-At: 1");
+        TestFile jar2 = jar("lib2.jar", 1000, "a.class", "a", "META-INF/MANIFEST.MF", "Built-At: 2",
+                "META-INF/maven/group/lib/pom.properties", "version=1");
+
+        assertThat(hasher.hash(jar1), equalTo(hasher.hash(jar2)));
+    }
+
+    @Test
+    public void hashChangesWhenEntryContentChanges() throws IOException {
+        TestFile jar1 = jar("lib1.jar", 1000, "a.class", "a");
+        TestFile jar2 = jar("lib2.jar", 1000, "a.class", "b");
+
+        assertThat(hasher.hash(jar1), not(equalTo(hasher.hash(jar2))));
+    }
+
+    @Test
+    public void hashChangesWhenEntryIsRenamed() throws IOException {
+        TestFile jar1 = jar("lib1.jar", 1000, "a.class", "a");
+        TestFile jar2 = jar("lib2.jar", 1000, "b.class", "a");
+
+        assertThat(hasher.hash(jar1), not(equalTo(hasher.hash(jar2))));
+    }
+
+    @Test
+    public void hashChangesWhenContentMovesBetweenEntries() throws IOException {
+        TestFile jar1 = jar("lib1.jar", 1000, "a.class", "ab", "b.class", "");
+        TestFile jar2 = jar("lib2.jar", 1000, "a.class", "a", "b.class", "b");
+
+        assertThat(hasher.hash(jar1), not(equalTo(hasher.hash(jar2))));
+    }
+
+    @Test
+    public void usesDelegateToHashFilesWhichAreNotArchives() {
+        TestFile file = tmpDir.file("a.class").write("content");
+
+        assertThat(hasher.hash(file), equalTo(delegate.hash(file)));
+    }
+
+    @Test
+    public void usesDelegateToHashArchivesWhichCannotBeRead() {
+        TestFile file = tmpDir.file("broken.jar").write("not a zip");
+
+        assertThat(hasher.hash(file), equalTo(delegate.hash(file)));
+    }
+
+    private TestFile jar(String name, long entryTime, String... entries) throws IOException {
+        TestFile jar = tmpDir.file(name);
+        ZipOutputStream outstr = new ZipOutputStream(new FileOutputStream(jar));
+        try {
+            for (int i = 0; i < entries.length; i += 2) {
+                ZipEntry entry = new ZipEntry(entries[i]);
+                entry.setTime(entryTime);
+                outstr.putNextEntry(entry);
+                outstr.write(entries[i + 1].getBytes());
+                outstr.closeEntry();
+            }
+        } finally {
+            outstr.close();
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.file.SimpleFileCollection;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the throughput of {@link DefaultFileSnapshotter} as the number of hashing threads increases. This is not
+ * run as part of the test suite. Run it from the IDE or the command-line with:
+ *
+ * <pre>DefaultFileSnapshotterBenchmark [fileCount] [fileSizeInKb]</pre>
+ */
+public class DefaultFileSnapshotterBenchmark {
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int fileSize = (args.length > 1 ? Integer.parseInt(args[1]) : 64) * 1024;
+
+        File dir = File.createTempFile("snapshotter", "benchmark");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            FileCollection files = createFiles(dir, fileCount, fileSize);
+            System.out.println(String.format("Hashing %d files of %d KB", fileCount, fileSize / 1024));
+
+            int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+            for (int threadCount = 1; threadCount <= maxThreads; threadCount *= 2) {
+                run(files, threadCount, fileCount);
+            }
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    private static void run(FileCollection files, int threadCount, int fileCount) {
+        DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
+        try {
+            DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(new DefaultHasher(),
+                    executorFactory.create("File hasher", threadCount), threadCount);
+
+            // Warm up
+            snapshotter.snapshot(files);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                snapshotter.snapshot(files);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            double filesPerSecond = (double) fileCount * ITERATIONS / elapsed * 1000000000L;
+            System.out.println(String.format("%2d threads: %8.0f files/s, %6d ms/snapshot", threadCount,
+                    filesPerSecond, elapsed / ITERATIONS / 1000000L));
+        } finally {
+            executorFactory.stop();
+        }
+    }
+
+    private static FileCollection createFiles(File dir, int fileCount, int fileSize) throws IOException {
+        Random random = new Random(0);
+        byte[] content = new byte[fileSize];
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < fileCount; i++) {
+            File file = new File(dir, "file" + i);
+            random.nextBytes(content);
+            FileOutputStream outstr = new FileOutputStream(file);
+            try {
+                outstr.write(content);
+            } finally {
+                outstr.close();
+            }
+            files.add(file);
+        }
+        return new SimpleFileCollection(files);
+    }
+}
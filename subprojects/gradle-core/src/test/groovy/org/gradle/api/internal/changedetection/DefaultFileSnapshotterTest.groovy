@@ -29,6 +29,10 @@ import org.gradle.util.TestFile
 import org.gradle.api.file.FileCollection
 import org.gradle.util.ChangeListener
 import org.gradle.api.file.FileTree
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import org.gradle.messaging.concurrent.StoppableExecutor
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
 
 @RunWith(JMock.class)
 public class DefaultFileSnapshotterTest {
@@ -316,6 +320,179 @@ public class DefaultFileSnapshotterTest {
         target.changesSince(snapshotter.snapshot(), listener)
     }
 
+    @Test
+    public void snapshotHashedUsingMultipleThreadsIsTheSameAsSnapshotHashedUsingSingleThread() {
+        List<File> testFiles = (1..100).collect { tmpDir.file("file$it").write("content $it") }
+        testFiles << tmpDir.createDir('dir')
+        testFiles << tmpDir.file('missing')
+        DefaultExecutorFactory executorFactory = new DefaultExecutorFactory()
+        StoppableExecutor executor = executorFactory.create('File hasher', 3)
+        DefaultFileSnapshotter parallelSnapshotter = new DefaultFileSnapshotter(hasher, executor, 4)
+
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(testFiles as File[]))
+        FileCollectionSnapshot parallelSnapshot = parallelSnapshotter.snapshot(files(testFiles as File[]))
+        FileCollectionSnapshot secondParallelSnapshot = parallelSnapshotter.snapshot(files(testFiles as File[]))
+        executor.stop()
+
+        assertThat(parallelSnapshot.files.files, equalTo(snapshot.files.files))
+        parallelSnapshot.changesSince(snapshot, listener)
+        snapshot.changesSince(parallelSnapshot, listener)
+        secondParallelSnapshot.changesSince(snapshot, listener)
+    }
+
+    @Test
+    public void notifiesListenerOfChangesInNestedDirectories() {
+        TestFile unchanged = tmpDir.file('a/b/unchanged').write('content')
+        TestFile modified = tmpDir.file('a/b/c/modified').write('content')
+        TestFile removed = tmpDir.file('a/d/removed').write('content')
+        TestFile added = tmpDir.file('a/e/added')
+
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(unchanged, modified, removed))
+
+        modified.write('new content')
+        added.write('content')
+
+        context.checking {
+            one(listener).changed(modified)
+            one(listener).removed(removed)
+            one(listener).added(added)
+        }
+        snapshotter.snapshot(files(unchanged, modified, added)).changesSince(snapshot, listener)
+    }
+
+    @Test
+    public void ignoresTimestampsOfEntriesInClasspathJars() {
+        DefaultFileSnapshotter classpathSnapshotter = new DefaultFileSnapshotter(hasher, new ClasspathEntryHasher(hasher), null, 1)
+        TestFile classpathJar = jar(tmpDir.file('lib.jar'), 1000)
+        TestFile otherJar = jar(tmpDir.file('other.jar'), 1000)
+
+        FileCollectionSnapshot snapshot = classpathSnapshotter.snapshot(files(classpathJar, otherJar), files(classpathJar))
+
+        jar(classpathJar, 2000)
+        jar(otherJar, 2000)
+
+        context.checking {
+            one(listener).changed(otherJar)
+        }
+        classpathSnapshotter.snapshot(files(classpathJar, otherJar), files(classpathJar)).changesSince(snapshot, listener)
+    }
+
+    @Test
+    public void canWriteAndReadSnapshot() {
+        TestFile file = tmpDir.createFile('file')
+        TestFile dir = tmpDir.createDir('dir')
+        TestFile noExist = tmpDir.file('missing')
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(file, dir, noExist))
+
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream()
+        SnapshotEncoder encoder = new SnapshotEncoder(outstr)
+        snapshotter.write(snapshot, encoder)
+        encoder.flush()
+        FileCollectionSnapshot copy = snapshotter.read(new SnapshotDecoder(new ByteArrayInputStream(outstr.toByteArray())))
+
+        assertThat(copy.files.files, equalTo(snapshot.files.files))
+        copy.changesSince(snapshot, listener)
+        snapshot.changesSince(copy, listener)
+
+        file.write('new content')
+
+        context.checking {
+            one(listener).changed(file)
+        }
+        snapshotter.snapshot(files(file, dir, noExist)).changesSince(copy, listener)
+    }
+
+    @Test
+    public void snapshotReadAfterRootDirectoryHasMovedHasSameHashAsSnapshotOfMovedFiles() {
+        TestFile rootDir = tmpDir.createDir('original')
+        TestFile file = rootDir.file('src/a/file').write('content')
+        TestFile dir = rootDir.file('src/b').createDir()
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(file, dir))
+
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream()
+        SnapshotEncoder encoder = new SnapshotEncoder(outstr, rootDir)
+        snapshotter.write(snapshot, encoder)
+        encoder.flush()
+
+        TestFile movedRootDir = tmpDir.createDir('moved')
+        TestFile movedFile = movedRootDir.file('src/a/file').write('content')
+        TestFile movedDir = movedRootDir.file('src/b').createDir()
+        FileCollectionSnapshot copy = snapshotter.read(new SnapshotDecoder(new ByteArrayInputStream(outstr.toByteArray()), movedRootDir))
+        FileCollectionSnapshot movedSnapshot = snapshotter.snapshot(files(movedFile, movedDir))
+
+        assertThat(copy.topPath, equalTo(movedSnapshot.topPath))
+        assertThat(copy.topHash, equalTo(movedSnapshot.topHash))
+        movedSnapshot.changesSince(copy, listener)
+    }
+
+    @Test
+    public void notifiesListenerWhenFilesWithSameContentAreInAnotherDirectory() {
+        TestFile file = tmpDir.file('a/file').write('content')
+        TestFile other = tmpDir.file('b/file').write('content')
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(file))
+
+        context.checking {
+            one(listener).removed(file)
+            one(listener).added(other)
+        }
+        snapshotter.snapshot(files(other)).changesSince(snapshot, listener)
+    }
+
+    @Test
+    public void usesRecordedHashWhenSizeAndModificationTimeHaveNotChanged() {
+        CountingHasher countingHasher = new CountingHasher()
+        DefaultFileSnapshotter metadataSnapshotter = new DefaultFileSnapshotter(countingHasher, null, 1, true)
+        TestFile file = tmpDir.file('file').write('content')
+        TestFile other = tmpDir.file('other').write('content')
+
+        FileCollectionSnapshot snapshot = metadataSnapshotter.snapshot(files(file, other), metadataSnapshotter.snapshot())
+        assertThat(countingHasher.count, equalTo(2))
+
+        other.write('new content')
+        FileCollectionSnapshot newSnapshot = metadataSnapshotter.snapshot(files(file, other), snapshot)
+        assertThat(countingHasher.count, equalTo(3))
+
+        context.checking {
+            one(listener).changed(other)
+        }
+        newSnapshot.changesSince(snapshot, listener)
+    }
+
+    @Test
+    public void fileHasNotChangedWhenTouchedWithSameContent() {
+        CountingHasher countingHasher = new CountingHasher()
+        DefaultFileSnapshotter metadataSnapshotter = new DefaultFileSnapshotter(countingHasher, null, 1, true)
+        TestFile file = tmpDir.file('file').write('content')
+        FileCollectionSnapshot snapshot = metadataSnapshotter.snapshot(files(file), metadataSnapshotter.snapshot())
+
+        file.setLastModified(file.lastModified() - 10000)
+        FileCollectionSnapshot touched = metadataSnapshotter.snapshot(files(file), snapshot)
+        touched.changesSince(snapshot, listener)
+
+        // The merged snapshot records the latest modification time, so the file is not hashed again
+        FileCollectionSnapshot merged = touched.changesSince(snapshot).applyTo(snapshot)
+        metadataSnapshotter.snapshot(files(file), merged)
+        assertThat(countingHasher.count, equalTo(2))
+    }
+
+    @Test
+    public void canWriteAndReadSnapshotWithMetadata() {
+        CountingHasher countingHasher = new CountingHasher()
+        DefaultFileSnapshotter metadataSnapshotter = new DefaultFileSnapshotter(countingHasher, null, 1, true)
+        TestFile file = tmpDir.file('file').write('content')
+        TestFile dir = tmpDir.createDir('dir')
+        FileCollectionSnapshot snapshot = metadataSnapshotter.snapshot(files(file, dir), metadataSnapshotter.snapshot())
+
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream()
+        SnapshotEncoder encoder = new SnapshotEncoder(outstr)
+        metadataSnapshotter.write(snapshot, encoder)
+        encoder.flush()
+        FileCollectionSnapshot copy = metadataSnapshotter.read(new SnapshotDecoder(new ByteArrayInputStream(outstr.toByteArray())))
+
+        metadataSnapshotter.snapshot(files(file, dir), copy).changesSince(snapshot, listener)
+        assertThat(countingHasher.count, equalTo(1))
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = context.mock(FileTree.class)
         context.checking {
@@ -326,5 +503,26 @@ public class DefaultFileSnapshotterTest {
         }
         return collection
     }
-    
+
+    private TestFile jar(TestFile file, long entryTime) {
+        file.withOutputStream { outstr ->
+            ZipOutputStream zipStream = new ZipOutputStream(outstr)
+            ZipEntry entry = new ZipEntry('a.class')
+            entry.time = entryTime
+            zipStream.putNextEntry(entry)
+            zipStream.write('content'.bytes)
+            zipStream.close()
+        }
+        return file
+    }
+
+    private static class CountingHasher implements Hasher {
+        private final Hasher hasher = new DefaultHasher()
+        int count
+
+        byte[] hash(File file) {
+            count++
+            return hasher.hash(file)
+        }
+    }
 }
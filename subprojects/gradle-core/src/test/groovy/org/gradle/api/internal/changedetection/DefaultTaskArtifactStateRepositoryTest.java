@@ -20,20 +20,26 @@ import org.gradle.api.DefaultTask;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.invocation.Gradle;
+import org.gradle.api.tasks.TaskInputChanges;
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
 import org.gradle.util.*;
 import org.hamcrest.Matcher;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.*;
 
@@ -82,7 +88,7 @@ public class DefaultTaskArtifactStateRepositoryTest {
         }});
 
         FileSnapshotter inputFilesSnapshotter = new DefaultFileSnapshotter(new DefaultHasher());
-        FileSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(inputFilesSnapshotter, new RandomLongIdGenerator(), cacheRepository);
+        OutputFilesSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(inputFilesSnapshotter, new RandomLongIdGenerator(), cacheRepository);
         repository = new DefaultTaskArtifactStateRepository(cacheRepository, inputFilesSnapshotter, outputFilesSnapshotter);
     }
 
@@ -393,6 +399,53 @@ public class DefaultTaskArtifactStateRepositoryTest {
         assertThat(state.getOutputFiles().getFiles(), equalTo(toLinkedSet((File) outputFile, outputDirFile, outputDirFile2)));
     }
 
+    @Test
+    public void inputChangesAreNotIncrementalWhenTaskHasNeverBeenExecuted() {
+        expectEmptyCacheLocated();
+
+        TaskInternal task = task();
+        TaskInputChanges changes = repository.getStateFor(task).getInputChanges();
+        assertFalse(changes.isIncremental());
+        assertThat(changes.getOutOfDateFiles().getFiles(), equalTo(task.getInputs().getFiles().getFiles()));
+        assertThat(changes.getRemovedFiles().getFiles(), isEmpty());
+    }
+
+    @Test
+    public void inputChangesContainInputFilesChangedSincePreviousExecution() {
+        execute();
+
+        inputFile.write("some new content");
+        inputDirFile.delete();
+        TestFile addedFile = inputDir.file("other-file").createFile();
+
+        TaskInputChanges changes = repository.getStateFor(task()).getInputChanges();
+        assertTrue(changes.isIncremental());
+        assertThat(changes.getOutOfDateFiles().getFiles(), equalTo(toSet((File) inputFile, addedFile)));
+        assertThat(changes.getRemovedFiles().getFiles(), equalTo(toSet((File) inputDirFile)));
+    }
+
+    @Test
+    public void inputChangesAreEmptyWhenNothingHasChangedSincePreviousExecution() {
+        execute();
+
+        TaskInputChanges changes = repository.getStateFor(task()).getInputChanges();
+        assertTrue(changes.isIncremental());
+        assertThat(changes.getOutOfDateFiles().getFiles(), isEmpty());
+        assertThat(changes.getRemovedFiles().getFiles(), isEmpty());
+    }
+
+    @Test
+    public void inputChangesAreNotIncrementalWhenAnyInputPropertyValueChanged() {
+        execute();
+
+        inputFile.write("some new content");
+
+        TaskInputChanges changes = repository.getStateFor(builder().withProperty("prop", "new value").task())
+                .getInputChanges();
+        assertFalse(changes.isIncremental());
+        assertThat(changes.getRemovedFiles().getFiles(), isEmpty());
+    }
+
     @Test
     public void multipleTasksCanProduceFilesIntoTheSameOutputDirectory() {
         TaskInternal task1 = task();
@@ -578,11 +631,18 @@ public class DefaultTaskArtifactStateRepositoryTest {
             one(builder).forObject(gradle);
             will(returnValue(builder));
 
+            one(builder).withProperties(with(notNullValue(Map.class)));
+            will(returnValue(builder));
+
             one(builder).open();
             will(returnValue(persistentCache));
             
-            one(persistentCache).openIndexedCache();
-            will(returnValue(new TestIndexedCache()));
+            one(persistentCache).openIndexedCache(with(notNullValue(Serializer.class)));
+            will(new CustomAction("open serializing cache") {
+                public Object invoke(Invocation invocation) throws Throwable {
+                    return new SerializingIndexedCache((Serializer<Object>) invocation.getParameter(0));
+                }
+            });
         }});
     }
 
@@ -684,4 +744,39 @@ public class DefaultTaskArtifactStateRepositoryTest {
             entries.remove(key);
         }
     }
+
+    public static class SerializingIndexedCache implements PersistentIndexedCache<Object, Object> {
+        private final Map<Object, byte[]> entries = new HashMap<Object, byte[]>();
+        private final Serializer<Object> serializer;
+
+        public SerializingIndexedCache(Serializer<Object> serializer) {
+            this.serializer = serializer;
+        }
+
+        public Object get(Object key) {
+            byte[] serialized = entries.get(key);
+            if (serialized == null) {
+                return null;
+            }
+            try {
+                return serializer.read(new ByteArrayInputStream(serialized));
+            } catch (Exception e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+        }
+
+        public void put(Object key, Object value) {
+            ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+            try {
+                serializer.write(outstr, value);
+            } catch (Exception e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+            entries.put(key, outstr.toByteArray());
+        }
+
+        public void remove(Object key) {
+            entries.remove(key);
+        }
+    }
 }
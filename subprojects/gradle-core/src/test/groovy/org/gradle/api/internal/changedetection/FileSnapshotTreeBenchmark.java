@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.file.SimpleFileCollection;
+import org.gradle.util.NoOpChangeListener;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the time taken to snapshot a large file collection, write the snapshot to task history, and check a
+ * snapshot read back from task history for changes. The check is made both in the directory the history was written
+ * in and after the history has been moved to another root directory. This is not run as part of the test suite. Run
+ * it from the IDE or the command-line with:
+ *
+ * <pre>FileSnapshotTreeBenchmark [fileCount]</pre>
+ */
+public class FileSnapshotTreeBenchmark {
+    private static final int ITERATIONS = 20;
+    private static final int FILES_PER_DIR = 100;
+
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+
+        File dir = File.createTempFile("snapshot", "benchmark");
+        dir.delete();
+        try {
+            File rootDir = new File(dir, "original");
+            File movedRootDir = new File(dir, "moved");
+            SimpleFileCollection files = createFiles(rootDir, fileCount);
+            SimpleFileCollection movedFiles = createFiles(movedRootDir, fileCount);
+            DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(new NameHasher());
+            System.out.println(String.format("Snapshot of %d files", fileCount));
+
+            long snapshotTime = 0;
+            long writeTime = 0;
+            long checkTime = 0;
+            long movedCheckTime = 0;
+            // Warm up then measure
+            for (int pass = 0; pass < 2; pass++) {
+                snapshotTime = 0;
+                writeTime = 0;
+                checkTime = 0;
+                movedCheckTime = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    long start = System.nanoTime();
+                    FileCollectionSnapshot snapshot = snapshotter.snapshot(files);
+                    snapshotTime += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    byte[] history = write(snapshotter, snapshot, rootDir);
+                    writeTime += System.nanoTime() - start;
+
+                    FileCollectionSnapshot previous = read(snapshotter, history, rootDir);
+                    FileCollectionSnapshot current = snapshotter.snapshot(files);
+                    start = System.nanoTime();
+                    current.changesSince(previous, new NoOpChangeListener<File>());
+                    checkTime += System.nanoTime() - start;
+
+                    previous = read(snapshotter, history, movedRootDir);
+                    current = snapshotter.snapshot(movedFiles);
+                    start = System.nanoTime();
+                    current.changesSince(previous, new NoOpChangeListener<File>());
+                    movedCheckTime += System.nanoTime() - start;
+                }
+            }
+            System.out.println(String.format(
+                    "snapshot %5d ms, write %5d ms, up-to-date check %5d ms, up-to-date check after move %5d ms",
+                    snapshotTime / ITERATIONS / 1000000L, writeTime / ITERATIONS / 1000000L,
+                    checkTime / ITERATIONS / 1000000L, movedCheckTime / ITERATIONS / 1000000L));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    private static byte[] write(FileSnapshotter snapshotter, FileCollectionSnapshot snapshot, File rootDir)
+            throws IOException {
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+        SnapshotEncoder encoder = new SnapshotEncoder(outstr, rootDir);
+        snapshotter.write(snapshot, encoder);
+        encoder.flush();
+        return outstr.toByteArray();
+    }
+
+    private static FileCollectionSnapshot read(FileSnapshotter snapshotter, byte[] history, File rootDir)
+            throws IOException {
+        return snapshotter.read(new SnapshotDecoder(new ByteArrayInputStream(history), rootDir));
+    }
+
+    private static SimpleFileCollection createFiles(File dir, int fileCount) throws IOException {
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < fileCount; i++) {
+            File file = new File(dir, String.format("src/main/java/org/gradle/package%d/SomeSourceFile%d.java",
+                    i / FILES_PER_DIR, i));
+            file.getParentFile().mkdirs();
+            file.createNewFile();
+            files.add(file);
+        }
+        return new SimpleFileCollection(files);
+    }
+
+    /**
+     * Hashes the name of a file rather than its content, so that creating the snapshot is fast and a moved file has
+     * the same hash.
+     */
+    private static class NameHasher implements Hasher {
+        public byte[] hash(File file) {
+            try {
+                return MessageDigest.getInstance("MD5").digest(file.getName().getBytes());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
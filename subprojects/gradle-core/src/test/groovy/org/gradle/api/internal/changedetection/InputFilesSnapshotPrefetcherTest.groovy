@@ -0,0 +1,182 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.execution.TaskExecutionGraph
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.messaging.concurrent.ExecutorFactory
+import org.gradle.messaging.concurrent.StoppableExecutor
+import org.gradle.util.ChangeListener
+import org.gradle.util.HelperUtil
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class InputFilesSnapshotPrefetcherTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    private final FileSnapshotter snapshotter = Mock()
+    private final ExecutorFactory executorFactory = Mock()
+    private final StoppableExecutor executor = Mock()
+    private final TaskExecutionGraph graph = Mock()
+    private final FileCollectionSnapshot snapshot = Mock()
+    private final ProjectInternal project = HelperUtil.createRootProject()
+    private final InputFilesSnapshotPrefetcher prefetcher = new InputFilesSnapshotPrefetcher(snapshotter, executorFactory, 10)
+
+    def setup() {
+        _ * executorFactory.create(_) >> executor
+        _ * executor.execute(_) >> { args -> args[0].run() }
+    }
+
+    def usesPrefetchedSnapshotWhenInputFilesHaveNotChanged() {
+        TestFile inputFile = inputFile('input.txt')
+        DefaultTask task = task('a', inputFile)
+        _ * graph.allTasks >> [task]
+
+        when:
+        prefetcher.graphPopulated(graph)
+
+        then:
+        1 * snapshotter.snapshot(!null, !null) >> snapshot
+
+        when:
+        def result = prefetcher.takeSnapshot(task)
+
+        then:
+        result == snapshot
+    }
+
+    def discardsPrefetchedSnapshotWhenInputFileHasChanged() {
+        TestFile inputFile = inputFile('input.txt')
+        DefaultTask task = task('a', inputFile)
+        _ * graph.allTasks >> [task]
+        _ * snapshotter.snapshot(!null, !null) >> snapshot
+
+        when:
+        prefetcher.graphPopulated(graph)
+        inputFile.write('some new content')
+
+        then:
+        prefetcher.takeSnapshot(task) == null
+    }
+
+    def doesNotPrefetchInputsOfTaskWhichConsumesOutputOfAnotherTask() {
+        TestFile outputDir = tmpDir.createDir('build')
+        TestFile generatedFile = outputDir.file('generated.txt').createFile()
+        DefaultTask producer = task('producer', inputFile('input.txt'))
+        producer.outputs.dir(outputDir)
+        DefaultTask consumer = task('consumer', generatedFile)
+        _ * graph.allTasks >> [producer, consumer]
+
+        when:
+        prefetcher.graphPopulated(graph)
+
+        then:
+        1 * snapshotter.snapshot(!null, !null) >> snapshot
+        prefetcher.takeSnapshot(consumer) == null
+    }
+
+    def doesNotUsePrefetchedSnapshotAfterTaskHasExecuted() {
+        DefaultTask task = task('a', inputFile('input.txt'))
+        _ * graph.allTasks >> [task]
+        _ * snapshotter.snapshot(!null, !null) >> snapshot
+
+        when:
+        prefetcher.graphPopulated(graph)
+        prefetcher.afterExecute(task, task.state)
+
+        then:
+        prefetcher.takeSnapshot(task) == null
+    }
+
+    def resolvesInputFilesOfTaskOnNotifyingThread() {
+        TestFile inputFile = inputFile('input.txt')
+        Set<Thread> resolvingThreads = [] as Set
+        DefaultTask task = HelperUtil.createTask(DefaultTask, project, 'a')
+        task.inputs.files({ resolvingThreads << Thread.currentThread(); inputFile })
+        _ * graph.allTasks >> [task]
+        Runnable prefetch = null
+
+        when:
+        prefetcher.graphPopulated(graph)
+
+        then:
+        1 * executor.execute(!null) >> { args -> prefetch = args[0] }
+
+        when:
+        Thread thread = new Thread(prefetch)
+        thread.start()
+        thread.join()
+
+        then:
+        1 * snapshotter.snapshot(!null, !null) >> snapshot
+        resolvingThreads == [Thread.currentThread()] as Set
+    }
+
+    def doesNotPrefetchInputsOfTaskWhenAnInputFileWasModifiedRecently() {
+        DefaultTask task = task('a', tmpDir.createDir('src'))
+        tmpDir.createFile('src/recent.txt')
+        inputFile('src/old.txt')
+        _ * graph.allTasks >> [task]
+
+        when:
+        prefetcher.graphPopulated(graph)
+
+        then:
+        0 * snapshotter._
+        prefetcher.takeSnapshot(task) == null
+    }
+
+    def prefetchedSnapshotIsTheSameAsSnapshotTakenWhenTaskExecutes() {
+        FileSnapshotter fileSnapshotter = new DefaultFileSnapshotter(new DefaultHasher())
+        InputFilesSnapshotPrefetcher snapshotPrefetcher = new InputFilesSnapshotPrefetcher(fileSnapshotter, executorFactory, 10)
+        ChangeListener<File> listener = Mock()
+        inputFile('src/a.txt')
+        inputFile('src/org/b.txt')
+        tmpDir.createDir('src/empty')
+        inputFile('lib/c.txt')
+        tmpDir.createDir('lib/empty')
+        DefaultTask task = HelperUtil.createTask(DefaultTask, project, 'a')
+        task.inputs.dir(tmpDir.file('src'))
+        task.inputs.files(tmpDir.file('lib'), tmpDir.file('missing.txt'))
+        _ * graph.allTasks >> [task]
+
+        when:
+        snapshotPrefetcher.graphPopulated(graph)
+        FileCollectionSnapshot prefetched = snapshotPrefetcher.takeSnapshot(task)
+        FileCollectionSnapshot snapshot = fileSnapshotter.snapshot(task.inputs.files, task.inputs.classpathFiles)
+        prefetched.changesSince(snapshot, listener)
+
+        then:
+        prefetched != null
+        prefetched.files.files == snapshot.files.files
+        0 * listener._
+    }
+
+    private TestFile inputFile(String path) {
+        TestFile file = tmpDir.createFile(path)
+        // Make sure the file is not treated as recently modified
+        file.setLastModified(System.currentTimeMillis() - 10000)
+        return file
+    }
+
+    private DefaultTask task(String name, File inputFile) {
+        DefaultTask task = HelperUtil.createTask(DefaultTask, project, name)
+        task.inputs.files(inputFile)
+        return task
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class Murmur3HasherTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final Murmur3Hasher hasher = new Murmur3Hasher();
+
+    @Test
+    public void hashesEmptyFile() {
+        TestFile file = tmpDir.createFile("empty");
+
+        assertThat(hasher.hash(file), equalTo(new byte[16]));
+    }
+
+    @Test
+    public void hashesFileContent() {
+        TestFile file = tmpDir.file("file").write("The quick brown fox jumps over the lazy dog");
+
+        assertThat(toHex(hasher.hash(file)), equalTo("6c1b07bc7bbc4be347939ac4a93c437a"));
+    }
+
+    @Test
+    public void hashesContentShorterThanOneBlock() throws IOException {
+        assertThat(toHex(hash(hasher, "hell".getBytes())), equalTo("67f8103e694299624753ebba820bdb92"));
+    }
+
+    @Test
+    public void hashIsIndependentOfBufferSize() throws IOException {
+        byte[] content = new byte[1000];
+        new Random(0).nextBytes(content);
+
+        byte[] expected = hash(hasher, content);
+        assertThat(hash(new Murmur3Hasher(16), content), equalTo(expected));
+        assertThat(hash(new Murmur3Hasher(17), content), equalTo(expected));
+        assertThat(hash(new Murmur3Hasher(100), content), equalTo(expected));
+    }
+
+    @Test
+    public void hashChangesWhenContentChanges() {
+        TestFile file = tmpDir.file("file").write("content");
+        byte[] original = hasher.hash(file);
+
+        file.write("Content");
+
+        assertThat(hasher.hash(file), not(equalTo(original)));
+    }
+
+    private byte[] hash(Murmur3Hasher hasher, byte[] content) throws IOException {
+        return hasher.hash(new ByteArrayInputStream(content));
+    }
+
+    private String toHex(byte[] hash) {
+        return String.format("%032x", new BigInteger(1, hash));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.CacheUsage;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.DefaultCacheFactory;
+import org.gradle.cache.DefaultCacheRepository;
+import org.gradle.util.HelperUtil;
+import org.gradle.util.RandomLongIdGenerator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the time taken to check whether a large compile task is up-to-date, and to record the state of the task
+ * after it has executed, when the output files of the task are snapshotted by hashing their content and when they are
+ * snapshotted using their size and modification time, as with {@code --timestamp-outputs}. This is not run as part of
+ * the test suite. Run it from the IDE or the command-line with:
+ *
+ * <pre>OutputSnapshotBenchmark [classFileCount] [classFileSizeInKb]</pre>
+ *
+ * <p>The task has one source file for each class file it produces. Each iteration starts a new build, checks that the
+ * task is up-to-date, then changes a source file and executes the task, which rewrites all of its class files.</p>
+ */
+public class OutputSnapshotBenchmark {
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int fileSize = (args.length > 1 ? Integer.parseInt(args[1]) : 4) * 1024;
+        System.out.println(String.format("Compile task with %d class files of %d KB", fileCount, fileSize / 1024));
+
+        // Warm up
+        run("content", false, fileCount, fileSize);
+        run("timestamp", true, fileCount, fileSize);
+
+        run("content", false, fileCount, fileSize).print();
+        run("timestamp", true, fileCount, fileSize).print();
+    }
+
+    private static Result run(String strategy, boolean timestampOutputs, int fileCount, int fileSize)
+            throws IOException {
+        File dir = File.createTempFile("output", "benchmark");
+        dir.delete();
+        try {
+            Random random = new Random(0);
+            File sourceDir = new File(dir, "src");
+            File classesDir = new File(dir, "classes");
+            writeFiles(sourceDir, ".java", fileCount, 1024, random);
+
+            CacheRepository cacheRepository = new DefaultCacheRepository(new File(dir, "user-home"), CacheUsage.ON,
+                    new DefaultCacheFactory());
+            CachingHasher hasher = new CachingHasher(new DefaultHasher(), "MD5", cacheRepository);
+            FileSnapshotter fileSnapshotter = new DefaultFileSnapshotter(hasher);
+            FileSnapshotter outputFileStateSnapshotter = timestampOutputs ? new DefaultFileSnapshotter(
+                    new DefaultHasher(), null, 1, true) : fileSnapshotter;
+            TaskArtifactStateRepository repository = new DefaultTaskArtifactStateRepository(cacheRepository,
+                    fileSnapshotter, new OutputFilesSnapshotter(outputFileStateSnapshotter,
+                            new RandomLongIdGenerator(), cacheRepository));
+
+            ProjectInternal project = HelperUtil.createRootProject(new File(dir, "project"));
+            TaskInternal task = HelperUtil.createTask(DefaultTask.class, project, "compileJava");
+            task.getInputs().dir(sourceDir);
+            task.getOutputs().dir(classesDir);
+
+            TaskArtifactState state = repository.getStateFor(task);
+            state.isUpToDate();
+            writeFiles(classesDir, ".class", fileCount, fileSize, random);
+            state.update();
+
+            Result result = new Result(strategy);
+            for (int i = 0; i < ITERATIONS; i++) {
+                // A new build, so the hashes held in memory for the files written by the previous build are released
+                hasher.buildFinished(null);
+
+                long start = System.nanoTime();
+                state = repository.getStateFor(task);
+                if (!state.isUpToDate()) {
+                    throw new AssertionError(String.format("%s should be up-to-date.", task));
+                }
+                result.upToDateTime += System.nanoTime() - start;
+
+                writeFiles(sourceDir, ".java", 1, 1024, random);
+
+                start = System.nanoTime();
+                state = repository.getStateFor(task);
+                if (state.isUpToDate()) {
+                    throw new AssertionError(String.format("%s should be out-of-date.", task));
+                }
+                result.outOfDateTime += System.nanoTime() - start;
+
+                writeFiles(classesDir, ".class", fileCount, fileSize, random);
+
+                start = System.nanoTime();
+                state.update();
+                result.afterExecutionTime += System.nanoTime() - start;
+            }
+            hasher.close();
+            return result;
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    private static void writeFiles(File dir, String extension, int fileCount, int fileSize, Random random)
+            throws IOException {
+        byte[] content = new byte[fileSize];
+        for (int i = 0; i < fileCount; i++) {
+            File packageDir = new File(dir, "org/gradle/package" + (i / 100));
+            packageDir.mkdirs();
+            random.nextBytes(content);
+            FileOutputStream outstr = new FileOutputStream(new File(packageDir, "Class" + i + extension));
+            try {
+                outstr.write(content);
+            } finally {
+                outstr.close();
+            }
+        }
+    }
+
+    private static class Result {
+        private final String strategy;
+        private long upToDateTime;
+        private long outOfDateTime;
+        private long afterExecutionTime;
+
+        private Result(String strategy) {
+            this.strategy = strategy;
+        }
+
+        public void print() {
+            System.out.println(String.format(
+                    "%-9s: up-to-date check %6d ms, out-of-date check %6d ms, post-execution snapshot %6d ms",
+                    strategy, upToDateTime / ITERATIONS / 1000000L, outOfDateTime / ITERATIONS / 1000000L,
+                    afterExecutionTime / ITERATIONS / 1000000L));
+        }
+    }
+}
@@ -21,6 +21,8 @@ import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.TaskOutputsInternal;
 import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskInputChanges;
+import org.gradle.api.tasks.TaskInputs;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -111,6 +113,44 @@ public class ShortCircuitTaskArtifactStateRepositoryTest {
         assertTrue(state.isUpToDate());
     }
 
+    @Test
+    public void inputChangesAreNotIncrementalWhenStartParameterOverrideIsSet() {
+        expectTaskStateCreated();
+
+        TaskArtifactState state = repository.getStateFor(task);
+
+        final FileCollection inputFiles = context.mock(FileCollection.class);
+        final TaskInputs taskInputs = context.mock(TaskInputs.class);
+        context.checking(new Expectations() {{
+            allowing(task).getInputs();
+            will(returnValue(taskInputs));
+            allowing(taskInputs).getFiles();
+            will(returnValue(inputFiles));
+        }});
+
+        startParameter.setNoOpt(true);
+        TaskInputChanges changes = state.getInputChanges();
+        assertFalse(changes.isIncremental());
+        assertThat(changes.getOutOfDateFiles(), sameInstance(inputFiles));
+    }
+
+    @Test
+    public void determinesInputChangesUsingBackingRepository() {
+        expectTaskStateCreated();
+
+        TaskArtifactState state = repository.getStateFor(task);
+
+        final TaskInputChanges changes = context.mock(TaskInputChanges.class);
+        context.checking(new Expectations() {{
+            one(upToDateSpec).isSatisfiedBy(task);
+            will(returnValue(true));
+            one(taskArtifactState).getInputChanges();
+            will(returnValue(changes));
+        }});
+
+        assertThat(state.getInputChanges(), sameInstance(changes));
+    }
+
     private void expectTaskStateCreated() {
         context.checking(new Expectations() {{
             one(delegate).getStateFor(task);
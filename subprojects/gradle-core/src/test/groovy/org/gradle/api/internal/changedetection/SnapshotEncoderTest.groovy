@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection
+
+import spock.lang.Specification
+
+class SnapshotEncoderTest extends Specification {
+    final ByteArrayOutputStream outstr = new ByteArrayOutputStream()
+    final SnapshotEncoder encoder = new SnapshotEncoder(outstr)
+
+    def canWriteAndReadSmallIntegers() {
+        when:
+        [0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE].each { encoder.writeSmallInt(it) }
+        [0L, 300L, Long.MAX_VALUE, -1L].each { encoder.writeSmallLong(it) }
+        SnapshotDecoder decoder = readBack()
+
+        then:
+        [0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, -1, Integer.MIN_VALUE].each { assert decoder.readSmallInt() == it }
+        [0L, 300L, Long.MAX_VALUE, -1L].each { assert decoder.readSmallLong() == it }
+    }
+
+    def writesSmallIntegersUsingFewBytes() {
+        when:
+        encoder.writeSmallInt(127)
+        encoder.writeSmallInt(128)
+        encoder.flush()
+
+        then:
+        outstr.toByteArray().length == 3
+    }
+
+    def canWriteAndReadStringsAndBytes() {
+        when:
+        encoder.writeString('some string \u00e9')
+        encoder.writeString('')
+        encoder.writeBytes([1, 2, 3] as byte[])
+        SnapshotDecoder decoder = readBack()
+
+        then:
+        decoder.readString() == 'some string \u00e9'
+        decoder.readString() == ''
+        decoder.readBytes() == [1, 2, 3] as byte[]
+    }
+
+    def canWriteAndReadPaths() {
+        def paths = ['/some/dir/a', '/some/dir/b', '/other/a', '/some/dir/c', 'c:\\dir\\d', 'c:\\dir\\e', 'noparent', '/']
+
+        when:
+        paths.each { encoder.writePath(it) }
+        SnapshotDecoder decoder = readBack()
+
+        then:
+        paths.each { assert decoder.readPath() == it }
+    }
+
+    def writesEachParentDirectoryOnce() {
+        when:
+        encoder.writePath('/some/long/directory/name/a')
+        encoder.flush()
+        int first = outstr.size()
+        encoder.writePath('/some/long/directory/name/b')
+        encoder.flush()
+
+        then:
+        outstr.size() - first == 3
+    }
+
+    def writesPathsInsideRootDirRelativeToRootDir() {
+        def root = new File('root').absoluteFile
+        def movedRoot = new File('moved').absoluteFile
+        def outside = new File('other/file').absolutePath
+        def encoder = new SnapshotEncoder(outstr, root)
+
+        when:
+        encoder.writeRootDir()
+        encoder.writePath(new File(root, 'a').absolutePath)
+        encoder.writePath(new File(root, 'dir/b').absolutePath)
+        encoder.writePath(outside)
+        encoder.flush()
+        def decoder = new SnapshotDecoder(new ByteArrayInputStream(outstr.toByteArray()), movedRoot)
+        decoder.readRootDir()
+
+        then:
+        decoder.relocated
+        decoder.readPath() == new File(movedRoot, 'a').absolutePath
+        decoder.readPath() == new File(movedRoot, 'dir/b').absolutePath
+        decoder.readPath() == outside
+    }
+
+    def snapshotsAreNotRelocatedWhenReadUsingSameRootDir() {
+        def root = new File('root').absoluteFile
+        def encoder = new SnapshotEncoder(outstr, root)
+
+        when:
+        encoder.writeRootDir()
+        encoder.writePath(new File(root, 'a').absolutePath)
+        encoder.flush()
+        def decoder = new SnapshotDecoder(new ByteArrayInputStream(outstr.toByteArray()), root)
+        decoder.readRootDir()
+
+        then:
+        !decoder.relocated
+        decoder.readPath() == new File(root, 'a').absolutePath
+    }
+
+    private SnapshotDecoder readBack() {
+        encoder.flush()
+        return new SnapshotDecoder(new ByteArrayInputStream(outstr.toByteArray()))
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.internal.file.SimpleFileCollection;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the size and the time taken to write and read a large file snapshot, using Java serialization and using
+ * the compact format used to store task history. This is not run as part of the test suite. Run it from the IDE or the
+ * command-line with:
+ *
+ * <pre>TaskHistorySerializationBenchmark [fileCount]</pre>
+ */
+public class TaskHistorySerializationBenchmark {
+    private static final int ITERATIONS = 20;
+    private static final int FILES_PER_DIR = 100;
+
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+
+        File dir = File.createTempFile("history", "benchmark");
+        dir.delete();
+        try {
+            DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(new PathHasher());
+            FileCollectionSnapshot snapshot = snapshotter.snapshot(createFiles(dir, fileCount));
+            System.out.println(String.format("Snapshot of %d files", fileCount));
+
+            run("Java serialization", new JavaSerialization(), snapshot);
+            run("Compact format", new CompactSerialization(snapshotter), snapshot);
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    private static void run(String name, Serialization serialization, FileCollectionSnapshot snapshot) throws Exception {
+        byte[] serialized = null;
+        long writeTime = 0;
+        long readTime = 0;
+        // Warm up then measure
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                ByteArrayOutputStream outstr = new ByteArrayOutputStream();
+                serialization.write(snapshot, outstr);
+                serialized = outstr.toByteArray();
+            }
+            writeTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                serialization.read(new ByteArrayInputStream(serialized));
+            }
+            readTime = System.nanoTime() - start;
+        }
+        System.out.println(String.format("%-20s %10d bytes, write %5d ms, read %5d ms", name, serialized.length,
+                writeTime / ITERATIONS / 1000000L, readTime / ITERATIONS / 1000000L));
+    }
+
+    private static SimpleFileCollection createFiles(File dir, int fileCount) throws IOException {
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < fileCount; i++) {
+            File file = new File(dir, String.format("src/main/java/org/gradle/package%d/SomeSourceFile%d.java",
+                    i / FILES_PER_DIR, i));
+            file.getParentFile().mkdirs();
+            file.createNewFile();
+            files.add(file);
+        }
+        return new SimpleFileCollection(files);
+    }
+
+    /**
+     * Hashes the path of a file rather than its content, so that creating the snapshot is fast.
+     */
+    private static class PathHasher implements Hasher {
+        public byte[] hash(File file) {
+            try {
+                return MessageDigest.getInstance("MD5").digest(file.getAbsolutePath().getBytes());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private interface Serialization {
+        void write(FileCollectionSnapshot snapshot, OutputStream outstr) throws Exception;
+
+        FileCollectionSnapshot read(InputStream instr) throws Exception;
+    }
+
+    private static class JavaSerialization implements Serialization {
+        public void write(FileCollectionSnapshot snapshot, OutputStream outstr) throws Exception {
+            ObjectOutputStream objectStr = new ObjectOutputStream(outstr);
+            objectStr.writeObject(snapshot);
+            objectStr.flush();
+        }
+
+        public FileCollectionSnapshot read(InputStream instr) throws Exception {
+            return (FileCollectionSnapshot) new ObjectInputStream(instr).readObject();
+        }
+    }
+
+    private static class CompactSerialization implements Serialization {
+        private final FileSnapshotter snapshotter;
+
+        private CompactSerialization(FileSnapshotter snapshotter) {
+            this.snapshotter = snapshotter;
+        }
+
+        public void write(FileCollectionSnapshot snapshot, OutputStream outstr) throws Exception {
+            SnapshotEncoder encoder = new SnapshotEncoder(outstr);
+            snapshotter.write(snapshot, encoder);
+            encoder.flush();
+        }
+
+        public FileCollectionSnapshot read(InputStream instr) throws Exception {
+            return snapshotter.read(new SnapshotDecoder(instr));
+        }
+    }
+}
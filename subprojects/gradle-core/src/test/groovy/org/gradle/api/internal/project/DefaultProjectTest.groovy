@@ -180,6 +180,10 @@ class DefaultProjectTest {
             ignoring(listener)
             allowing(build).getProjectEvaluationBroadcaster();
             will(returnValue(listener))
+            Object accessListener = context.mock(ProjectAccessListener)
+            ignoring(accessListener)
+            allowing(build).getProjectAccessBroadcaster();
+            will(returnValue(accessListener))
         }
 
         // TODO - don't decorate the project objects
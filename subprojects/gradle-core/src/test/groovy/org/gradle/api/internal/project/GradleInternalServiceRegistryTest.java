@@ -24,10 +24,12 @@ import org.gradle.api.internal.artifacts.repositories.DefaultInternalRepository;
 import org.gradle.api.internal.artifacts.repositories.InternalRepository;
 import org.gradle.api.internal.plugins.DefaultPluginRegistry;
 import org.gradle.api.internal.plugins.PluginRegistry;
+import org.gradle.cache.CacheRepository;
 import org.gradle.execution.DefaultTaskGraphExecuter;
 import org.gradle.execution.TaskGraphExecuter;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.util.JUnit4GroovyMockery;
 import org.gradle.util.MultiParentClassLoader;
 import org.jmock.Expectations;
@@ -88,6 +90,10 @@ public class GradleInternalServiceRegistryTest {
     @Test
     public void providesATaskGraphExecuter() {
         context.checking(new Expectations() {{
+            allowing(parent).get(ExecutorFactory.class);
+            will(returnValue(context.mock(ExecutorFactory.class)));
+            allowing(parent).get(CacheRepository.class);
+            will(returnValue(context.mock(CacheRepository.class)));
             one(listenerManager).createAnonymousBroadcaster(TaskExecutionGraphListener.class);
             will(returnValue(new ListenerBroadcast<TaskExecutionGraphListener>(TaskExecutionGraphListener.class)));
             one(listenerManager).createAnonymousBroadcaster(TaskExecutionListener.class);
@@ -19,6 +19,7 @@ package org.gradle.api.internal.project.taskfactory;
 import org.gradle.api.*;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.AbstractTask;
+import org.gradle.api.internal.TaskExecutionHistory;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.DefaultProject;
 import org.gradle.api.internal.project.ProjectInternal;
@@ -136,6 +137,35 @@ public class AnnotationProcessingTaskFactoryTest {
         task.execute();
     }
 
+    @Test
+    public void passesAllInputFilesToTaskActionWhenNoHistoryAvailable() {
+        TaskWithInputChangesMethod task = expectTaskCreated(TaskWithInputChangesMethod.class);
+        task.getInputs().files(existingFile);
+
+        task.getActions().get(0).execute(task);
+
+        assertFalse(task.changes.isIncremental());
+        assertThat(task.changes.getOutOfDateFiles().getFiles(), equalTo(toSet(existingFile)));
+        assertThat(task.changes.getRemovedFiles().getFiles(), isEmpty());
+    }
+
+    @Test
+    public void passesInputChangesFromTaskHistoryToTaskAction() {
+        TaskWithInputChangesMethod task = expectTaskCreated(TaskWithInputChangesMethod.class);
+        final TaskExecutionHistory history = context.mock(TaskExecutionHistory.class);
+        final TaskInputChanges changes = context.mock(TaskInputChanges.class);
+        task.getOutputs().setHistory(history);
+
+        context.checking(new Expectations() {{
+            one(history).getInputChanges();
+            will(returnValue(changes));
+        }});
+
+        task.getActions().get(0).execute(task);
+
+        assertThat(task.changes, sameInstance(changes));
+    }
+
     @Test
     public void cachesClassMetaInfo() {
         TaskWithInputFile task = expectTaskCreated(TaskWithInputFile.class, existingFile);
@@ -305,6 +335,13 @@ public class AnnotationProcessingTaskFactoryTest {
         assertThat(task.getInputs().getFiles().getFiles(), equalTo(toSet(testDir, missingFile)));
     }
 
+    @Test
+    public void registersSpecifiedClasspathInputFiles() {
+        TaskWithClasspath task = expectTaskCreated(TaskWithClasspath.class, toList(testDir, missingFile));
+        assertThat(task.getInputs().getFiles().getFiles(), equalTo(toSet(testDir, missingFile)));
+        assertThat(task.getInputs().getClasspathFiles().getFiles(), equalTo(toSet(testDir, missingFile)));
+    }
+
     @Test
     public void doesNotRegisterInputFilesWhenNoneSpecified() {
         TaskWithInputFiles task = expectTaskCreated(TaskWithInputFiles.class, new Object[]{null});
@@ -570,6 +607,15 @@ public class AnnotationProcessingTaskFactoryTest {
         }
     }
 
+    public static class TaskWithInputChangesMethod extends DefaultTask {
+        TaskInputChanges changes;
+
+        @TaskAction
+        public void doStuff(TaskInputChanges changes) {
+            this.changes = changes;
+        }
+    }
+
     public static class TaskWithInputFile extends DefaultTask {
         File inputFile;
 
@@ -665,6 +711,19 @@ public class AnnotationProcessingTaskFactoryTest {
         }
     }
 
+    public static class TaskWithClasspath extends DefaultTask {
+        Iterable<? extends File> classpath;
+
+        public TaskWithClasspath(Iterable<? extends File> classpath) {
+            this.classpath = classpath;
+        }
+
+        @InputFiles @Classpath
+        public Iterable<? extends File> getClasspath() {
+            return classpath;
+        }
+    }
+
     public static class BrokenTaskWithInputFiles extends TaskWithInputFiles {
         public BrokenTaskWithInputFiles(Iterable<? extends File> input) {
             super(input);
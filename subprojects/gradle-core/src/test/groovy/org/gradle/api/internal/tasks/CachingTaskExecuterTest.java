@@ -0,0 +1,197 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.api.internal.tasks.cache.TaskCacheKeyCalculator;
+import org.gradle.api.internal.tasks.cache.TaskOutputCache;
+import org.gradle.api.internal.tasks.cache.TaskOutputPacker;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskInputs;
+import org.gradle.util.JUnit4GroovyMockery;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.*;
+
+@RunWith(JMock.class)
+public class CachingTaskExecuterTest {
+    private final JUnit4Mockery context = new JUnit4GroovyMockery();
+    private final TaskInternal task = context.mock(TaskInternal.class);
+    private final TaskInputs inputs = context.mock(TaskInputs.class);
+    private final TaskOutputsInternal outputs = context.mock(TaskOutputsInternal.class);
+    private final FileCollection outputFiles = context.mock(FileCollection.class);
+    private final Spec<Task> upToDateSpec = context.mock(Spec.class);
+    private final TaskStateInternal state = context.mock(TaskStateInternal.class);
+    private final TaskExecuter delegate = context.mock(TaskExecuter.class);
+    private final TaskOutputCache cache = context.mock(TaskOutputCache.class);
+    private final TaskCacheKeyCalculator keyCalculator = context.mock(TaskCacheKeyCalculator.class);
+    private final TaskOutputPacker packer = context.mock(TaskOutputPacker.class);
+    private final File archive = new File("archive");
+    private final CachingTaskExecuter executer = new CachingTaskExecuter(delegate, cache, keyCalculator, packer);
+
+    @Before
+    public void setUp() {
+        context.checking(new Expectations() {{
+            allowing(task).getInputs();
+            will(returnValue(inputs));
+            allowing(task).getOutputs();
+            will(returnValue(outputs));
+            allowing(outputs).getFiles();
+            will(returnValue(outputFiles));
+            allowing(outputs).getUpToDateSpec();
+            will(returnValue(upToDateSpec));
+        }});
+    }
+
+    @Test
+    public void restoresOutputsFromCacheInsteadOfExecutingTask() {
+        expectTaskIsCacheable();
+        context.checking(new Expectations() {{
+            one(cache).load(with(equalTo("key")), with(notNullValue(Action.class)));
+            will(loadArchive());
+            one(packer).unpack(task, archive);
+            one(state).skipped("FROM-CACHE");
+        }});
+
+        executer.execute(task, state);
+    }
+
+    @Test
+    public void executesTaskAndStoresOutputsWhenNotInCache() {
+        expectTaskIsCacheable();
+        context.checking(new Expectations() {{
+            one(cache).load(with(equalTo("key")), with(notNullValue(Action.class)));
+            will(returnValue(false));
+            one(delegate).execute(task, state);
+            allowing(state).getFailure();
+            will(returnValue(null));
+            one(packer).pack(with(sameInstance(task)), with(notNullValue(File.class)));
+            one(cache).store(with(equalTo("key")), with(notNullValue(File.class)));
+        }});
+
+        executer.execute(task, state);
+    }
+
+    @Test
+    public void doesNotStoreOutputsWhenTaskFails() {
+        expectTaskIsCacheable();
+        context.checking(new Expectations() {{
+            one(cache).load(with(equalTo("key")), with(notNullValue(Action.class)));
+            will(returnValue(false));
+            one(delegate).execute(task, state);
+            allowing(state).getFailure();
+            will(returnValue(new RuntimeException()));
+        }});
+
+        executer.execute(task, state);
+    }
+
+    @Test
+    public void executesTaskWhenOutputsCannotBeRestored() {
+        expectTaskIsCacheable();
+        context.checking(new Expectations() {{
+            one(cache).load(with(equalTo("key")), with(notNullValue(Action.class)));
+            will(loadArchive());
+            one(packer).unpack(task, archive);
+            will(throwException(new RuntimeException("broken")));
+            one(delegate).execute(task, state);
+            allowing(state).getFailure();
+            will(returnValue(null));
+            one(packer).pack(with(sameInstance(task)), with(notNullValue(File.class)));
+            one(cache).store(with(equalTo("key")), with(notNullValue(File.class)));
+        }});
+
+        executer.execute(task, state);
+    }
+
+    @Test
+    public void executesTaskWithoutUsingCacheWhenTaskHasNoInputs() {
+        context.checking(new Expectations() {{
+            allowing(inputs).getHasInputs();
+            will(returnValue(false));
+            one(delegate).execute(task, state);
+        }});
+
+        executer.execute(task, state);
+    }
+
+    @Test
+    public void executesTaskWithoutUsingCacheWhenUpToDateSpecIsNotSatisfied() {
+        context.checking(new Expectations() {{
+            allowing(inputs).getHasInputs();
+            will(returnValue(true));
+            allowing(outputFiles).isEmpty();
+            will(returnValue(false));
+            allowing(upToDateSpec).isSatisfiedBy(task);
+            will(returnValue(false));
+            one(delegate).execute(task, state);
+        }});
+
+        executer.execute(task, state);
+    }
+
+    @Test
+    public void executesTaskWithoutUsingCacheWhenKeyCannotBeCalculated() {
+        context.checking(new Expectations() {{
+            allowing(inputs).getHasInputs();
+            will(returnValue(true));
+            allowing(outputFiles).isEmpty();
+            will(returnValue(false));
+            allowing(upToDateSpec).isSatisfiedBy(task);
+            will(returnValue(true));
+            one(keyCalculator).calculate(task);
+            will(returnValue(null));
+            one(delegate).execute(task, state);
+        }});
+
+        executer.execute(task, state);
+    }
+
+    private void expectTaskIsCacheable() {
+        context.checking(new Expectations() {{
+            allowing(inputs).getHasInputs();
+            will(returnValue(true));
+            allowing(outputFiles).isEmpty();
+            will(returnValue(false));
+            allowing(upToDateSpec).isSatisfiedBy(task);
+            will(returnValue(true));
+            allowing(keyCalculator).calculate(task);
+            will(returnValue("key"));
+        }});
+    }
+
+    private CustomAction loadArchive() {
+        return new CustomAction("load archive") {
+            public Object invoke(Invocation invocation) throws Throwable {
+                ((Action<File>) invocation.getParameter(1)).execute(archive);
+                return true;
+            }
+        };
+    }
+}
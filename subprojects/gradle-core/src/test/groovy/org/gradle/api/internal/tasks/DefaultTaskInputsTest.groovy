@@ -36,9 +36,19 @@ class DefaultTaskInputsTest {
     @Test
     public void defaultValues() {
         assertThat(inputs.files.files, isEmpty())
+        assertThat(inputs.classpathFiles.files, isEmpty())
         assertFalse(inputs.hasInputs)
     }
 
+    @Test
+    public void canRegisterClasspathInputFiles() {
+        inputs.files('a')
+        inputs.classpath('b')
+        assertThat(inputs.files.files, equalTo([new File('a'), new File('b')] as Set))
+        assertThat(inputs.classpathFiles.files, equalTo([new File('b')] as Set))
+        assertTrue(inputs.hasInputs)
+    }
+
     @Test
     public void canRegisterInputFiles() {
         inputs.files('a')
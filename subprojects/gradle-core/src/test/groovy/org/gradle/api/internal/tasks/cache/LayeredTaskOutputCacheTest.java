@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.Action;
+import org.gradle.api.UncheckedIOException;
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(JMock.class)
+public class LayeredTaskOutputCacheTest {
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    private final TaskOutputCache local = context.mock(TaskOutputCache.class, "local");
+    private final TaskOutputCache remote = context.mock(TaskOutputCache.class, "remote");
+    private final Action<File> reader = context.mock(Action.class);
+    private final File archive = new File("archive");
+    private final LayeredTaskOutputCache cache = new LayeredTaskOutputCache(local, remote);
+
+    @Test
+    public void loadsEntryFromLocalCache() {
+        context.checking(new Expectations() {{
+            one(local).load("key", reader);
+            will(returnValue(true));
+        }});
+
+        assertTrue(cache.load("key", reader));
+    }
+
+    @Test
+    public void loadsEntryFromRemoteCacheAndCopiesItToLocalCacheWhenNotInLocalCache() {
+        context.checking(new Expectations() {{
+            one(local).load("key", reader);
+            will(returnValue(false));
+
+            one(remote).load(with(equalTo("key")), with(notNullValue(Action.class)));
+            will(new CustomAction("read archive") {
+                public Object invoke(Invocation invocation) throws Throwable {
+                    ((Action<File>) invocation.getParameter(1)).execute(archive);
+                    return true;
+                }
+            });
+
+            one(local).store("key", archive);
+
+            one(reader).execute(archive);
+        }});
+
+        assertTrue(cache.load("key", reader));
+    }
+
+    @Test
+    public void entryIsMissingWhenNotInEitherCache() {
+        context.checking(new Expectations() {{
+            one(local).load("key", reader);
+            will(returnValue(false));
+
+            one(remote).load(with(equalTo("key")), with(notNullValue(Action.class)));
+            will(returnValue(false));
+        }});
+
+        assertFalse(cache.load("key", reader));
+    }
+
+    @Test
+    public void entryIsMissingWhenRemoteCacheFails() {
+        context.checking(new Expectations() {{
+            one(local).load("key", reader);
+            will(returnValue(false));
+
+            one(remote).load(with(equalTo("key")), with(notNullValue(Action.class)));
+            will(throwException(new UncheckedIOException("broken")));
+        }});
+
+        assertFalse(cache.load("key", reader));
+    }
+
+    @Test
+    public void storesEntryInBothCaches() {
+        context.checking(new Expectations() {{
+            one(local).store("key", archive);
+            one(remote).store("key", archive);
+        }});
+
+        cache.store("key", archive);
+    }
+
+    @Test
+    public void ignoresFailureToStoreEntryInRemoteCache() {
+        context.checking(new Expectations() {{
+            one(local).store("key", archive);
+            one(remote).store("key", archive);
+            will(throwException(new UncheckedIOException("broken")));
+        }});
+
+        cache.store("key", archive);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.Action;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class LocalTaskOutputCacheTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final TestFile cacheDir = tmpDir.file("cache");
+    private final LocalTaskOutputCache cache = new LocalTaskOutputCache(cacheDir, 25);
+
+    @Test
+    public void doesNotLoadEntryWhichHasNotBeenStored() {
+        ContentReader reader = new ContentReader();
+
+        assertFalse(cache.load("key", reader));
+        assertThat(reader.content, nullValue());
+    }
+
+    @Test
+    public void loadsEntryWhichHasBeenStored() {
+        TestFile archive = tmpDir.file("archive").write("content");
+        cache.store("key", archive);
+        archive.delete();
+
+        ContentReader reader = new ContentReader();
+        assertTrue(cache.load("key", reader));
+        assertThat(reader.content, equalTo("content"));
+    }
+
+    @Test
+    public void replacesExistingEntry() {
+        cache.store("key", tmpDir.file("archive1").write("content"));
+        cache.store("key", tmpDir.file("archive2").write("new content"));
+
+        ContentReader reader = new ContentReader();
+        assertTrue(cache.load("key", reader));
+        assertThat(reader.content, equalTo("new content"));
+    }
+
+    @Test
+    public void removesLeastRecentlyUsedEntriesWhenMaximumSizeIsExceeded() {
+        cache.store("a", tmpDir.file("a").write("0123456789"));
+        cache.store("b", tmpDir.file("b").write("0123456789"));
+        long now = System.currentTimeMillis();
+        cacheDir.file("a.bin").setLastModified(now - 20000);
+        cacheDir.file("b.bin").setLastModified(now - 10000);
+
+        // Using an entry makes it the most recently used
+        assertTrue(cache.load("a", new ContentReader()));
+
+        cache.store("c", tmpDir.file("c").write("0123456789"));
+
+        assertTrue(cache.load("a", new ContentReader()));
+        assertFalse(cache.load("b", new ContentReader()));
+        assertTrue(cache.load("c", new ContentReader()));
+    }
+
+    @Test
+    public void countsEntriesStoredByAnotherCacheWhenMaximumSizeIsExceeded() {
+        cache.store("a", tmpDir.file("a").write("0123456789"));
+        cache.store("b", tmpDir.file("b").write("0123456789"));
+        cacheDir.file("a.bin").setLastModified(System.currentTimeMillis() - 10000);
+
+        LocalTaskOutputCache otherCache = new LocalTaskOutputCache(cacheDir, 25);
+        otherCache.store("c", tmpDir.file("c").write("0123456789"));
+
+        assertFalse(otherCache.load("a", new ContentReader()));
+        assertTrue(otherCache.load("b", new ContentReader()));
+        assertTrue(otherCache.load("c", new ContentReader()));
+    }
+
+    private static class ContentReader implements Action<File> {
+        String content;
+
+        public void execute(File file) {
+            content = new TestFile(file).getText();
+        }
+    }
+}
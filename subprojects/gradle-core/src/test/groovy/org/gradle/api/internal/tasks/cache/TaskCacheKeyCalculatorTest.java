@@ -0,0 +1,166 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import groovy.lang.Closure;
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovyShell;
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Task;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.DefaultHasher;
+import org.gradle.util.HelperUtil;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class TaskCacheKeyCalculatorTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final TaskCacheKeyCalculator calculator = new TaskCacheKeyCalculator(new DefaultHasher(),
+            getClass().getClassLoader());
+
+    @Test
+    public void keyIsTheSameForTasksWithTheSameInputsAndOutputs() {
+        TestFile rootDir = createBuild("build");
+
+        assertThat(calculator.calculate(task(rootDir, "value")), equalTo(calculator.calculate(task(rootDir, "value"))));
+    }
+
+    @Test
+    public void keyDoesNotDependOnLocationOfBuild() {
+        TestFile rootDir1 = createBuild("build1");
+        TestFile rootDir2 = createBuild("build2");
+
+        assertThat(calculator.calculate(task(rootDir1, "value")), equalTo(calculator.calculate(task(rootDir2,
+                "value"))));
+    }
+
+    @Test
+    public void keyChangesWhenInputFileContentChanges() {
+        TestFile rootDir = createBuild("build");
+        String key = calculator.calculate(task(rootDir, "value"));
+
+        rootDir.file("src/dir/nested").write("changed");
+
+        assertThat(calculator.calculate(task(rootDir, "value")), not(equalTo(key)));
+    }
+
+    @Test
+    public void keyChangesWhenInputFileIsRemoved() {
+        TestFile rootDir = createBuild("build");
+        String key = calculator.calculate(task(rootDir, "value"));
+
+        rootDir.file("src/dir/nested").delete();
+
+        assertThat(calculator.calculate(task(rootDir, "value")), not(equalTo(key)));
+    }
+
+    @Test
+    public void keyChangesWhenInputFileIsExcluded() {
+        TestFile rootDir = createBuild("build");
+        TaskInternal task = HelperUtil.createTask(DefaultTask.class, HelperUtil.createRootProject(rootDir));
+        task.getInputs().files(task.getProject().fileTree(rootDir.file("src")));
+        String key = calculator.calculate(task);
+
+        TaskInternal filtered = HelperUtil.createTask(DefaultTask.class, HelperUtil.createRootProject(rootDir));
+        filtered.getInputs().files(filtered.getProject().fileTree(rootDir.file("src")).exclude("dir/nested"));
+
+        assertThat(calculator.calculate(filtered), not(equalTo(key)));
+    }
+
+    @Test
+    public void keyChangesWhenPathOfInputFileRelativeToItsFileTreeChanges() {
+        TestFile rootDir = createBuild("build");
+        TaskInternal task = HelperUtil.createTask(DefaultTask.class, HelperUtil.createRootProject(rootDir));
+        task.getInputs().files(task.getProject().fileTree(rootDir.file("src")).include("dir/nested"));
+        String key = calculator.calculate(task);
+
+        TaskInternal other = HelperUtil.createTask(DefaultTask.class, HelperUtil.createRootProject(rootDir));
+        other.getInputs().files(other.getProject().fileTree(rootDir.file("src/dir")).include("nested"));
+
+        assertThat(calculator.calculate(other), not(equalTo(key)));
+    }
+
+    @Test
+    public void keyChangesWhenInputPropertyChanges() {
+        TestFile rootDir = createBuild("build");
+
+        assertThat(calculator.calculate(task(rootDir, "value")), not(equalTo(calculator.calculate(task(rootDir,
+                "other")))));
+    }
+
+    @Test
+    public void keyChangesWhenOutputFilesChange() {
+        TestFile rootDir = createBuild("build");
+        TaskInternal task = task(rootDir, "value");
+        String key = calculator.calculate(task);
+
+        task.getOutputs().files(rootDir.file("other-output"));
+
+        assertThat(calculator.calculate(task), not(equalTo(key)));
+    }
+
+    @Test
+    public void keyChangesWhenActionsChange() {
+        TestFile rootDir = createBuild("build");
+        TaskInternal task = task(rootDir, "value");
+        String key = calculator.calculate(task);
+
+        task.doLast(new Action<Task>() {
+            public void execute(Task task) {
+            }
+        });
+
+        assertThat(calculator.calculate(task), not(equalTo(key)));
+    }
+
+    @Test
+    public void keyIsNullWhenTaskHasActionImplementedOutsideGradle() {
+        TaskInternal task = task(createBuild("build"), "value");
+        Closure closure = (Closure) new GroovyShell(new GroovyClassLoader()).evaluate("{ -> }");
+        task.doLast(closure);
+
+        assertThat(calculator.calculate(task), nullValue());
+    }
+
+    @Test
+    public void keyIsNullWhenInputPropertyCannotBeSerialized() {
+        TaskInternal task = task(createBuild("build"), new Object());
+
+        assertThat(calculator.calculate(task), nullValue());
+    }
+
+    private TestFile createBuild(String name) {
+        TestFile rootDir = tmpDir.file(name);
+        rootDir.file("src/file").write("file");
+        rootDir.file("src/dir/nested").write("nested");
+        return rootDir;
+    }
+
+    private TaskInternal task(TestFile rootDir, Object propertyValue) {
+        TaskInternal task = HelperUtil.createTask(DefaultTask.class, HelperUtil.createRootProject(rootDir));
+        task.getInputs().files(rootDir.file("src/file"), rootDir.file("src/dir"));
+        task.getInputs().property("prop", propertyValue);
+        task.getOutputs().files(rootDir.file("build/output"));
+        return task;
+    }
+}
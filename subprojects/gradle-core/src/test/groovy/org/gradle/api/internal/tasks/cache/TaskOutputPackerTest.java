@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.cache;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.util.HelperUtil;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class TaskOutputPackerTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final TestFile outputFile = tmpDir.file("output-file");
+    private final TestFile outputDir = tmpDir.file("output-dir");
+    private final TestFile missingOutputFile = tmpDir.file("missing-output-file");
+    private final TestFile archive = tmpDir.file("archive");
+    private final TaskOutputPacker packer = new TaskOutputPacker();
+    private TaskInternal task;
+
+    @Before
+    public void setUp() {
+        task = HelperUtil.createTask(DefaultTask.class, HelperUtil.createRootProject(tmpDir.getDir()));
+        task.getOutputs().files(outputFile, outputDir, missingOutputFile);
+    }
+
+    @Test
+    public void restoresOutputFilesAndDirectories() {
+        outputFile.write("file");
+        outputDir.file("a/b/nested").write("nested");
+        outputDir.file("empty").createDir();
+        packer.pack(task, archive);
+
+        outputFile.delete();
+        outputDir.deleteDir();
+
+        packer.unpack(task, archive);
+
+        outputFile.assertIsFile().assertContents(equalTo("file"));
+        outputDir.file("a/b/nested").assertIsFile().assertContents(equalTo("nested"));
+        outputDir.file("empty").assertIsDir();
+        missingOutputFile.assertDoesNotExist();
+    }
+
+    @Test
+    public void replacesChangedOutputFiles() {
+        outputFile.write("file");
+        outputDir.file("nested").write("nested");
+        packer.pack(task, archive);
+
+        outputFile.write("changed");
+        outputDir.file("nested").write("changed");
+
+        packer.unpack(task, archive);
+
+        outputFile.assertContents(equalTo("file"));
+        outputDir.file("nested").assertContents(equalTo("nested"));
+    }
+
+    @Test
+    public void removesStaleFilesFromOutputDirectories() {
+        outputDir.file("a/kept").write("kept");
+        packer.pack(task, archive);
+
+        outputDir.file("a/stale").write("stale");
+        outputDir.file("stale-dir/stale").write("stale");
+
+        packer.unpack(task, archive);
+
+        outputDir.file("a/kept").assertIsFile().assertContents(equalTo("kept"));
+        outputDir.file("a/stale").assertDoesNotExist();
+        outputDir.file("stale-dir").assertDoesNotExist();
+    }
+
+    @Test
+    public void removesOutputFileWhichDidNotExistWhenPacked() {
+        outputFile.write("file");
+        packer.pack(task, archive);
+
+        missingOutputFile.write("stale");
+
+        packer.unpack(task, archive);
+
+        missingOutputFile.assertDoesNotExist();
+    }
+}
@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.*;
 
+import static org.gradle.util.Matchers.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
@@ -263,6 +264,219 @@ public class BTreePersistentIndexedCacheTest {
         assertThat(cache.get(new File("File")), equalTo(3));
     }
 
+    @Test
+    public void persistsAddsAndRemovesWhenUsingWriteAheadLog() {
+        cache.close();
+        cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100, false, true);
+
+        checkAddsAndRemoves(4, 12, 9, 1, 3, 10, 11, 7, 8, 2, 5, 6);
+        checkAdds(1, 2, 3, 4, 5);
+        cache.remove("key_3");
+        cache.put("key_1", 11);
+
+        assertThat(cache.get("key_1"), equalTo(11));
+        assertThat(cache.get("key_3"), nullValue());
+
+        cache.reset();
+
+        assertThat(cache.get("key_1"), equalTo(11));
+        assertThat(cache.get("key_2"), equalTo(2));
+        assertThat(cache.get("key_3"), nullValue());
+        cache.verify();
+        assertThat(tmpDir.getDir().file("cache.log").length(), equalTo(0L));
+    }
+
+    @Test
+    public void recoversCommittedChangesFromWriteAheadLogWhenCacheIsNotClosed() {
+        addLargeEntriesWithoutClosing();
+
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(
+                backingCache, new DefaultSerializer<String>(), (short) 4, 100, false, true);
+        for (int i = 0; i < 50; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(largeValue(i)));
+        }
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void recoversCommittedChangesFromWriteAheadLogWhenCacheFileIsCorrupt() {
+        addLargeEntriesWithoutClosing();
+        tmpDir.getDir().file("cache.bin").write("some junk");
+
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(
+                backingCache, new DefaultSerializer<String>(), (short) 4, 100, false, true);
+        for (int i = 0; i < 50; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(largeValue(i)));
+        }
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void compactRemovesFreeSpaceFromCacheFile() {
+        cache.close();
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(
+                backingCache, new DefaultSerializer<String>(), (short) 4, 100);
+        TestFile cacheFile = tmpDir.getDir().file("cache.bin");
+
+        for (int i = 0; i < 40; i++) {
+            cache.put(String.format("key_%d", i), largeValue(i));
+        }
+        for (int i = 0; i < 40; i += 2) {
+            cache.remove(String.format("key_%d", i));
+        }
+        long len = cacheFile.length();
+
+        long reclaimed = cache.compact();
+        assertThat(reclaimed, greaterThan(0L));
+        assertThat(cacheFile.length(), equalTo(len - reclaimed));
+        assertFalse(tmpDir.getDir().file("cache.bin.compact").exists());
+
+        cache.verify();
+        cache.reset();
+        for (int i = 0; i < 40; i++) {
+            String key = String.format("key_%d", i);
+            if (i % 2 == 0) {
+                assertNull(cache.get(key));
+            } else {
+                assertThat(cache.get(key), equalTo(largeValue(i)));
+            }
+        }
+        cache.close();
+    }
+
+    @Test
+    public void compactsCacheFileWhenOpenedWithMostlyFreeSpace() {
+        cache.close();
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(
+                backingCache, new DefaultSerializer<String>(), (short) 4, 100);
+        TestFile cacheFile = tmpDir.getDir().file("cache.bin");
+
+        for (int i = 0; i < 1500; i++) {
+            cache.put(String.format("key_%d", i), largeValue(i));
+        }
+        for (int i = 100; i < 1500; i++) {
+            cache.remove(String.format("key_%d", i));
+        }
+        cache.close();
+        long len = cacheFile.length();
+
+        cache = new BTreePersistentIndexedCache<String, String>(backingCache, new DefaultSerializer<String>(),
+                (short) 4, 100);
+        assertThat(cacheFile.length(), lessThan(len / 4));
+        for (int i = 0; i < 200; i++) {
+            String key = String.format("key_%d", i);
+            if (i >= 100) {
+                assertNull(cache.get(key));
+            } else {
+                assertThat(cache.get(key), equalTo(largeValue(i)));
+            }
+        }
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void servesRepeatedReadsFromBlockCache() {
+        checkAdds(1, 2, 3, 4, 5);
+        cache.close();
+        cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100);
+
+        for (int i = 1; i <= 5; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i));
+        }
+        BlockCacheStatistics statistics = cache.getBlockCacheStatistics();
+        assertThat(statistics.getMisses(), greaterThan(0L));
+
+        for (int i = 1; i <= 5; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(i));
+        }
+        assertThat(cache.getBlockCacheStatistics().getMisses(), equalTo(statistics.getMisses()));
+        assertThat(cache.getBlockCacheStatistics().getHits(), greaterThan(statistics.getHits() + 5));
+        assertThat(cache.getBlockCacheStatistics().getEvictions(), equalTo(0L));
+    }
+
+    @Test
+    public void evictsBlocksToKeepBlockCacheWithinMaximumSize() {
+        cache.close();
+        long maxSize = 16 * 1024;
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(
+                backingCache, new DefaultSerializer<String>(), (short) 4, 100, false, false, maxSize);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(String.format("key_%d", i), largeValue(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.get(String.format("key_%d", i)), equalTo(largeValue(i)));
+        }
+
+        BlockCacheStatistics statistics = cache.getBlockCacheStatistics();
+        assertThat(statistics.getEvictions(), greaterThan(0L));
+        assertThat(statistics.getCachedSize(), lessThanOrEqualTo(maxSize));
+        assertThat(statistics.getMaxSize(), equalTo(maxSize));
+        cache.verify();
+        cache.close();
+    }
+
+    private void addLargeEntriesWithoutClosing() {
+        cache.close();
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(
+                backingCache, new DefaultSerializer<String>(), (short) 4, 100, false, true);
+
+        // Enough to fill the log buffer at least once, so that the first entries are committed
+        for (int i = 0; i < 100; i++) {
+            cache.put(String.format("key_%d", i), largeValue(i));
+        }
+    }
+
+    private String largeValue(int i) {
+        char[] chars = new char[1024];
+        Arrays.fill(chars, (char) ('a' + i % 26));
+        return new String(chars);
+    }
+
+    @Test
+    public void canGetAndPutEntriesFromMultipleThreadsConcurrently() throws InterruptedException {
+        final int keyCount = 500;
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 32; i++) {
+            final Random random = new Random(i);
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 1000; i++) {
+                            int value = random.nextInt(keyCount);
+                            String key = String.format("key_%d", value);
+                            if (random.nextInt(4) == 0) {
+                                cache.put(key, value);
+                            } else {
+                                Integer actual = cache.get(key);
+                                assertTrue(actual == null || actual == value);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures, isEmpty());
+        cache.verify();
+        cache.reset();
+        cache.verify();
+    }
+
     private void checkAdds(Integer... values) {
         checkAdds(Arrays.asList(values));
     }
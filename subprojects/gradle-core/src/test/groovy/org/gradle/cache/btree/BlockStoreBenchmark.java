@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.CacheUsage;
+import org.gradle.cache.DefaultPersistentDirectoryCache;
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.cache.PersistentCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Compares the throughput of {@link BTreePersistentIndexedCache} when backed by {@link FileBackedBlockStore} and by
+ * {@link MemoryMappedBlockStore}, for random puts and gets. This is not run as part of the test suite. Run it from the
+ * IDE or the command-line with:
+ *
+ * <pre>BlockStoreBenchmark [entryCount] [valueSizeInBytes]</pre>
+ */
+public class BlockStoreBenchmark {
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int entryCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int valueSize = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        System.out.println(String.format("Using %d entries of %d bytes", entryCount, valueSize));
+        for (int i = 0; i < 2; i++) {
+            run("file-backed", false, entryCount, valueSize);
+            run("memory-mapped", true, entryCount, valueSize);
+        }
+    }
+
+    private static void run(String name, boolean memoryMapped, int entryCount, int valueSize) throws IOException {
+        File dir = File.createTempFile("blockstore", "benchmark");
+        dir.delete();
+        try {
+            PersistentCache backingCache = new DefaultPersistentDirectoryCache(dir, CacheUsage.ON,
+                    Collections.<String, Object>emptyMap());
+            BTreePersistentIndexedCache<Integer, byte[]> cache = new BTreePersistentIndexedCache<Integer, byte[]>(
+                    backingCache, new DefaultSerializer<byte[]>(), memoryMapped);
+            try {
+                Random random = new Random(0);
+                byte[] value = new byte[valueSize];
+
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS * entryCount; i++) {
+                    random.nextBytes(value);
+                    cache.put(random.nextInt(entryCount), value);
+                }
+                long putTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS * entryCount; i++) {
+                    cache.get(random.nextInt(entryCount));
+                }
+                long getTime = System.nanoTime() - start;
+
+                System.out.println(String.format("%-13s: %8.0f puts/s, %8.0f gets/s", name, rate(entryCount, putTime),
+                        rate(entryCount, getTime)));
+            } finally {
+                cache.close();
+            }
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    private static double rate(int entryCount, long elapsed) {
+        return (double) entryCount * ITERATIONS / elapsed * 1000000000L;
+    }
+}
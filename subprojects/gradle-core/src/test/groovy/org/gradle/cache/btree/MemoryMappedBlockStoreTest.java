@@ -0,0 +1,183 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class MemoryMappedBlockStoreTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final TestFile cacheFile = tmpDir.file("cache.bin");
+    private final BlockStore.Factory factory = new BlockStore.Factory() {
+        public Object create(Class<? extends BlockPayload> type) {
+            return new TestBlock("");
+        }
+    };
+
+    @Test
+    public void canReadBlocksWhichSpanMultipleRegions() {
+        MemoryMappedBlockStore store = open(new MemoryMappedBlockStore(cacheFile, 16));
+        TestBlock block1 = write(store, "a value which is longer than a region");
+        TestBlock block2 = write(store, "value 2");
+        TestBlock block3 = write(store, "");
+
+        assertThat(store.read(block1.getPos(), TestBlock.class).value, equalTo("a value which is longer than a region"));
+        assertThat(store.read(block2.getPos(), TestBlock.class).value, equalTo("value 2"));
+        assertThat(store.read(block3.getPos(), TestBlock.class).value, equalTo(""));
+        store.close();
+    }
+
+    @Test
+    public void canReadBlocksAfterStoreIsReopened() {
+        MemoryMappedBlockStore store = open(new MemoryMappedBlockStore(cacheFile, 16));
+        TestBlock block1 = write(store, "value 1");
+        TestBlock block2 = write(store, "value 2");
+        store.close();
+
+        store = open(new MemoryMappedBlockStore(cacheFile, 64));
+        assertThat(store.read(block1.getPos(), TestBlock.class).value, equalTo("value 1"));
+        assertThat(store.read(block2.getPos(), TestBlock.class).value, equalTo("value 2"));
+        store.close();
+    }
+
+    @Test
+    public void truncatesFileToEndOfLastBlockOnClose() {
+        MemoryMappedBlockStore store = open(new MemoryMappedBlockStore(cacheFile, 1024));
+        TestBlock block = write(store, "value");
+        store.close();
+
+        assertThat(cacheFile.length(), equalTo(block.getNextPos().getPos()));
+    }
+
+    @Test
+    public void writesBlocksInSameFormatAsFileBackedBlockStore() {
+        MemoryMappedBlockStore mappedStore = open(new MemoryMappedBlockStore(cacheFile, 16));
+        TestBlock block1 = write(mappedStore, "value 1");
+        mappedStore.close();
+
+        FileBackedBlockStore fileStore = open(new FileBackedBlockStore(cacheFile));
+        assertThat(fileStore.read(block1.getPos(), TestBlock.class).value, equalTo("value 1"));
+        TestBlock block2 = write(fileStore, "value 2");
+        fileStore.close();
+
+        mappedStore = open(new MemoryMappedBlockStore(cacheFile, 16));
+        assertThat(mappedStore.read(block1.getPos(), TestBlock.class).value, equalTo("value 1"));
+        assertThat(mappedStore.read(block2.getPos(), TestBlock.class).value, equalTo("value 2"));
+        mappedStore.close();
+    }
+
+    @Test
+    public void detectsCorruptedBlock() throws IOException {
+        MemoryMappedBlockStore store = open(new MemoryMappedBlockStore(cacheFile, 16));
+        TestBlock block = write(store, "value");
+        store.close();
+
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        file.seek(block.getPos().getPos() + 8);
+        file.write('V');
+        file.close();
+
+        store = open(new MemoryMappedBlockStore(cacheFile, 16));
+        try {
+            store.read(block.getPos(), TestBlock.class);
+            fail();
+        } catch (CorruptedCacheException e) {
+            // Expected
+        }
+        store.close();
+    }
+
+    @Test
+    public void detectsBlockBeyondEndOfFile() {
+        MemoryMappedBlockStore store = open(new MemoryMappedBlockStore(cacheFile, 1024));
+        TestBlock block = write(store, "value");
+
+        try {
+            store.read(block.getNextPos(), TestBlock.class);
+            fail();
+        } catch (CorruptedCacheException e) {
+            // Expected
+        }
+        store.close();
+    }
+
+    @Test
+    public void clearDiscardsAllBlocks() {
+        MemoryMappedBlockStore store = open(new MemoryMappedBlockStore(cacheFile, 16));
+        write(store, "value 1");
+        store.clear();
+
+        TestBlock block = write(store, "value 2");
+        assertThat(block.getPos().getPos(), equalTo(0L));
+        assertThat(store.readFirst(TestBlock.class).value, equalTo("value 2"));
+        store.close();
+    }
+
+    private <T extends BlockStore> T open(T store) {
+        store.open(new Runnable() {
+            public void run() {
+            }
+        }, factory);
+        return store;
+    }
+
+    private TestBlock write(BlockStore store, String value) {
+        TestBlock block = new TestBlock(value);
+        store.attach(block);
+        store.write(block);
+        store.flush();
+        return block;
+    }
+
+    private static class TestBlock extends BlockPayload {
+        private String value;
+
+        private TestBlock(String value) {
+            this.value = value;
+        }
+
+        @Override
+        protected int getSize() {
+            return 2 + value.length();
+        }
+
+        @Override
+        protected int getType() {
+            return 0x55;
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+            value = inputStream.readUTF();
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+            outputStream.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class WriteAheadLogTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final TestFile logFile = tmpDir.file("cache.log");
+    private final List<String> received = new ArrayList<String>();
+    private final WriteAheadLog.Receiver receiver = new WriteAheadLog.Receiver() {
+        public void put(String key, byte[] value) {
+            received.add(String.format("put %s=%s", key, new String(value)));
+        }
+
+        public void remove(String key) {
+            received.add(String.format("remove %s", key));
+        }
+    };
+
+    @Test
+    public void replaysCommittedRecordsInOrder() {
+        WriteAheadLog log = open();
+        log.append("a", "1".getBytes());
+        log.append("b", null);
+        log.append("a", "2".getBytes());
+        log.commit();
+        log.close();
+
+        open().close();
+
+        assertThat(received, equalTo(toList("put a=1", "remove b", "put a=2")));
+    }
+
+    @Test
+    public void writesRecordsToFileOnlyWhenCommitted() {
+        WriteAheadLog log = open();
+        log.append("a", "1".getBytes());
+        assertThat(log.getUncommittedSize(), greaterThan(0));
+        assertThat(logFile.length(), equalTo(0L));
+
+        log.commit();
+        assertThat(log.getUncommittedSize(), equalTo(0));
+        assertThat(logFile.length(), greaterThan(0L));
+        log.close();
+    }
+
+    @Test
+    public void discardsUncommittedRecordsOnClose() {
+        WriteAheadLog log = open();
+        log.append("a", "1".getBytes());
+        log.commit();
+        log.append("b", "2".getBytes());
+        log.close();
+
+        open().close();
+
+        assertThat(received, equalTo(toList("put a=1")));
+    }
+
+    @Test
+    public void discardsIncompleteRecordAtEndOfLog() throws IOException {
+        WriteAheadLog log = open();
+        log.append("a", "1".getBytes());
+        log.commit();
+        long length = logFile.length();
+        log.append("b", "2".getBytes());
+        log.commit();
+        log.close();
+
+        truncate(logFile.length() - 3);
+
+        log = open();
+        assertThat(received, equalTo(toList("put a=1")));
+        assertThat(logFile.length(), equalTo(length));
+
+        log.append("c", "3".getBytes());
+        log.commit();
+        log.close();
+
+        received.clear();
+        open().close();
+        assertThat(received, equalTo(toList("put a=1", "put c=3")));
+    }
+
+    @Test
+    public void discardsCorruptRecordAndAllFollowingRecords() throws IOException {
+        WriteAheadLog log = open();
+        log.append("a", "1".getBytes());
+        log.commit();
+        long length = logFile.length();
+        log.append("b", "2".getBytes());
+        log.append("c", "3".getBytes());
+        log.commit();
+        log.close();
+
+        RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+        file.seek(length + 8);
+        file.write('x');
+        file.close();
+
+        open().close();
+
+        assertThat(received, equalTo(toList("put a=1")));
+        assertThat(logFile.length(), equalTo(length));
+    }
+
+    @Test
+    public void clearDiscardsAllRecords() {
+        WriteAheadLog log = open();
+        log.append("a", "1".getBytes());
+        log.commit();
+        log.append("b", "2".getBytes());
+        log.clear();
+        assertThat(log.getUncommittedSize(), equalTo(0));
+        log.append("c", "3".getBytes());
+        log.commit();
+        log.close();
+
+        open().close();
+
+        assertThat(received, equalTo(toList("put c=3")));
+    }
+
+    private WriteAheadLog open() {
+        WriteAheadLog log = new WriteAheadLog(logFile);
+        log.open(receiver);
+        return log;
+    }
+
+    private void truncate(long length) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+        file.setLength(length);
+        file.close();
+    }
+}
@@ -15,10 +15,19 @@
  */
 package org.gradle.configuration
 
+import org.gradle.StartParameter
+import org.gradle.api.Action
+import org.gradle.api.InvalidUserDataException
+import org.gradle.api.ProjectEvaluationListener
+import org.gradle.api.ProjectState
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.ConfigurationContainer
+import org.gradle.api.artifacts.ProjectDependency
 import org.gradle.api.internal.GradleInternal
 import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectStateInternal
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
 import spock.lang.Specification
-import org.gradle.api.Action
 
 class DefaultBuildConfigurerTest extends Specification {
     private final GradleInternal gradle = Mock()
@@ -31,10 +40,216 @@ class DefaultBuildConfigurerTest extends Specification {
         configurer.configure(gradle)
 
         then:
+        _ * gradle.startParameter >> new StartParameter()
         _ * gradle.rootProject >> rootProject
         1 * rootProject.allprojects(!null) >> { args ->
             args[0].execute(rootProject)
         }
         1 * action.execute(rootProject)
     }
+
+    def executesActionsForEachProjectAfterItsParentWhenEvaluatingInParallel() {
+        setup:
+        ProjectInternal child = Mock()
+        ProjectInternal grandchild = Mock()
+        List<String> configured = Collections.synchronizedList([])
+        Action<ProjectInternal> first = { configured << "first ${it.path}".toString() } as Action
+        Action<ProjectInternal> second = { configured << "second ${it.path}".toString() } as Action
+        DefaultBuildConfigurer parallelConfigurer = new DefaultBuildConfigurer(new DefaultExecutorFactory(), first, second)
+        StartParameter startParameter = new StartParameter()
+        startParameter.parallelProjectEvaluation = true
+        startParameter.parallelThreadCount = 4
+        gradle.startParameter >> startParameter
+        gradle.rootProject >> rootProject
+        rootProject.path >> ':'
+        rootProject.childProjects >> [child: child]
+        child.path >> ':child'
+        child.childProjects >> [grandchild: grandchild]
+        grandchild.path >> ':child:grandchild'
+        grandchild.childProjects >> [:]
+
+        when:
+        parallelConfigurer.configure(gradle)
+
+        then:
+        configured == ['first :', 'first :child', 'first :child:grandchild', 'second :', 'second :child', 'second :child:grandchild']
+    }
+
+    def rethrowsFailureWhenEvaluatingInParallel() {
+        setup:
+        RuntimeException failure = new RuntimeException()
+        Action<ProjectInternal> failingAction = { throw failure } as Action
+        DefaultBuildConfigurer parallelConfigurer = new DefaultBuildConfigurer(new DefaultExecutorFactory(), failingAction)
+        StartParameter startParameter = new StartParameter()
+        startParameter.parallelProjectEvaluation = true
+        gradle.startParameter >> startParameter
+        gradle.rootProject >> rootProject
+
+        when:
+        parallelConfigurer.configure(gradle)
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+    }
+
+    def evaluatesProjectWhichPrecedesEvaluatingProjectWhenItIsAccessedDuringParallelEvaluation() {
+        setup:
+        ProjectInternal before = Mock()
+        ProjectInternal evaluating = Mock()
+        ProjectInternal after = Mock()
+        ProjectStateInternal rootState = new ProjectStateInternal()
+        def listener
+        DefaultBuildConfigurer parallelConfigurer = new DefaultBuildConfigurer(new DefaultExecutorFactory())
+        StartParameter startParameter = new StartParameter()
+        startParameter.parallelProjectEvaluation = true
+        gradle.startParameter >> startParameter
+        gradle.rootProject >> rootProject
+        gradle.addListener(!null) >> { args -> listener = args[0] }
+        rootProject.childProjects >> [:]
+        rootProject.state >> rootState
+        before.parent >> rootProject
+        before.state >> new ProjectStateInternal()
+        before.compareTo(evaluating) >> -1
+        after.parent >> rootProject
+        after.state >> new ProjectStateInternal()
+        after.compareTo(evaluating) >> 1
+        parallelConfigurer.configure(gradle)
+        listener.beforeEvaluate(evaluating)
+
+        when:
+        listener.beforeAccess(before)
+
+        then:
+        1 * rootProject.evaluate()
+
+        then:
+        1 * before.evaluate()
+
+        when:
+        listener.beforeAccess(after)
+
+        then:
+        0 * after.evaluate()
+        0 * rootProject.evaluate()
+
+        when:
+        rootState.executing = true
+        listener.beforeAccess(before)
+
+        then:
+        0 * before.evaluate()
+        0 * rootProject.evaluate()
+
+        when:
+        rootState.executing = false
+        listener.afterEvaluate(evaluating, new ProjectStateInternal())
+        listener.beforeAccess(before)
+
+        then:
+        0 * before.evaluate()
+    }
+
+    def evaluatesOnlyRootProjectWhenConfiguringOnDemand() {
+        setup:
+        StartParameter startParameter = new StartParameter()
+        startParameter.configureOnDemand = true
+        gradle.startParameter >> startParameter
+        gradle.rootProject >> rootProject
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * gradle.addListener(!null)
+        1 * rootProject.evaluate()
+        0 * rootProject.allprojects(_)
+        0 * action.execute(_)
+    }
+
+    def executesActionsForProjectWhenItIsEvaluatedOnDemand() {
+        setup:
+        ProjectInternal parent = Mock()
+        ProjectInternal dependsOnProject = Mock()
+        ProjectInternal dependencyProject = Mock()
+        ProjectStateInternal parentState = new ProjectStateInternal()
+        ProjectState state = new ProjectStateInternal()
+        ConfigurationContainer configurations = Mock()
+        Configuration configuration = Mock()
+        ProjectDependency dependency = Mock()
+        ProjectEvaluationListener listener
+        StartParameter startParameter = new StartParameter()
+        startParameter.configureOnDemand = true
+        gradle.startParameter >> startParameter
+        gradle.rootProject >> rootProject
+        gradle.addListener(!null) >> { args -> listener = args[0] }
+        rootProject.parent >> parent
+        parent.state >> parentState
+        rootProject.dependsOnProjects >> ([dependsOnProject] as Set)
+        rootProject.configurations >> configurations
+        configurations.iterator() >> { [configuration].iterator() }
+        configuration.getDependencies(ProjectDependency) >> ([dependency] as Set)
+        dependency.dependencyProject >> dependencyProject
+        configurer.configure(gradle)
+
+        when:
+        listener.beforeEvaluate(rootProject)
+
+        then:
+        1 * parent.evaluate()
+
+        when:
+        listener.afterEvaluate(rootProject, state)
+
+        then:
+        1 * dependsOnProject.evaluate()
+        1 * dependencyProject.evaluate()
+        1 * action.execute(rootProject)
+    }
+
+    def evaluatesProjectWhenItIsAccessedWhileConfiguringOnDemand() {
+        setup:
+        ProjectInternal child = Mock()
+        ProjectStateInternal rootState = new ProjectStateInternal()
+        def listener
+        StartParameter startParameter = new StartParameter()
+        startParameter.configureOnDemand = true
+        gradle.startParameter >> startParameter
+        gradle.rootProject >> rootProject
+        gradle.addListener(!null) >> { args -> listener = args[0] }
+        rootProject.state >> rootState
+        child.parent >> rootProject
+        child.state >> new ProjectStateInternal()
+        configurer.configure(gradle)
+
+        when:
+        listener.beforeAccess(child)
+
+        then:
+        1 * child.evaluate()
+
+        when:
+        rootState.executing = true
+        listener.beforeAccess(child)
+
+        then:
+        0 * child.evaluate()
+    }
+
+    def cannotConfigureOnDemandWhenEvaluatingInParallel() {
+        setup:
+        StartParameter startParameter = new StartParameter()
+        startParameter.configureOnDemand = true
+        startParameter.parallelProjectEvaluation = true
+        gradle.startParameter >> startParameter
+        gradle.rootProject >> rootProject
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        InvalidUserDataException e = thrown()
+        e.message == 'Configuration on demand cannot be used together with parallel project evaluation.'
+        0 * rootProject.evaluate()
+    }
 }
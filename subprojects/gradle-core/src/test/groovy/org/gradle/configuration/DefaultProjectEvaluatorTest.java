@@ -15,7 +15,10 @@
  */
 package org.gradle.configuration;
 
+import org.gradle.api.CircularReferenceException;
+import org.gradle.api.Project;
 import org.gradle.api.ProjectEvaluationListener;
+import org.gradle.api.ProjectState;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectStateInternal;
 import org.gradle.util.JUnit4GroovyMockery;
@@ -28,6 +31,13 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
 @RunWith(JMock.class)
@@ -124,4 +134,156 @@ public class DefaultProjectEvaluatorTest {
             assertThat(e, Matchers.sameInstance(failure));
         }
     }
+
+    @Test
+    public void waitsForEvaluationInAnotherThreadToComplete() throws InterruptedException {
+        final ProjectStateInternal projectState = new ProjectStateInternal();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(1);
+        final AtomicInteger evaluations = new AtomicInteger();
+        context.checking(new Expectations() {{
+            ignoring(listener);
+        }});
+
+        final DefaultProjectEvaluator concurrentEvaluator = new DefaultProjectEvaluator(new ProjectEvaluator() {
+            public void evaluate(ProjectInternal project, ProjectStateInternal state) {
+                evaluations.incrementAndGet();
+                started.countDown();
+                await(finish);
+            }
+        });
+        start(new Runnable() {
+            public void run() {
+                concurrentEvaluator.evaluate(project, projectState);
+            }
+        });
+        started.await();
+        start(new Runnable() {
+            public void run() {
+                sleep(100);
+                finish.countDown();
+            }
+        });
+
+        concurrentEvaluator.evaluate(project, projectState);
+
+        assertTrue(projectState.getExecuted());
+        assertThat(evaluations.get(), equalTo(1));
+    }
+
+    @Test
+    public void failsWhenProjectsEvaluatedInDifferentThreadsDependOnEachOther() throws InterruptedException {
+        final ProjectInternal otherProject = context.mock(ProjectInternal.class, "otherProject");
+        final ProjectStateInternal projectState = new ProjectStateInternal();
+        final ProjectStateInternal otherProjectState = new ProjectStateInternal();
+        final CountDownLatch otherProjectStarted = new CountDownLatch(1);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        context.checking(new Expectations() {{
+            allowing(otherProject).getProjectEvaluationBroadcaster();
+            will(returnValue(listener));
+            ignoring(listener);
+        }});
+
+        final List<DefaultProjectEvaluator> evaluators = new ArrayList<DefaultProjectEvaluator>();
+        final DefaultProjectEvaluator concurrentEvaluator = new DefaultProjectEvaluator(new ProjectEvaluator() {
+            public void evaluate(ProjectInternal evaluatedProject, ProjectStateInternal state) {
+                try {
+                    if (evaluatedProject == project) {
+                        await(otherProjectStarted);
+                        evaluators.get(0).evaluate(otherProject, otherProjectState);
+                    } else {
+                        otherProjectStarted.countDown();
+                        evaluators.get(0).evaluate(project, projectState);
+                    }
+                } catch (CircularReferenceException e) {
+                    failures.add(e);
+                }
+            }
+        });
+        evaluators.add(concurrentEvaluator);
+        Thread thread = start(new Runnable() {
+            public void run() {
+                concurrentEvaluator.evaluate(project, projectState);
+            }
+        });
+
+        concurrentEvaluator.evaluate(otherProject, otherProjectState);
+        thread.join();
+
+        assertThat(failures.size(), equalTo(1));
+        assertTrue(projectState.getExecuted());
+        assertTrue(otherProjectState.getExecuted());
+    }
+
+    @Test
+    public void notifiesListenersOneAtATime() throws InterruptedException {
+        final ProjectInternal first = context.mock(ProjectInternal.class, "first");
+        final ProjectInternal second = context.mock(ProjectInternal.class, "second");
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final ProjectEvaluationListener countingListener = new ProjectEvaluationListener() {
+            public void beforeEvaluate(Project project) {
+                notified();
+            }
+
+            public void afterEvaluate(Project project, ProjectState state) {
+                notified();
+            }
+
+            private void notified() {
+                int count = active.incrementAndGet();
+                synchronized (maxActive) {
+                    maxActive.set(Math.max(count, maxActive.get()));
+                }
+                sleep(20);
+                active.decrementAndGet();
+            }
+        };
+        context.checking(new Expectations() {{
+            allowing(first).getProjectEvaluationBroadcaster();
+            will(returnValue(countingListener));
+            allowing(second).getProjectEvaluationBroadcaster();
+            will(returnValue(countingListener));
+        }});
+
+        final DefaultProjectEvaluator concurrentEvaluator = new DefaultProjectEvaluator(new ProjectEvaluator() {
+            public void evaluate(ProjectInternal project, ProjectStateInternal state) {
+            }
+        });
+        Thread thread = start(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 5; i++) {
+                    concurrentEvaluator.evaluate(first, new ProjectStateInternal());
+                }
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            concurrentEvaluator.evaluate(second, new ProjectStateInternal());
+        }
+        thread.join();
+
+        assertThat(maxActive.get(), equalTo(1));
+    }
+
+    private Thread start(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
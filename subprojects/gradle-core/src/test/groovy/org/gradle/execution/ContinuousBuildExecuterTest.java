@@ -0,0 +1,262 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionListener;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.file.SimpleFileCollection;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
+import org.gradle.api.tasks.TaskDependency;
+import org.gradle.api.tasks.TaskInputs;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(JMock.class)
+public class ContinuousBuildExecuterTest {
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+    private final BuildExecuter delegate = context.mock(BuildExecuter.class);
+    private final GradleInternal gradle = context.mock(GradleInternal.class);
+    private final TaskGraphExecuter taskGraph = context.mock(TaskGraphExecuter.class);
+    private final TaskInputsWatcher watcher = context.mock(TaskInputsWatcher.class);
+    private final ContinuousBuildListener listener = context.mock(ContinuousBuildListener.class);
+    private final ContinuousBuildExecuter executer = new ContinuousBuildExecuter(delegate, watcher);
+    private final TaskStateInternal stateA = new TaskStateInternal("a");
+    private final TaskStateInternal stateB = new TaskStateInternal("b");
+    private final TaskStateInternal stateC = new TaskStateInternal("c");
+    private Task a;
+    private Task b;
+    private Task c;
+
+    @Before
+    public void setUp() {
+        a = task("a", stateA);
+        b = task("b", stateB, a);
+        c = task("c", stateC);
+
+        context.checking(new Expectations() {{
+            allowing(gradle).getTaskGraph();
+            will(returnValue(taskGraph));
+            allowing(taskGraph).getAllTasks();
+            will(returnValue(toList(a, b, c)));
+            allowing(taskGraph).getFilter();
+            will(returnValue(Specs.satisfyAll()));
+            allowing(gradle).getContinuousBuildBroadcaster();
+            will(returnValue(listener));
+            allowing(taskGraph).addTaskExecutionListener(with(notNullValue(TaskExecutionListener.class)));
+            allowing(taskGraph).removeTaskExecutionListener(with(notNullValue(TaskExecutionListener.class)));
+
+            one(delegate).select(gradle);
+        }});
+
+        executer.select(gradle);
+    }
+
+    @Test
+    public void executesChangedTasksAndTheirDependentsUntilInterrupted() throws InterruptedException {
+        final Sequence sequence = context.sequence("seq");
+        context.checking(new Expectations() {{
+            one(watcher).watch(toList(a, b, c));
+            inSequence(sequence);
+
+            one(delegate).execute();
+            inSequence(sequence);
+
+            one(listener).iterationFinished();
+            inSequence(sequence);
+
+            one(watcher).waitForChanges();
+            will(returnValue(toSet(a)));
+            inSequence(sequence);
+
+            allowing(taskGraph).useFilter(with(any(Spec.class)));
+
+            one(watcher).watch(toList(a, b));
+            inSequence(sequence);
+
+            one(taskGraph).addTasks(toList(a, b));
+            inSequence(sequence);
+
+            one(taskGraph).execute();
+            inSequence(sequence);
+
+            one(listener).iterationFinished();
+            inSequence(sequence);
+
+            one(watcher).waitForChanges();
+            will(throwException(new InterruptedException()));
+            inSequence(sequence);
+        }});
+
+        stateA.executed();
+        stateB.executed();
+        stateC.executed();
+
+        executer.execute();
+
+        assertFalse(stateA.getExecuted());
+        assertFalse(stateB.getExecuted());
+        assertTrue(stateC.getExecuted());
+    }
+
+    @Test
+    public void executesFailedTasksAgainAndRethrowsLastFailureWhenInterrupted() throws InterruptedException {
+        final RuntimeException failure = new RuntimeException("broken");
+        final Sequence sequence = context.sequence("seq");
+        context.checking(new Expectations() {{
+            one(watcher).watch(toList(a, b, c));
+            inSequence(sequence);
+
+            one(delegate).execute();
+            will(throwException(failure));
+            inSequence(sequence);
+
+            one(listener).iterationFinished();
+            inSequence(sequence);
+
+            one(watcher).waitForChanges();
+            will(returnValue(toSet(c)));
+            inSequence(sequence);
+
+            allowing(taskGraph).useFilter(with(any(Spec.class)));
+
+            one(watcher).watch(toList(a, b, c));
+            inSequence(sequence);
+
+            one(taskGraph).addTasks(toList(a, b, c));
+            inSequence(sequence);
+
+            one(taskGraph).execute();
+            will(throwException(failure));
+            inSequence(sequence);
+
+            one(listener).iterationFinished();
+            inSequence(sequence);
+
+            one(watcher).waitForChanges();
+            will(throwException(new InterruptedException()));
+            inSequence(sequence);
+        }});
+
+        stateA.executed(failure);
+        stateC.executed();
+
+        try {
+            executer.execute();
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e, sameInstance(failure));
+        }
+    }
+
+    @Test
+    public void executesTaskAgainWhenItsInputFilesChangeWhileTheBuildIsExecuting() throws InterruptedException {
+        final TestFile inputFile = tmpDir.createFile("input.txt").write("original");
+        final ContinuousBuildExecuter executer = new ContinuousBuildExecuter(delegate, new PollingTaskInputsWatcher(10));
+        final Sequence sequence = context.sequence("seq");
+        context.checking(new Expectations() {{
+            one(delegate).select(gradle);
+
+            TaskInputs inputsA = context.mock(TaskInputs.class, "inputsA");
+            allowing(a).getInputs();
+            will(returnValue(inputsA));
+            allowing(inputsA).getFiles();
+            will(returnValue(new SimpleFileCollection(inputFile)));
+            TaskInputs noInputs = context.mock(TaskInputs.class, "noInputs");
+            allowing(b).getInputs();
+            will(returnValue(noInputs));
+            allowing(c).getInputs();
+            will(returnValue(noInputs));
+            allowing(noInputs).getFiles();
+            will(returnValue(new SimpleFileCollection()));
+
+            one(delegate).execute();
+            will(new CustomAction("change input file") {
+                public Object invoke(Invocation invocation) throws Throwable {
+                    inputFile.write("changed while executing");
+                    return null;
+                }
+            });
+            inSequence(sequence);
+
+            one(listener).iterationFinished();
+            inSequence(sequence);
+
+            allowing(taskGraph).useFilter(with(any(Spec.class)));
+
+            one(taskGraph).addTasks(toList(a, b));
+            inSequence(sequence);
+
+            one(taskGraph).execute();
+            inSequence(sequence);
+
+            one(listener).iterationFinished();
+            will(new CustomAction("interrupt") {
+                public Object invoke(Invocation invocation) throws Throwable {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            });
+            inSequence(sequence);
+        }});
+
+        stateA.executed();
+        stateB.executed();
+        stateC.executed();
+
+        executer.select(gradle);
+        executer.execute();
+
+        assertFalse(stateA.getExecuted());
+        assertFalse(stateB.getExecuted());
+        assertTrue(stateC.getExecuted());
+    }
+
+    private Task task(String name, final TaskStateInternal state, final Task... dependsOn) {
+        final Task task = context.mock(Task.class, name);
+        final TaskDependency dependency = context.mock(TaskDependency.class, name + "Dependencies");
+        context.checking(new Expectations() {{
+            allowing(task).getState();
+            will(returnValue(state));
+            allowing(task).getTaskDependencies();
+            will(returnValue(dependency));
+            allowing(dependency).getDependencies(task);
+            will(returnValue(new HashSet<Task>(Arrays.asList(dependsOn))));
+        }});
+        return task;
+    }
+}
@@ -25,11 +25,14 @@ import org.gradle.api.execution.TaskExecutionListener;
 import org.gradle.api.internal.AbstractTask;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.tasks.TaskExecuter;
+import org.gradle.api.internal.tasks.TaskStateInternal;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.TaskExecutionException;
 import org.gradle.api.tasks.TaskState;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
 import org.gradle.util.TestClosure;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
@@ -39,6 +42,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -57,7 +61,7 @@ public class DefaultTaskGraphExecuterTest {
     private final ListenerManager listenerManager = context.mock(ListenerManager.class);
     TaskGraphExecuter taskExecuter;
     ProjectInternal root;
-    List<Task> executedTasks = new ArrayList<Task>();
+    List<Task> executedTasks = Collections.synchronizedList(new ArrayList<Task>());
 
     @Before
     public void setUp() {
@@ -165,6 +169,20 @@ public class DefaultTaskGraphExecuterTest {
         assertThat(taskExecuter.getAllTasks(), equalTo(toList(c, d, b, a)));
     }
 
+    @Test
+    public void testAddsLongChainOfDependenciesInDependencyOrder() {
+        List<Task> chain = new ArrayList<Task>();
+        Task previous = createTask("task0");
+        chain.add(previous);
+        for (int i = 1; i < 1000; i++) {
+            previous = createTask("task" + i, previous);
+            chain.add(previous);
+        }
+        taskExecuter.addTasks(toList(previous));
+
+        assertThat(taskExecuter.getAllTasks(), equalTo(chain));
+    }
+
     @Test
     public void testCannotUseGetterMethodsWhenGraphHasNotBeenCalculated() {
         try {
@@ -385,6 +403,128 @@ public class DefaultTaskGraphExecuterTest {
         assertThat(taskExecuter.getAllTasks(), equalTo(toList(b, c)));
     }
 
+    @Test
+    public void testExecutesTasksInDependencyOrderWhenExecutingInParallel() {
+        taskExecuter = createParallelExecuter(4);
+        Task a = createTask("a");
+        Task b = createTask("b", a);
+        Task c = createTask("c", a);
+        Task d = createTask("d", b, c);
+        Task e = createTask("e");
+
+        taskExecuter.execute(toList(d, e));
+
+        assertThat(executedTasks.size(), equalTo(5));
+        assertThat(executedTasks.get(0), anyOf(sameInstance(a), sameInstance(e)));
+        assertThat(executedTasks.indexOf(b), greaterThan(executedTasks.indexOf(a)));
+        assertThat(executedTasks.indexOf(c), greaterThan(executedTasks.indexOf(a)));
+        assertThat(executedTasks.indexOf(d), greaterThan(executedTasks.indexOf(b)));
+        assertThat(executedTasks.indexOf(d), greaterThan(executedTasks.indexOf(c)));
+    }
+
+    @Test
+    public void testExecutesBatchesInOrderAddedWhenExecutingInParallel() {
+        taskExecuter = createParallelExecuter(4);
+        Task a = createTask("a");
+        Task b = createTask("b");
+        Task c = createTask("c");
+
+        taskExecuter.addTasks(toList(b, c));
+        taskExecuter.addTasks(toList(a));
+        taskExecuter.execute();
+
+        assertThat(executedTasks.size(), equalTo(3));
+        assertThat(executedTasks.get(2), sameInstance(a));
+    }
+
+    @Test
+    public void testStopsStartingTasksWhenTaskFailsWhenExecutingInParallel() {
+        taskExecuter = createParallelExecuter(4);
+        final RuntimeException failure = new RuntimeException();
+        Task a = createTask("a");
+        a.doLast(new Action<Task>() {
+            public void execute(Task task) {
+                throw failure;
+            }
+        });
+        Task b = createTask("b", a);
+
+        try {
+            taskExecuter.execute(toList(b));
+            fail();
+        } catch (TaskExecutionException e) {
+            assertThat(e.getCause(), sameInstance((Throwable) failure));
+        }
+
+        assertThat(executedTasks, equalTo(toList(a)));
+    }
+
+    @Test
+    public void testNotifiesTaskListenerWhenExecutingInParallel() {
+        taskExecuter = createParallelExecuter(2);
+        final TaskExecutionListener listener = context.mock(TaskExecutionListener.class);
+        final Task a = createTask("a");
+        final Task b = createTask("b");
+
+        taskExecuter.addTaskExecutionListener(listener);
+        taskExecuter.addTasks(toList(a, b));
+
+        context.checking(new Expectations() {{
+            one(listener).beforeExecute(a);
+            one(listener).afterExecute(with(equalTo(a)), with(notNullValue(TaskState.class)));
+            one(listener).beforeExecute(b);
+            one(listener).afterExecute(with(equalTo(b)), with(notNullValue(TaskState.class)));
+        }});
+
+        taskExecuter.execute();
+    }
+
+    @Test
+    public void testRecordsExecutionTimesOfExecutedTasksWhenExecutingInParallel() {
+        final TaskExecutionTimes executionTimes = context.mock(TaskExecutionTimes.class);
+        taskExecuter = createParallelExecuter(2, executionTimes);
+        final Task a = createTask("a");
+        final TaskInternal b = (TaskInternal) createTask("b");
+        b.setExecuter(new TaskExecuter() {
+            public void execute(TaskInternal task, TaskStateInternal state) {
+                state.upToDate();
+            }
+        });
+
+        context.checking(new Expectations() {{
+            allowing(executionTimes).getExpectedTime(with(notNullValue(Task.class)));
+            will(returnValue(null));
+            one(executionTimes).recordTime(with(sameInstance(a)), with(any(Long.class)));
+        }});
+
+        taskExecuter.execute(toList(a, b));
+    }
+
+    @Test
+    public void testDoesNotRecordExecutionTimesWhenExecutingSerially() {
+        final TaskExecutionTimes executionTimes = context.mock(TaskExecutionTimes.class);
+        taskExecuter = createParallelExecuter(1, executionTimes);
+        Task a = createTask("a");
+
+        taskExecuter.execute(toList(a));
+
+        assertThat(executedTasks, equalTo(toList(a)));
+    }
+
+    private TaskGraphExecuter createParallelExecuter(int threadCount) {
+        return createParallelExecuter(threadCount, null);
+    }
+
+    private TaskGraphExecuter createParallelExecuter(int threadCount, TaskExecutionTimes executionTimes) {
+        context.checking(new Expectations(){{
+            one(listenerManager).createAnonymousBroadcaster(TaskExecutionGraphListener.class);
+            will(returnValue(new ListenerBroadcast<TaskExecutionGraphListener>(TaskExecutionGraphListener.class)));
+            one(listenerManager).createAnonymousBroadcaster(TaskExecutionListener.class);
+            will(returnValue(new ListenerBroadcast<TaskExecutionListener>(TaskExecutionListener.class)));
+        }});
+        return new DefaultTaskGraphExecuter(listenerManager, new DefaultExecutorFactory(), executionTimes, threadCount);
+    }
+
     private Task createTask(String name, final Task... dependsOn) {
         final TaskInternal task = AbstractTask.injectIntoNewInstance(root, name, new Callable<TaskInternal>() {
             public TaskInternal call() throws Exception {
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution;
+
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.*;
+
+import static org.gradle.util.WrapUtil.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+@RunWith(JMock.class)
+public class ParallelTaskPlanExecuterTest {
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    private final TaskExecutionTimes executionTimes = context.mock(TaskExecutionTimes.class);
+    private final Map<Task, Set<Task>> dependencies = new HashMap<Task, Set<Task>>();
+    private final List<Task> executedTasks = Collections.synchronizedList(new ArrayList<Task>());
+    private final Action<Task> worker = new Action<Task>() {
+        public void execute(Task task) {
+            executedTasks.add(task);
+        }
+    };
+
+    @Test
+    public void startsReadyTasksInPlanOrderWhenNoTimesRecorded() {
+        Task a = task("a", null);
+        Task b = task("b", null);
+        Task c = task("c", null, a);
+
+        execute(1, a, b, c);
+
+        assertThat(executedTasks, equalTo(toList(a, b, c)));
+    }
+
+    @Test
+    public void startsTaskWithLongestCriticalPathFirst() {
+        Task a = task("a", 10L);
+        Task b = task("b", 10L);
+        Task c = task("c", 100L, b);
+        Task d = task("d", 5L);
+
+        execute(1, a, b, c, d);
+
+        assertThat(executedTasks, equalTo(toList(b, c, a, d)));
+    }
+
+    @Test
+    public void usesAverageTimeForTasksWithNoRecordedTime() {
+        Task a = task("a", 50L);
+        Task b = task("b", null);
+        Task c = task("c", 10L, b);
+
+        execute(1, a, b, c);
+
+        // b is expected to take 30ms, giving a critical path of 40ms
+        assertThat(executedTasks, equalTo(toList(a, b, c)));
+    }
+
+    @Test
+    public void executesEachTaskOnceAfterItsDependencies() {
+        Task a = task("a", null);
+        Task b = task("b", null, a);
+        Task c = task("c", null, a);
+        Task d = task("d", null, b, c);
+
+        execute(3, a, b, c, d);
+
+        assertThat(executedTasks.size(), equalTo(4));
+        assertThat(executedTasks.get(0), sameInstance(a));
+        assertThat(executedTasks.get(3), sameInstance(d));
+    }
+
+    @Test
+    public void doesNotStartFurtherTasksAfterFailure() {
+        final RuntimeException failure = new RuntimeException();
+        Task a = task("a", null);
+        Task b = task("b", null, a);
+
+        try {
+            new ParallelTaskPlanExecuter(new DefaultExecutorFactory(), executionTimes, 2).execute(toList(a, b),
+                    dependencies, new Action<Task>() {
+                        public void execute(Task task) {
+                            executedTasks.add(task);
+                            throw failure;
+                        }
+                    });
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e, sameInstance(failure));
+        }
+
+        assertThat(executedTasks, equalTo(toList(a)));
+    }
+
+    private void execute(int threadCount, Task... plan) {
+        new ParallelTaskPlanExecuter(new DefaultExecutorFactory(), executionTimes, threadCount).execute(Arrays.asList(
+                plan), dependencies, worker);
+    }
+
+    private Task task(String name, final Long time, Task... dependsOn) {
+        final Task task = context.mock(Task.class, name);
+        context.checking(new Expectations() {{
+            allowing(executionTimes).getExpectedTime(task);
+            will(returnValue(time));
+        }});
+        dependencies.put(task, new HashSet<Task>(Arrays.asList(dependsOn)));
+        return task;
+    }
+}
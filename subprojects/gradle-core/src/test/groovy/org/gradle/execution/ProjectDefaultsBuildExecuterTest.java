@@ -39,6 +39,7 @@ public class ProjectDefaultsBuildExecuterTest {
         context.checking(new Expectations(){{
             allowing(gradle).getDefaultProject();
             will(returnValue(project));
+            allowing(project).evaluate();
         }});
     }
     
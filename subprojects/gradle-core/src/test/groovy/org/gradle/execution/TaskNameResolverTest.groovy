@@ -23,6 +23,38 @@ import spock.lang.Specification
 class TaskNameResolverTest extends Specification {
     private final TaskNameResolver resolver = new TaskNameResolver()
 
+    def evaluatesProjectBeforeSelectingTasks() {
+        ProjectInternal project = Mock()
+        TaskContainerInternal tasks = Mock()
+        _ * project.tasks >> tasks
+        _ * tasks.findByName('task') >> task('task')
+
+        when:
+        resolver.select('task', project)
+
+        then:
+        1 * project.evaluate()
+    }
+
+    def evaluatesProjectAndSubprojectsBeforeSelectingTasksFromAllProjects() {
+        ProjectInternal project = Mock()
+        TaskContainerInternal tasks = Mock()
+        ProjectInternal childProject = Mock()
+        TaskContainerInternal childProjectTasks = Mock()
+        _ * project.tasks >> tasks
+        _ * project.subprojects >> ([childProject] as Set)
+        _ * childProject.tasks >> childProjectTasks
+        _ * tasks.findByName('task') >> task('task')
+        _ * childProjectTasks.findByName('task') >> task('task')
+
+        when:
+        resolver.selectAll('task', project)
+
+        then:
+        1 * project.evaluate()
+        1 * childProject.evaluate()
+    }
+
     def selectsTaskForSingleProjectWhenThereIsAnExactMatchOnName() {
         ProjectInternal project = Mock()
         TaskContainerInternal tasks = Mock()
@@ -18,6 +18,7 @@ package org.gradle.initialization;
 
 import org.gradle.CacheUsage;
 import org.gradle.CommandLineArgumentException;
+import org.gradle.FileHashAlgorithm;
 import org.gradle.StartParameter;
 import org.gradle.api.internal.artifacts.ProjectDependenciesBuildInstruction;
 import org.gradle.api.logging.LogLevel;
@@ -31,6 +32,8 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.*;
 
 import static org.gradle.util.WrapUtil.*;
@@ -64,6 +67,16 @@ public class DefaultCommandLineConverterTest {
     private boolean expectedColorOutput = true;
     private StartParameter actualStartParameter;
     private boolean expectedProfile;
+    private int expectedParallelThreadCount;
+    private boolean expectedParallelProjectEvaluation;
+    private boolean expectedConfigureOnDemand;
+    private boolean expectedContinuous;
+    private boolean expectedPrefetchInputSnapshots;
+    private FileHashAlgorithm expectedFileHashAlgorithm = FileHashAlgorithm.MD5;
+    private boolean expectedTimestampOutputSnapshots;
+    private boolean expectedBuildCacheEnabled;
+    private URI expectedBuildCacheUrl;
+    private int expectedBuildCacheTimeout = 10000;
 
     private final DefaultCommandLineConverter commandLineConverter = new DefaultCommandLineConverter();
 
@@ -95,6 +108,16 @@ public class DefaultCommandLineConverterTest {
         assertEquals(expectedExcludedTasks, startParameter.getExcludedTaskNames());
         assertEquals(expectedInitScripts, startParameter.getInitScripts());
         assertEquals(expectedProfile, startParameter.isProfile());
+        assertEquals(expectedParallelThreadCount, startParameter.getParallelThreadCount());
+        assertEquals(expectedParallelProjectEvaluation, startParameter.isParallelProjectEvaluation());
+        assertEquals(expectedConfigureOnDemand, startParameter.isConfigureOnDemand());
+        assertEquals(expectedContinuous, startParameter.isContinuous());
+        assertEquals(expectedPrefetchInputSnapshots, startParameter.isPrefetchInputSnapshots());
+        assertEquals(expectedFileHashAlgorithm, startParameter.getFileHashAlgorithm());
+        assertEquals(expectedTimestampOutputSnapshots, startParameter.isTimestampOutputSnapshots());
+        assertEquals(expectedBuildCacheEnabled, startParameter.isBuildCacheEnabled());
+        assertEquals(expectedBuildCacheUrl, startParameter.getBuildCacheUrl());
+        assertEquals(expectedBuildCacheTimeout, startParameter.getBuildCacheTimeout());
     }
 
     private void checkConversion(final boolean embedded, String... args) {
@@ -352,6 +375,86 @@ public class DefaultCommandLineConverterTest {
         checkConversion("--profile");
     }
 
+    @Test
+    public void withParallelThreads() {
+        expectedParallelThreadCount = 4;
+        checkConversion("--parallel-threads", "4");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withInvalidParallelThreads() {
+        checkConversion("--parallel-threads", "many");
+    }
+
+    @Test
+    public void withParallelEvaluation() {
+        expectedParallelProjectEvaluation = true;
+        checkConversion("--parallel-evaluation");
+    }
+
+    @Test
+    public void withConfigureOnDemand() {
+        expectedConfigureOnDemand = true;
+        checkConversion("--configure-on-demand");
+    }
+
+    @Test
+    public void withContinuous() {
+        expectedContinuous = true;
+        checkConversion("--continuous");
+    }
+
+    @Test
+    public void withPrefetchInputs() {
+        expectedPrefetchInputSnapshots = true;
+        checkConversion("--prefetch-inputs");
+    }
+
+    @Test
+    public void withFileHashAlgorithm() {
+        expectedFileHashAlgorithm = FileHashAlgorithm.MURMUR3;
+        checkConversion("--file-hash", "murmur3");
+    }
+
+    @Test
+    public void withTimestampOutputs() {
+        expectedTimestampOutputSnapshots = true;
+        checkConversion("--timestamp-outputs");
+    }
+
+    @Test
+    public void withBuildCache() {
+        expectedBuildCacheEnabled = true;
+        checkConversion("--build-cache");
+    }
+
+    @Test
+    public void withBuildCacheUrl() throws URISyntaxException {
+        expectedBuildCacheUrl = new URI("http://localhost:8080/cache/");
+        checkConversion("--build-cache-url", "http://localhost:8080/cache/");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withInvalidBuildCacheUrl() {
+        checkConversion("--build-cache-url", "http://local host/");
+    }
+
+    @Test
+    public void withBuildCacheTimeout() {
+        expectedBuildCacheTimeout = 500;
+        checkConversion("--build-cache-timeout", "500");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withInvalidBuildCacheTimeout() {
+        checkConversion("--build-cache-timeout", "-1");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withUnknownFileHashAlgorithm() {
+        checkConversion("--file-hash", "unknown");
+    }
+
     @Test(expected = CommandLineArgumentException.class)
     public void withUnknownOption() {
         checkConversion("--unknown");
@@ -156,4 +156,19 @@ class DefaultExecutorFactoryTest extends MultithreadedTestCase {
         }
 
     }
+
+    @Test
+    public void fixedSizeExecutorRunsJobsUsingAtMostTheGivenNumberOfThreads() {
+        Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>())
+        Runnable runnable = {
+            threads.add(Thread.currentThread())
+            Thread.sleep(20)
+        } as Runnable
+
+        def executor = new DefaultExecutorFactory().create('<display-name>', 2)
+        10.times { executor.execute(runnable) }
+        executor.stop()
+
+        assertThat(threads.size(), lessThanOrEqualTo(2))
+    }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the throughput of {@link HashUtil#createHash(File)} against hashing through a {@link FileInputStream} with
+ * a 4 KB buffer, for files of 1 KB, 1 MB and 500 MB. This is not run as part of the test suite. Run it from the IDE or
+ * the command-line with:
+ *
+ * <pre>HashUtilBenchmark [tempDir]</pre>
+ */
+public class HashUtilBenchmark {
+    private static final long TARGET_BYTES = 2L * 1024 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        File dir = args.length > 0 ? new File(args[0]) : new File(System.getProperty("java.io.tmpdir"));
+        for (int size : new int[]{1024, 1024 * 1024, 500 * 1024 * 1024}) {
+            File file = File.createTempFile("hashutil", "benchmark", dir);
+            try {
+                write(file, size);
+                run(file, size);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    private static void run(File file, int size) throws Exception {
+        // Hash at least twice, and enough times to process a reasonable amount of data
+        int iterations = (int) Math.max(2, TARGET_BYTES / size);
+
+        byte[] streamHash = null;
+        byte[] channelHash = null;
+        long streamTime = 0;
+        long channelTime = 0;
+        // Warm up then measure, alternating between implementations
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                streamHash = hashUsingStream(file);
+            }
+            streamTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                channelHash = HashUtil.createHash(file);
+            }
+            channelTime = System.nanoTime() - start;
+        }
+
+        if (!Arrays.equals(streamHash, channelHash)) {
+            throw new AssertionError("Hashes do not match.");
+        }
+        System.out.println(String.format("%9d bytes: stream %8.1f MB/s, channel %8.1f MB/s", size, throughput(size,
+                iterations, streamTime), throughput(size, iterations, channelTime)));
+    }
+
+    private static double throughput(int size, int iterations, long nanos) {
+        return (double) size * iterations / (1024 * 1024) / nanos * 1000000000L;
+    }
+
+    private static byte[] hashUsingStream(File file) throws Exception {
+        MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+        byte[] buffer = new byte[4096];
+        InputStream instr = new FileInputStream(file);
+        try {
+            while (true) {
+                int nread = instr.read(buffer);
+                if (nread < 0) {
+                    break;
+                }
+                messageDigest.update(buffer, 0, nread);
+            }
+        } finally {
+            instr.close();
+        }
+        return messageDigest.digest();
+    }
+
+    private static void write(File file, int size) throws IOException {
+        Random random = new Random(0);
+        byte[] content = new byte[Math.min(size, 1024 * 1024)];
+        FileOutputStream outstr = new FileOutputStream(file);
+        try {
+            for (int remaining = size; remaining > 0; remaining -= content.length) {
+                random.nextBytes(content);
+                outstr.write(content, 0, Math.min(remaining, content.length));
+            }
+        } finally {
+            outstr.close();
+        }
+    }
+}
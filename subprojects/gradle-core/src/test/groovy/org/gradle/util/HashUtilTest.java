@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.util;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.UncheckedIOException;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class HashUtilTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void hashesEmptyFile() throws Exception {
+        TestFile file = tmpDir.createFile("empty");
+
+        assertThat(HashUtil.createHash(file), equalTo(md5(new byte[0])));
+        assertThat(HashUtil.createHash(file, 0), equalTo(md5(new byte[0])));
+    }
+
+    @Test
+    public void hashesFileLargerThanReadBuffer() throws Exception {
+        byte[] content = content(1024 * 1024 + 17);
+        File file = write(content);
+
+        assertThat(HashUtil.createHash(file, Long.MAX_VALUE), equalTo(md5(content)));
+    }
+
+    @Test
+    public void hashesMappedFile() throws Exception {
+        byte[] content = content(100 * 1024 + 3);
+        File file = write(content);
+
+        assertThat(HashUtil.createHash(file, 0), equalTo(md5(content)));
+    }
+
+    @Test
+    public void failsWhenFileDoesNotExist() {
+        try {
+            HashUtil.createHash(tmpDir.file("missing"));
+            fail();
+        } catch (UncheckedIOException e) {
+            // Expected
+        }
+    }
+
+    private byte[] content(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private File write(byte[] content) throws IOException {
+        File file = tmpDir.file("file");
+        FileUtils.writeByteArrayToFile(file, content);
+        return file;
+    }
+
+    private byte[] md5(byte[] content) throws Exception {
+        return MessageDigest.getInstance("MD5").digest(content);
+    }
+}
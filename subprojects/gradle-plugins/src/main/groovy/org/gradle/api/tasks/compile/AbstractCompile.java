@@ -32,7 +32,7 @@ public abstract class AbstractCompile extends SourceTask {
     @TaskAction
     protected abstract void compile();
     
-    @InputFiles
+    @InputFiles @Classpath
     public FileCollection getClasspath() {
         return classpath;
     }